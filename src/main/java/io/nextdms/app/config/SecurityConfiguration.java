@@ -87,6 +87,11 @@ public class SecurityConfiguration {
                     .requestMatchers(mvc.pattern("/api/account/reset-password/finish")).permitAll()
                     .requestMatchers(mvc.pattern("/api/admin/**")).hasAuthority(AuthoritiesConstants.ADMIN)
                     .requestMatchers(mvc.pattern("/api/explorer/**")).hasAnyAuthority(AuthoritiesConstants.ADMIN, AuthoritiesConstants.EXPLORER)
+                    .requestMatchers(mvc.pattern("/api/content/files/download")).hasAnyAuthority(AuthoritiesConstants.ADMIN, AuthoritiesConstants.EXPLORER)
+                    .requestMatchers(mvc.pattern("/api/content/uploads/**")).hasAnyAuthority(AuthoritiesConstants.ADMIN, AuthoritiesConstants.EXPLORER)
+                    .requestMatchers(mvc.pattern("/api/content/files/export")).hasAnyAuthority(AuthoritiesConstants.ADMIN, AuthoritiesConstants.EXPLORER)
+                    .requestMatchers(mvc.pattern("/api/content/imports/directory")).hasAuthority(AuthoritiesConstants.ADMIN)
+                    .requestMatchers(mvc.pattern("/api/content/imports/**")).hasAnyAuthority(AuthoritiesConstants.ADMIN, AuthoritiesConstants.EXPLORER)
                     .requestMatchers(mvc.pattern("/api/**")).authenticated()
                     .requestMatchers(mvc.pattern("/v3/api-docs/**")).hasAuthority(AuthoritiesConstants.ADMIN)
                     .requestMatchers(mvc.pattern("/management/health")).permitAll()
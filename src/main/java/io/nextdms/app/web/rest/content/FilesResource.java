@@ -1,7 +1,43 @@
 package io.nextdms.app.web.rest.content;
 
+import io.nextdms.app.security.SecurityUtils;
+import io.nextdms.app.web.rest.errors.BadRequestAlertException;
+import io.nextdms.dms.content.BinaryContent;
+import io.nextdms.dms.content.IContentService;
+import io.nextdms.dms.content.IExportService;
+import io.nextdms.dms.explorer.JcrValueConverter;
+import io.nextdms.dms.session.JcrSessionProvider;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jcr.Node;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller for managing CRUD files operations.
@@ -9,5 +45,250 @@ import org.springframework.web.bind.annotation.RestController;
  * each file can be associated with a folder. and can have many versions, and metadata.
  */
 @RestController
-@RequestMapping("/api/content/files")
-public class FilesResource {}
+@RequestMapping(JcrValueConverter.FILES_PATH)
+public class FilesResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FilesResource.class);
+
+    private static final int NOT_STARTED = 0;
+    private static final int STARTED = 1;
+    private static final int RELEASED = 2;
+
+    private final IContentService contentService;
+    private final IExportService exportService;
+    private final JcrSessionProvider sessionProvider;
+
+    public FilesResource(IContentService contentService, IExportService exportService, JcrSessionProvider sessionProvider) {
+        this.contentService = contentService;
+        this.exportService = exportService;
+        this.sessionProvider = sessionProvider;
+    }
+
+    /**
+     * Downloading the content of a binary property. Single byte ranges are honoured, conditionally on If-Range, and the
+     * content is streamed from the repository without being buffered.
+     * @param path : path of a file node, or of the node holding the binary property
+     * @param property : name of the binary property, jcr:content/jcr:data of the file when missing
+     * @param index : value to download when the property is multi-valued
+     * @param requestHeaders : Range, If-Range and If-None-Match are taken into account
+     * @return
+     */
+    @GetMapping(JcrValueConverter.DOWNLOAD_MAPPING)
+    public ResponseEntity<StreamingResponseBody> download(
+        @RequestParam("path") String path,
+        @RequestParam(value = "property", required = false) String property,
+        @RequestParam(value = "index", defaultValue = "-1") int index,
+        @RequestHeader HttpHeaders requestHeaders
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Downloading {} of {}", property, path);
+        }
+        Session session;
+        BinaryContent content;
+        try {
+            session = sessionProvider.acquire(SecurityUtils.getCurrentUserLogin().orElse(null));
+            try {
+                content = contentService.getBinary(session, path, property, index);
+            } catch (RepositoryException | RuntimeException e) {
+                sessionProvider.release(session);
+                throw e;
+            }
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "files", "files.error.failed.download");
+        }
+
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(content.eTag());
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (content.lastModified() > 0) {
+                headers.setLastModified(content.lastModified());
+            }
+            if (matches(requestHeaders.getIfNoneMatch(), content.eTag())) {
+                close(session, content);
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
+
+            long start = 0;
+            long length = content.size();
+            HttpStatus status = HttpStatus.OK;
+            HttpRange range = requestedRange(requestHeaders, content);
+            if (range != null) {
+                try {
+                    start = range.getRangeStart(content.size());
+                    length = range.getRangeEnd(content.size()) - start + 1;
+                } catch (IllegalArgumentException e) {
+                    close(session, content);
+                    headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + content.size());
+                    return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                }
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + content.size());
+                status = HttpStatus.PARTIAL_CONTENT;
+            }
+            headers.setContentLength(length);
+            headers.setContentType(mediaType(content.mimeType()));
+            headers.setContentDisposition(ContentDisposition.attachment().filename(content.fileName(), StandardCharsets.UTF_8).build());
+
+            final long offset = start;
+            final long count = length;
+            StreamingResponseBody body = stream(
+                () -> close(session, content),
+                outputStream -> contentService.write(content, offset, count, outputStream),
+                "Failed streaming " + path
+            );
+            return new ResponseEntity<>(body, headers, status);
+        } catch (RuntimeException e) {
+            close(session, content);
+            throw e;
+        }
+    }
+
+    /**
+     * Downloading a folder as a ZIP archive, streamed while the folder is walked
+     * @param path : path of the folder
+     * @param manifest : whether to add a manifest with the type and properties of every node
+     * @return
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+        @RequestParam("path") String path,
+        @RequestParam(value = "manifest", defaultValue = "false") boolean manifest
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Exporting {}", path);
+        }
+        Session session;
+        String fileName;
+        try {
+            session = sessionProvider.acquire(SecurityUtils.getCurrentUserLogin().orElse(null));
+            try {
+                Node node = session.getNode(path);
+                fileName = (node.getDepth() == 0 ? "export" : node.getName()) + ".zip";
+            } catch (RepositoryException | RuntimeException e) {
+                sessionProvider.release(session);
+                throw e;
+            }
+        } catch (PathNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "files", "files.error.failed.export");
+        }
+
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType("application/zip"));
+            headers.setContentDisposition(ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build());
+            StreamingResponseBody body = stream(
+                () -> sessionProvider.release(session),
+                outputStream -> exportService.exportZip(session, path, manifest, outputStream),
+                "Failed exporting " + path
+            );
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+        } catch (RuntimeException e) {
+            sessionProvider.release(session);
+            throw e;
+        }
+    }
+
+    /**
+     * The single range to serve, or null for the whole content : several ranges, an unparsable Range header or an
+     * If-Range validator that no longer matches all lead to the whole content.
+     */
+    private static HttpRange requestedRange(HttpHeaders requestHeaders, BinaryContent content) {
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ranges.size() != 1) {
+            return null;
+        }
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return ranges.get(0);
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range only accepts a strong comparison
+            return content.hasStrongETag() && ifRange.equals(content.eTag()) ? ranges.get(0) : null;
+        }
+        try {
+            long date = requestHeaders.getFirstDate(HttpHeaders.IF_RANGE);
+            return content.lastModified() > 0 && content.lastModified() / 1000 == date / 1000 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String eTag) {
+        String opaqueTag = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        for (String tag : ifNoneMatch) {
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void close(Session session, BinaryContent content) {
+        try {
+            content.binary().dispose();
+        } finally {
+            sessionProvider.release(session);
+        }
+    }
+
+    /**
+     * The media type stored on the file, application/octet-stream when it is missing or cannot be parsed.
+     */
+    private static MediaType mediaType(String mimeType) {
+        if (mimeType == null) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+        try {
+            return MediaType.parseMediaType(mimeType);
+        } catch (InvalidMediaTypeException e) {
+            LOG.debug("Invalid mime type {}", mimeType);
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    /**
+     * Run the writer as the response body. The release runs exactly once: when the body ends, whether it completed or
+     * failed, or when the asynchronous request ends without the body having been started.
+     */
+    private static StreamingResponseBody stream(Runnable release, BodyWriter writer, String failure) {
+        // NOT_STARTED, then STARTED by the body or RELEASED by the end of the request, whichever comes first
+        AtomicInteger state = new AtomicInteger(NOT_STARTED);
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(
+            state,
+            new CallableProcessingInterceptor() {
+                @Override
+                public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                    if (state.compareAndSet(NOT_STARTED, RELEASED)) {
+                        release.run();
+                    }
+                }
+            }
+        );
+        return outputStream -> {
+            if (!state.compareAndSet(NOT_STARTED, STARTED)) {
+                throw new IOException("Request ended before its response was written");
+            }
+            try {
+                writer.write(outputStream);
+            } catch (RepositoryException e) {
+                LOG.error(failure, e);
+                throw new IOException(e.getMessage(), e);
+            } finally {
+                release.run();
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(OutputStream outputStream) throws RepositoryException, IOException;
+    }
+}
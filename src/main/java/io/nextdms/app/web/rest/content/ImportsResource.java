@@ -0,0 +1,86 @@
+package io.nextdms.app.web.rest.content;
+
+import io.nextdms.app.security.SecurityUtils;
+import io.nextdms.app.web.rest.errors.BadRequestAlertException;
+import io.nextdms.dms.content.IImportService;
+import io.nextdms.dms.content.ImportReport;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.jcr.RepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * REST controller for importing trees of files : a ZIP archive uploaded by the client, or a directory of the server under
+ * the configured import directory. The files are stored in parallel and a report of the throughput is returned.
+ */
+@RestController
+@RequestMapping("/api/content/imports")
+public class ImportsResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportsResource.class);
+
+    private final IImportService importService;
+
+    public ImportsResource(IImportService importService) {
+        this.importService = importService;
+    }
+
+    /**
+     * Importing a ZIP archive
+     * @param path : path of the folder receiving the content of the archive
+     * @param file : the archive, spooled to a temporary file so that its entries are read concurrently
+     * @return the import report
+     */
+    @PostMapping("/zip")
+    public ResponseEntity<ImportReport> importZip(@RequestParam("path") String path, @RequestParam("file") MultipartFile file) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Importing archive {} into {}", file.getOriginalFilename(), path);
+        }
+        Path zipFile = null;
+        try {
+            zipFile = Files.createTempFile("import-", ".zip");
+            file.transferTo(zipFile);
+            return ResponseEntity.ok(importService.importZip(currentLogin(), path, zipFile));
+        } catch (RepositoryException | IOException e) {
+            throw new BadRequestAlertException(e.getMessage(), "imports", "imports.error.failed.import");
+        } finally {
+            if (zipFile != null) {
+                try {
+                    Files.deleteIfExists(zipFile);
+                } catch (IOException e) {
+                    LOG.warn("Could not delete {}", zipFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Importing a directory of the server
+     * @param path : path of the folder receiving the content of the directory
+     * @param directory : directory relative to the configured import directory
+     * @return the import report
+     */
+    @PostMapping("/directory")
+    public ResponseEntity<ImportReport> importDirectory(@RequestParam("path") String path, @RequestParam("directory") String directory) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Importing directory {} into {}", directory, path);
+        }
+        try {
+            return ResponseEntity.ok(importService.importDirectory(currentLogin(), path, directory));
+        } catch (RepositoryException | IOException e) {
+            throw new BadRequestAlertException(e.getMessage(), "imports", "imports.error.failed.import");
+        }
+    }
+
+    private static String currentLogin() {
+        return SecurityUtils.getCurrentUserLogin().orElse(null);
+    }
+}
@@ -0,0 +1,193 @@
+package io.nextdms.app.web.rest.content;
+
+import io.nextdms.app.security.SecurityUtils;
+import io.nextdms.app.web.rest.errors.BadRequestAlertException;
+import io.nextdms.dms.content.IUploadService;
+import io.nextdms.dms.content.Upload;
+import io.nextdms.dms.content.UploadConflictException;
+import io.nextdms.dms.session.JcrSessionProvider;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for resumable uploads, following the tus protocol : the upload is created with its length, its
+ * content is sent in PATCH requests at increasing offsets, and it is finished once complete. A client that lost its
+ * connection asks for the current offset with HEAD and resumes from there.
+ */
+@RestController
+@RequestMapping("/api/content/uploads")
+public class UploadsResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UploadsResource.class);
+
+    public static final String UPLOAD_OFFSET = "Upload-Offset";
+    public static final String UPLOAD_LENGTH = "Upload-Length";
+    public static final String TUS_RESUMABLE = "Tus-Resumable";
+    private static final String TUS_VERSION = "1.0.0";
+
+    private final IUploadService uploadService;
+    private final JcrSessionProvider sessionProvider;
+
+    public UploadsResource(IUploadService uploadService, JcrSessionProvider sessionProvider) {
+        this.uploadService = uploadService;
+        this.sessionProvider = sessionProvider;
+    }
+
+    /**
+     * Creating an upload
+     * @param length : total number of bytes of the content
+     * @param path : node receiving the binary, or folder where the file is created when a file name is given
+     * @param property : binary property set on the node, jcr:data when missing
+     * @param fileName : name of the nt:file created or replaced in the folder
+     * @param mimeType : mime type of the file
+     * @param sha256 : hex SHA-256 of the content; when a binary with this digest is already stored, it is reused and the
+     *               returned upload is complete, otherwise the received content is checked against it
+     * @return
+     */
+    @PostMapping
+    public ResponseEntity<Upload> create(
+        @RequestHeader(UPLOAD_LENGTH) long length,
+        @RequestParam("path") String path,
+        @RequestParam(value = "property", required = false) String property,
+        @RequestParam(value = "fileName", required = false) String fileName,
+        @RequestParam(value = "mimeType", required = false) String mimeType,
+        @RequestParam(value = "sha256", required = false) String sha256
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Creating upload of {} bytes to {}", length, path);
+        }
+        try {
+            final var login = currentLogin();
+            if (sha256 != null) {
+                final var reused = sessionProvider.execute(login, session ->
+                    uploadService.reuse(session, login, path, property, fileName, mimeType, length, sha256)
+                );
+                if (reused != null) {
+                    return ResponseEntity.ok().headers(uploadHeaders(reused)).body(reused);
+                }
+            }
+            final var upload = uploadService.create(login, path, property, fileName, mimeType, length, sha256);
+            return ResponseEntity.created(URI.create("/api/content/uploads/" + upload.id())).headers(uploadHeaders(upload)).body(upload);
+        } catch (RepositoryException | IOException e) {
+            throw new BadRequestAlertException(e.getMessage(), "uploads", "uploads.error.failed.create");
+        }
+    }
+
+    /**
+     * Fetching the offset to resume an upload from
+     * @param id : id of the upload
+     * @return
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> offset(@PathVariable("id") String id) {
+        try {
+            final var upload = uploadService.get(currentLogin(), id);
+            return ResponseEntity.ok().headers(uploadHeaders(upload)).cacheControl(CacheControl.noStore()).build();
+        } catch (PathNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "uploads", "uploads.error.failed.fetch");
+        }
+    }
+
+    /**
+     * Sending a chunk of the content
+     * @param id : id of the upload
+     * @param offset : position of the chunk, must be the current offset of the upload
+     * @param request : the body is the chunk, sent as application/offset+octet-stream
+     * @return
+     */
+    @PatchMapping(value = "/{id}", consumes = "application/offset+octet-stream")
+    public ResponseEntity<Void> append(
+        @PathVariable("id") String id,
+        @RequestHeader(UPLOAD_OFFSET) long offset,
+        HttpServletRequest request
+    ) {
+        try {
+            final var upload = uploadService.append(currentLogin(), id, offset, request.getInputStream());
+            return ResponseEntity.noContent().headers(uploadHeaders(upload)).build();
+        } catch (UploadConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header(UPLOAD_OFFSET, Long.toString(e.getOffset())).build();
+        } catch (PathNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RepositoryException | IOException e) {
+            throw new BadRequestAlertException(e.getMessage(), "uploads", "uploads.error.failed.append");
+        }
+    }
+
+    /**
+     * Storing the uploaded content in the repository
+     * @param id : id of the upload
+     * @return the upload, with the SHA-256 of its content
+     */
+    @PostMapping("/{id}/finish")
+    public ResponseEntity<Upload> finish(@PathVariable("id") String id) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Finishing upload {}", id);
+        }
+        try {
+            final var login = currentLogin();
+            final var upload = sessionProvider.execute(login, session -> {
+                try {
+                    return uploadService.finish(session, login, id);
+                } catch (IOException e) {
+                    throw new RepositoryException(e.getMessage(), e);
+                }
+            });
+            return ResponseEntity.ok(upload);
+        } catch (UploadConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header(UPLOAD_OFFSET, Long.toString(e.getOffset())).build();
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "uploads", "uploads.error.failed.finish");
+        }
+    }
+
+    /**
+     * Abandoning an upload
+     * @param id : id of the upload
+     * @return
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancel(@PathVariable("id") String id) {
+        try {
+            uploadService.cancel(currentLogin(), id);
+            return ResponseEntity.noContent().header(TUS_RESUMABLE, TUS_VERSION).build();
+        } catch (UploadConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).header(UPLOAD_OFFSET, Long.toString(e.getOffset())).build();
+        } catch (PathNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RepositoryException | IOException e) {
+            throw new BadRequestAlertException(e.getMessage(), "uploads", "uploads.error.failed.cancel");
+        }
+    }
+
+    private static HttpHeaders uploadHeaders(Upload upload) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TUS_RESUMABLE, TUS_VERSION);
+        headers.set(UPLOAD_OFFSET, Long.toString(upload.offset()));
+        headers.set(UPLOAD_LENGTH, Long.toString(upload.length()));
+        return headers;
+    }
+
+    private static String currentLogin() {
+        return SecurityUtils.getCurrentUserLogin().orElse(null);
+    }
+}
@@ -0,0 +1,138 @@
+package io.nextdms.app.web.rest.explorer;
+
+import io.nextdms.app.security.SecurityUtils;
+import io.nextdms.app.web.rest.errors.BadRequestAlertException;
+import io.nextdms.dms.bulk.BulkItem;
+import io.nextdms.dms.bulk.BulkJob;
+import io.nextdms.dms.bulk.IBulkJobService;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for bulk moves, copies and deletions : the job is accepted at once and runs in the background, its progress is
+ * polled until it has finished.
+ */
+@RestController
+@RequestMapping("/api/explorer/jobs")
+public class BulkJobsResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkJobsResource.class);
+
+    private final IBulkJobService bulkJobService;
+
+    public BulkJobsResource(IBulkJobService bulkJobService) {
+        this.bulkJobService = bulkJobService;
+    }
+
+    /**
+     * Moving nodes in the background
+     * @param nodeMap : path of each node to move, mapped to the path of its new parent
+     * @return the queued job
+     */
+    @PostMapping("/move")
+    public ResponseEntity<BulkJob> move(@RequestBody Map<String, String> nodeMap) {
+        return submit(BulkJob.Operation.MOVE, nodeMap);
+    }
+
+    /**
+     * Copying nodes in the background
+     * @param nodeMap : path of each node to copy, mapped to the path of the parent of the copy
+     * @return the queued job
+     */
+    @PostMapping("/copy")
+    public ResponseEntity<BulkJob> copy(@RequestBody Map<String, String> nodeMap) {
+        return submit(BulkJob.Operation.COPY, nodeMap);
+    }
+
+    /**
+     * Deleting nodes in the background : they are moved to the trash at once, then removed by batches
+     * @param paths : paths of the nodes to delete
+     * @return the queued job
+     */
+    @PostMapping("/delete")
+    public ResponseEntity<BulkJob> delete(@RequestBody List<String> paths) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Submitting bulk deletion of {} nodes", paths.size());
+        }
+        try {
+            final var job = bulkJobService.submitDelete(currentLogin(), paths);
+            return ResponseEntity.accepted().location(URI.create("/api/explorer/jobs/" + job.id())).body(job);
+        } catch (RepositoryException | IOException e) {
+            throw new BadRequestAlertException(e.getMessage(), "jobs", "jobs.error.failed.submit");
+        }
+    }
+
+    /**
+     * Fetching the jobs of the current user, most recent first
+     * @return
+     */
+    @GetMapping
+    public ResponseEntity<List<BulkJob>> list() {
+        return ResponseEntity.ok(bulkJobService.list(currentLogin()));
+    }
+
+    /**
+     * Fetching the status and progress of a job
+     * @param id : id of the job
+     * @return
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<BulkJob> status(@PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok(bulkJobService.get(currentLogin(), id));
+        } catch (PathNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "jobs", "jobs.error.failed.fetch");
+        }
+    }
+
+    /**
+     * Cancelling a job, the items already handled stay applied
+     * @param id : id of the job
+     * @return
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<BulkJob> cancel(@PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok(bulkJobService.cancel(currentLogin(), id));
+        } catch (PathNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "jobs", "jobs.error.failed.cancel");
+        }
+    }
+
+    private ResponseEntity<BulkJob> submit(BulkJob.Operation operation, Map<String, String> nodeMap) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Submitting bulk {} of {} nodes", operation, nodeMap.size());
+        }
+        List<BulkItem> items = new ArrayList<>(nodeMap.size());
+        nodeMap.forEach((sourcePath, destinationPath) -> items.add(new BulkItem(sourcePath, destinationPath)));
+        try {
+            final var job = bulkJobService.submit(currentLogin(), operation, items);
+            return ResponseEntity.accepted().location(URI.create("/api/explorer/jobs/" + job.id())).body(job);
+        } catch (RepositoryException | IOException e) {
+            throw new BadRequestAlertException(e.getMessage(), "jobs", "jobs.error.failed.submit");
+        }
+    }
+
+    private static String currentLogin() {
+        return SecurityUtils.getCurrentUserLogin().orElse(null);
+    }
+}
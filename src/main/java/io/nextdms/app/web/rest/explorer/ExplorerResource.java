@@ -1,29 +1,60 @@
 package io.nextdms.app.web.rest.explorer;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.nextdms.app.security.SecurityUtils;
 import io.nextdms.app.web.rest.errors.BadRequestAlertException;
 import io.nextdms.app.web.rest.explorer.dto.NodeDto;
 import io.nextdms.app.web.rest.explorer.dto.SearchDto;
-import io.nextdms.dms.SessionUtils;
-import io.nextdms.dms.config.OakProperties;
-import io.nextdms.dms.explorer.ExplorerUtils;
 import io.nextdms.dms.explorer.IExplorerReadService;
 import io.nextdms.dms.explorer.IExplorerWriteService;
+import io.nextdms.dms.explorer.JcrNodeConsumer;
+import io.nextdms.dms.explorer.JcrNodeStream;
+import io.nextdms.dms.explorer.PropertyProjection;
+import io.nextdms.dms.explorer.query.CountMode;
 import io.nextdms.dms.explorer.query.IQueryService;
+import io.nextdms.dms.explorer.query.SearchPage;
+import io.nextdms.dms.session.JcrSessionCallback;
+import io.nextdms.dms.session.JcrSessionProvider;
 import io.nextdms.dto.NodeType;
+import io.nextdms.dto.explorer.JcrBatchResult;
+import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrPropertyChanges;
+import io.nextdms.dto.explorer.JcrQueryPlan;
+import io.nextdms.dto.explorer.JcrSearchRequest;
+import io.nextdms.dto.explorer.JcrWriteOperation;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
-import javax.jcr.Repository;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import org.slf4j.Logger;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.PaginationUtil;
 
@@ -35,25 +66,36 @@ import tech.jhipster.web.util.PaginationUtil;
 @RequestMapping("/api/explorer")
 public class ExplorerResource {
 
+    private static final int MAX_CHILDREN_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_OPERATIONS = 1000;
+    private static final int MAX_SEARCH_PAGE_SIZE = 1000;
+
+    private static final int NOT_STARTED = 0;
+    private static final int STARTED = 1;
+    private static final int RELEASED = 2;
+    private static final String TOTAL_COUNT_EXACT_HEADER = "X-Total-Count-Exact";
+
     Logger LOG = org.slf4j.LoggerFactory.getLogger(ExplorerResource.class);
     private final IExplorerReadService explorerReadService;
     private final IExplorerWriteService explorerWriteService;
     private final IQueryService queryService;
-    private final OakProperties oakProperties;
-    private final Repository repository;
+    private final JcrSessionProvider sessionProvider;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter nodeWriter;
 
     public ExplorerResource(
         IExplorerReadService explorerReadService,
         IExplorerWriteService explorerWriteService,
         IQueryService queryService,
-        OakProperties oakProperties,
-        Repository repository
+        JcrSessionProvider sessionProvider,
+        ObjectMapper objectMapper
     ) {
         this.explorerReadService = explorerReadService;
         this.explorerWriteService = explorerWriteService;
         this.queryService = queryService;
-        this.oakProperties = oakProperties;
-        this.repository = repository;
+        this.sessionProvider = sessionProvider;
+        this.objectMapper = objectMapper;
+        this.nodeWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     /**
@@ -75,69 +117,196 @@ public class ExplorerResource {
             LOG.info("Request to list root");
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = explorerReadService.getNodeTree(session, "/");
-            SessionUtils.ungetSession(session);
+            final var result = execute(session -> explorerReadService.getNodeTree(session, "/"));
             return ResponseEntity.ok(result);
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.root");
         }
     }
 
+    /**
+     * Fetching the breadcrumb of a node : ancestor summaries (name, id, has children) and optionally the node siblings
+     * @param nodeDto : path : path of the node, UUID : UUID of the node
+     * @param siblings : whether to include the siblings of the node
+     * @param maxSiblings : maximum number of siblings returned
+     * @return
+     */
+    @RequestMapping("/node/breadcrumb")
+    public ResponseEntity<?> nodeBreadcrumb(
+        @Valid @org.springdoc.core.annotations.ParameterObject NodeDto nodeDto,
+        @RequestParam(value = "siblings", defaultValue = "false") boolean siblings,
+        @RequestParam(value = "maxSiblings", defaultValue = "200") int maxSiblings
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Fetching breadcrumb for node : {}", nodeDto);
+        }
+        try {
+            final var result = execute(session ->
+                explorerReadService.getBreadcrumb(
+                    session,
+                    nodeDto.path(),
+                    nodeDto.UUID(),
+                    siblings,
+                    Math.min(maxSiblings, MAX_CHILDREN_PAGE_SIZE)
+                )
+            );
+            return ResponseEntity.ok(result);
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.breadcrumb");
+        }
+    }
+
     /**
      * Fetching node tree
      * @param nodeDto : path : path of the node, UUID : UUID of the node
+     * @param properties : names of the properties to return, all when missing, none when empty
      * @return
      */
     @RequestMapping("/node/childreen")
-    public ResponseEntity<?> nodeChildren(@Valid @org.springdoc.core.annotations.ParameterObject NodeDto nodeDto) {
+    public ResponseEntity<?> nodeChildren(
+        @Valid @org.springdoc.core.annotations.ParameterObject NodeDto nodeDto,
+        @RequestParam(value = "properties", required = false) List<String> properties
+    ) {
         if (LOG.isDebugEnabled()) {
             LOG.info("Fetching childreen for node : {}", nodeDto.toString());
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = explorerReadService.getNode(session, nodeDto.path(), nodeDto.UUID());
-            SessionUtils.ungetSession(session);
+            final var result = execute(session ->
+                explorerReadService.getNode(session, nodeDto.path(), nodeDto.UUID(), PropertyProjection.of(properties))
+            );
             return ResponseEntity.ok(result);
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.nodeChilderen");
         }
     }
 
+    /**
+     * Fetching one page of node children. The next page is linked through the {@code Link} header.
+     * @param nodeDto : path : path of the node, UUID : UUID of the node
+     * @param cursor : opaque cursor returned by the previous page, missing for the first page
+     * @param size : number of children per page
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @return
+     */
+    @RequestMapping("/node/childreen/page")
+    public ResponseEntity<?> nodeChildrenPage(
+        @Valid @org.springdoc.core.annotations.ParameterObject NodeDto nodeDto,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "size", defaultValue = "100") int size,
+        @RequestParam(value = "properties", required = false) List<String> properties
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Fetching childreen page for node : {} after cursor : {}", nodeDto, cursor);
+        }
+        try {
+            final var result = execute(session ->
+                explorerReadService.getNodePage(
+                    session,
+                    nodeDto.path(),
+                    nodeDto.UUID(),
+                    cursor,
+                    Math.min(size, MAX_CHILDREN_PAGE_SIZE),
+                    PropertyProjection.of(properties)
+                )
+            );
+            HttpHeaders headers = new HttpHeaders();
+            final var uriBuilder = ServletUriComponentsBuilder.fromCurrentRequest();
+            if (result.hasNext()) {
+                final var next = uriBuilder.replaceQueryParam("cursor", result.nextCursor()).toUriString();
+                headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            headers.add(HttpHeaders.LINK, "<" + uriBuilder.replaceQueryParam("cursor").toUriString() + ">; rel=\"first\"");
+            return new ResponseEntity<>(result.content(), headers, HttpStatus.OK);
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.nodeChilderen");
+        }
+    }
+
+    /**
+     * Streaming node children : each child is written as soon as it is read, so memory use does not grow with the folder size.
+     * @param nodeDto : path : path of the node, UUID : UUID of the node
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @return
+     */
+    @RequestMapping("/node/childreen/stream")
+    public ResponseEntity<StreamingResponseBody> nodeChildrenStream(
+        @Valid @org.springdoc.core.annotations.ParameterObject NodeDto nodeDto,
+        @RequestParam(value = "properties", required = false) List<String> properties
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Streaming childreen for node : {}", nodeDto);
+        }
+        try {
+            final var session = acquireSession();
+            try {
+                // resolve the node before the response is committed so that a missing node is still reported as an error
+                explorerReadService.getProperties(session, nodeDto.path(), nodeDto.UUID(), PropertyProjection.NONE);
+            } catch (RepositoryException e) {
+                releaseSession(session);
+                throw e;
+            }
+            return stream(session, consumer ->
+                explorerReadService.streamNode(session, nodeDto.path(), nodeDto.UUID(), PropertyProjection.of(properties), consumer)
+            );
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.nodeChilderen");
+        }
+    }
+
     /**
      * Fetching node properties
      * @param nodeDto : path : path of the node, UUID : UUID of the node
+     * @param properties : names of the properties to return, all when missing, none when empty
      * @return
      */
     @RequestMapping("/node/properties")
-    public ResponseEntity<?> getNodeProperties(@Valid @org.springdoc.core.annotations.ParameterObject NodeDto nodeDto) {
+    public ResponseEntity<?> getNodeProperties(
+        @Valid @org.springdoc.core.annotations.ParameterObject NodeDto nodeDto,
+        @RequestParam(value = "properties", required = false) List<String> properties
+    ) {
         if (LOG.isDebugEnabled()) {
             LOG.info("Fetching properties for node : {}", "");
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = explorerReadService.getProperties(session, nodeDto.path(), nodeDto.UUID());
-            SessionUtils.ungetSession(session);
+            final var result = execute(session ->
+                explorerReadService.getProperties(session, nodeDto.path(), nodeDto.UUID(), PropertyProjection.of(properties))
+            );
             return ResponseEntity.ok(result);
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.mixinNodeTypes");
         }
     }
 
+    /**
+     * Saving node properties, only the properties whose value changed are written
+     * @param path : path of the node
+     * @param node : node holding the submitted properties
+     * @return the names of the properties changed and of those skipped, unchanged or protected
+     */
+    @PutMapping("/node/properties")
+    public ResponseEntity<JcrPropertyChanges> saveNodeProperties(@RequestParam("path") @NotBlank String path, @RequestBody JcrNode node) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Saving properties of node : {}", path);
+        }
+        try {
+            final var result = execute(session -> explorerWriteService.saveProperties(session, path, node));
+            return result == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(result);
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.save.properties");
+        }
+    }
+
     /**
      * Fetching available node types
      * @return
      */
     @RequestMapping("/availables-node-types")
-    public ResponseEntity<?> availableNodeTypes() {
+    public ResponseEntity<?> availableNodeTypes(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         if (LOG.isDebugEnabled()) {
             LOG.info("Fetching available node types");
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = explorerReadService.getAvailableNodeTypes(session);
-            SessionUtils.ungetSession(session);
-            return ResponseEntity.ok(result);
+            return withCatalogETag(ifNoneMatch, session -> explorerReadService.getAvailableNodeTypes(session));
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.availableNodeTypes");
         }
@@ -148,40 +317,194 @@ public class ExplorerResource {
      * @return
      */
     @RequestMapping("/availables-node-mixin-types")
-    public ResponseEntity<?> availableMixinTypes() {
+    public ResponseEntity<?> availableMixinTypes(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         if (LOG.isDebugEnabled()) {
             LOG.info("Fetching available mixin node types");
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = explorerReadService.getMixinNodeTypes(session);
-            SessionUtils.ungetSession(session);
-            return ResponseEntity.ok(result);
+            return withCatalogETag(ifNoneMatch, session -> explorerReadService.getMixinNodeTypes(session));
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.mixinNodeTypes");
         }
     }
 
+    /**
+     * Fetching the node type catalog : names, supertypes, property definitions and icons of all the node types.
+     * The response carries an ETag that only changes when node types or icons change.
+     * @param ifNoneMatch : entity tag of the catalog already held by the client
+     * @return
+     */
+    @GetMapping("/node-types")
+    public ResponseEntity<?> nodeTypeCatalog(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (LOG.isDebugEnabled()) {
+            LOG.info("Fetching node type catalog");
+        }
+        try {
+            return withCatalogETag(ifNoneMatch, session -> explorerReadService.getNodeTypeCatalog(session));
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.nodeTypes");
+        }
+    }
+
     /**
      *
      * @param pageable
      * @param searchDto : query : a valid xpath, JCR-SQL2  query , type : query type supported values are : xpath, JCR-SQL2
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @param count : exact (default), estimate or none : how the total of the X-Total-Count header is obtained
      * @return
      */
     @RequestMapping("/search")
     public ResponseEntity<?> search(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
-        @org.springdoc.core.annotations.ParameterObject SearchDto searchDto
+        @org.springdoc.core.annotations.ParameterObject SearchDto searchDto,
+        @RequestParam(value = "properties", required = false) List<String> properties,
+        @RequestParam(value = "count", required = false) String count
     ) {
         if (LOG.isDebugEnabled()) {
             LOG.info("search for query: ' {} ' of type '{}'", searchDto.query(), searchDto.type());
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = queryService.search(session, searchDto.query(), searchDto.type(), pageable);
-            SessionUtils.ungetSession(session);
-            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), result);
-            return new ResponseEntity<>(result.getContent(), headers, HttpStatus.OK);
+            final var result = execute(session ->
+                queryService.search(
+                    session,
+                    searchDto.query(),
+                    searchDto.type(),
+                    pageable,
+                    PropertyProjection.of(properties),
+                    countMode(count)
+                )
+            );
+            return new ResponseEntity<>(result.getContent(), searchHeaders(result), HttpStatus.OK);
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.search");
+        }
+    }
+
+    /**
+     * Keyset-paginated search : each page starts after the sort key of the last node of the previous page, so that deep pages
+     * cost no more than the first one. The next page is linked through the {@code Link} header, no total is returned.
+     * @param query : a JCR-SQL2 query with a single selector, ordered at most on one property or on the path
+     * @param cursor : opaque cursor returned by the previous page, missing for the first page
+     * @param size : number of nodes per page
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @return
+     */
+    @RequestMapping("/search/page")
+    public ResponseEntity<?> searchPage(
+        @RequestParam("query") @NotBlank(message = "query must not be blank!") String query,
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "size", defaultValue = "20") int size,
+        @RequestParam(value = "properties", required = false) List<String> properties
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Fetching search page for query: ' {} ' after cursor : {}", query, cursor);
+        }
+        try {
+            final var result = execute(session ->
+                queryService.searchPage(session, query, cursor, Math.min(size, MAX_SEARCH_PAGE_SIZE), PropertyProjection.of(properties))
+            );
+            HttpHeaders headers = new HttpHeaders();
+            final var uriBuilder = ServletUriComponentsBuilder.fromCurrentRequest();
+            if (result.hasNext()) {
+                final var next = uriBuilder.replaceQueryParam("cursor", result.nextCursor()).toUriString();
+                headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            headers.add(HttpHeaders.LINK, "<" + uriBuilder.replaceQueryParam("cursor").toUriString() + ">; rel=\"first\"");
+            return new ResponseEntity<>(result.content(), headers, HttpStatus.OK);
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.search");
+        }
+    }
+
+    /**
+     * Structured search : the request is compiled on the server to a JCR-SQL2 query answered by the repository indexes.
+     * Depending on {@code oak.queries.traversal}, a request that no index can answer is refused or only logged.
+     * @param pageable
+     * @param request : path, node type, property predicates, date ranges, full-text term, sort and index tag
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @param count : exact (default), estimate or none : how the total of the X-Total-Count header is obtained
+     * @return
+     */
+    @PostMapping("/search/metadata")
+    public ResponseEntity<?> metadataSearch(
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        @RequestBody JcrSearchRequest request,
+        @RequestParam(value = "properties", required = false) List<String> properties,
+        @RequestParam(value = "count", required = false) String count
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Metadata search for request: {}", request);
+        }
+        try {
+            final var result = execute(session ->
+                queryService.search(session, request, pageable, PropertyProjection.of(properties), countMode(count))
+            );
+            return new ResponseEntity<>(result.getContent(), searchHeaders(result), HttpStatus.OK);
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.search");
+        }
+    }
+
+    /**
+     * Plan of a search as the repository would execute it, without reading any result.
+     * @param searchDto : query : a valid xpath, JCR-SQL2  query , type : query type supported values are : xpath, JCR-SQL2
+     * @return the plan, the index of each selector and the estimated cost
+     */
+    @GetMapping("/search/explain")
+    public ResponseEntity<JcrQueryPlan> explain(@Valid @org.springdoc.core.annotations.ParameterObject SearchDto searchDto) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Explaining query: ' {} ' of type '{}'", searchDto.query(), searchDto.type());
+        }
+        try {
+            return ResponseEntity.ok(execute(session -> queryService.explain(session, searchDto.query(), searchDto.type())));
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.explain");
+        }
+    }
+
+    /**
+     * Plan of a structured search, given even when it would be refused for traversing the repository.
+     * @param request : path, node type, property predicates, date ranges, full-text term, sort and index tag
+     * @return the plan, the index of each selector and the estimated cost
+     */
+    @PostMapping("/search/metadata/explain")
+    public ResponseEntity<JcrQueryPlan> explainMetadataSearch(@RequestBody JcrSearchRequest request) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Explaining metadata search: {}", request);
+        }
+        try {
+            return ResponseEntity.ok(execute(session -> queryService.explain(session, request)));
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.explain");
+        }
+    }
+
+    /**
+     * Streaming search : results are written as the query yields them, without pagination and without total count.
+     * @param searchDto : query : a valid xpath, JCR-SQL2  query , type : query type supported values are : xpath, JCR-SQL2
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @return
+     */
+    @RequestMapping("/search/stream")
+    public ResponseEntity<StreamingResponseBody> searchStream(
+        @Valid @org.springdoc.core.annotations.ParameterObject SearchDto searchDto,
+        @RequestParam(value = "properties", required = false) List<String> properties
+    ) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Streaming search for query: ' {} ' of type '{}'", searchDto.query(), searchDto.type());
+        }
+        try {
+            final var session = acquireSession();
+            final JcrNodeStream nodes;
+            try {
+                // execute the query before the response is committed so that an invalid query is still reported as an error
+                nodes = queryService.streamSearch(session, searchDto.query(), searchDto.type(), null, PropertyProjection.of(properties));
+            } catch (RepositoryException | RuntimeException e) {
+                releaseSession(session);
+                throw e;
+            }
+            return stream(session, nodes::forEach);
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.search");
         }
@@ -191,26 +514,31 @@ public class ExplorerResource {
      * Full text search
      * @param pageable
      * @param query : jsut a text not an actual full text search query
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @param count : exact (default), estimate or none : how the total of the X-Total-Count header is obtained
      * @return
      */
     @RequestMapping("/full-text-search")
     public ResponseEntity<?> fullTextSearch(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
-        @RequestParam("query") @NotBlank(message = "query must not be blank!") String query
+        @RequestParam("query") @NotBlank(message = "query must not be blank!") String query,
+        @RequestParam(value = "properties", required = false) List<String> properties,
+        @RequestParam(value = "count", required = false) String count
     ) {
         if (LOG.isDebugEnabled()) {
             LOG.info("Fetching full text search for query: {}", query);
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = explorerReadService.fullTextSearch(
-                session,
-                ExplorerUtils.transformTofullTextSearchNonExclusiveQuery(query),
-                pageable
+            final var result = execute(session ->
+                explorerReadService.fullTextSearch(
+                    session,
+                    query,
+                    pageable,
+                    PropertyProjection.of(properties),
+                    countMode(count)
+                )
             );
-            SessionUtils.ungetSession(session);
-            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), result);
-            return new ResponseEntity<>(result.getContent(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(result.getContent(), searchHeaders(result), HttpStatus.OK);
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.fullTextSearch");
         }
@@ -221,27 +549,33 @@ public class ExplorerResource {
      * @param pageable
      * @param query : the query here is just a text not an actual xpath query
      * @param targetPath
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @param count : exact (default), estimate or none : how the total of the X-Total-Count header is obtained
      * @return
      */
     @RequestMapping("/x-path-search")
     public ResponseEntity<?> xpathSearch(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
         @RequestParam("query") @NotBlank(message = "query must not be blank!") String query,
-        @RequestParam("targetPath") @NotBlank(message = "target  path must not be blank!") String targetPath
+        @RequestParam("targetPath") @NotBlank(message = "target  path must not be blank!") String targetPath,
+        @RequestParam(value = "properties", required = false) List<String> properties,
+        @RequestParam(value = "count", required = false) String count
     ) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Fetching xpath search for query: {}", query);
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = explorerReadService.xpathSearch(
-                session,
-                ExplorerUtils.transformToXPathSearchNonExclusiveQuery(query, targetPath),
-                pageable
+            final var result = execute(session ->
+                explorerReadService.xpathSearch(
+                    session,
+                    query,
+                    targetPath,
+                    pageable,
+                    PropertyProjection.of(properties),
+                    countMode(count)
+                )
             );
-            SessionUtils.ungetSession(session);
-            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), result);
-            return new ResponseEntity<>(result.getContent(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(result.getContent(), searchHeaders(result), HttpStatus.OK);
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.xpathSearch");
         }
@@ -252,29 +586,163 @@ public class ExplorerResource {
      * @param pageable
      * @param query : just a text not an actual sql query
      * @param targetPath
+     * @param properties : names of the properties to return, all when missing, none when empty
+     * @param count : exact (default), estimate or none : how the total of the X-Total-Count header is obtained
      * @return
      */
     @RequestMapping("/sql-search")
     public ResponseEntity<?> sqlSearch(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
         @RequestParam("query") @NotBlank(message = "query must not be blank!") String query,
-        @RequestParam("targetPath") @NotBlank(message = "target  path must not be blank!") String targetPath
+        @RequestParam("targetPath") @NotBlank(message = "target  path must not be blank!") String targetPath,
+        @RequestParam(value = "properties", required = false) List<String> properties,
+        @RequestParam(value = "count", required = false) String count
     ) {
         if (LOG.isDebugEnabled()) {
             LOG.debug("Fetching sql search for query: {} under path : {}", query, targetPath);
         }
         try {
-            Session session = SessionUtils.getSessionForExplorer(repository, oakProperties);
-            final var result = explorerReadService.sqlSearch(
-                session,
-                ExplorerUtils.transformSqlSearchNonExclusiveQuery(query, targetPath),
-                pageable
+            final var result = execute(session ->
+                explorerReadService.sqlSearch(
+                    session,
+                    query,
+                    targetPath,
+                    pageable,
+                    PropertyProjection.of(properties),
+                    countMode(count)
+                )
             );
-            SessionUtils.ungetSession(session);
-            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), result);
-            return new ResponseEntity<>(result.getContent(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(result.getContent(), searchHeaders(result), HttpStatus.OK);
         } catch (RepositoryException e) {
             throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.fetch.xpathSearch");
         }
     }
+
+    /**
+     * Applying a batch of write operations in one save : either all of them are saved, or none
+     * @param operations : operations applied in order
+     * @return the outcome of each operation, with 422 when the batch was not saved
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<JcrBatchResult> batch(@RequestBody List<JcrWriteOperation> operations) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Applying batch of {} operations", operations.size());
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new BadRequestAlertException(
+                "A batch holds at most " + MAX_BATCH_OPERATIONS + " operations",
+                "explorer",
+                "explorer.error.batch.tooLarge"
+            );
+        }
+        try {
+            final var result = execute(session -> explorerWriteService.applyBatch(session, operations));
+            return result.committed() ? ResponseEntity.ok(result) : ResponseEntity.unprocessableEntity().body(result);
+        } catch (RepositoryException e) {
+            throw new BadRequestAlertException(e.getMessage(), "explorer", "explorer.error.failed.batch");
+        }
+    }
+
+    /**
+     * Run the callback in a session of the current user when per-user sessions are enabled, in a pooled admin session otherwise.
+     */
+    private <T> T execute(JcrSessionCallback<T> callback) throws RepositoryException {
+        return sessionProvider.execute(SecurityUtils.getCurrentUserLogin().orElse(null), callback);
+    }
+
+    private static CountMode countMode(String count) {
+        try {
+            return CountMode.of(count);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("count supported values are : exact, estimate, none", "explorer", "explorer.error.count");
+        }
+    }
+
+    /**
+     * Pagination headers of a search : the total and whether it is exact, or only the neighbouring pages when not counted
+     */
+    private static HttpHeaders searchHeaders(SearchPage<?> page) {
+        final var uriBuilder = ServletUriComponentsBuilder.fromCurrentRequest();
+        if (page.getCountMode() != CountMode.NONE) {
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(uriBuilder, page);
+            headers.add(TOTAL_COUNT_EXACT_HEADER, String.valueOf(page.isTotalExact()));
+            return headers;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (page.hasNext()) {
+            final var next = uriBuilder.replaceQueryParam("page", page.getNumber() + 1).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        if (page.hasPrevious()) {
+            final var prev = uriBuilder.replaceQueryParam("page", page.getNumber() - 1).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + prev + ">; rel=\"prev\"");
+        }
+        headers.add(HttpHeaders.LINK, "<" + uriBuilder.replaceQueryParam("page", 0).toUriString() + ">; rel=\"first\"");
+        return headers;
+    }
+
+    private Session acquireSession() throws RepositoryException {
+        return sessionProvider.acquire(SecurityUtils.getCurrentUserLogin().orElse(null));
+    }
+
+    /**
+     * Answer with 304 when the client already holds the current version of the node type catalog, otherwise with the
+     * body, both read with one session
+     */
+    private ResponseEntity<?> withCatalogETag(String ifNoneMatch, JcrSessionCallback<?> body) throws RepositoryException {
+        return execute(session -> {
+            final var eTag = "\"" + explorerReadService.getNodeTypeCatalog(session).version() + "\"";
+            if (ifNoneMatch != null && (ifNoneMatch.contains(eTag) || ifNoneMatch.trim().equals("*"))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache()).build();
+            }
+            return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).body(body.doInSession(session));
+        });
+    }
+
+    private void releaseSession(Session session) {
+        sessionProvider.release(session);
+    }
+
+    /**
+     * Write the nodes produced by the source as a JSON array while they are read. The session is released once the
+     * response is complete, or has failed, or when the asynchronous request ends without the body having been started.
+     */
+    private ResponseEntity<StreamingResponseBody> stream(Session session, NodeStreamSource source) {
+        // NOT_STARTED, then STARTED by the body or RELEASED by the end of the request, whichever comes first
+        AtomicInteger state = new AtomicInteger(NOT_STARTED);
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(
+            state,
+            new CallableProcessingInterceptor() {
+                @Override
+                public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                    if (state.compareAndSet(NOT_STARTED, RELEASED)) {
+                        releaseSession(session);
+                    }
+                }
+            }
+        );
+        StreamingResponseBody body = outputStream -> {
+            if (!state.compareAndSet(NOT_STARTED, STARTED)) {
+                throw new IOException("Request ended before its response was written");
+            }
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                source.write(node -> nodeWriter.writeValue(generator, node));
+                generator.writeEndArray();
+            } catch (RepositoryException e) {
+                LOG.error("Failed streaming explorer nodes", e);
+                throw new IOException(e.getMessage(), e);
+            } finally {
+                releaseSession(session);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @FunctionalInterface
+    private interface NodeStreamSource {
+        void write(JcrNodeConsumer consumer) throws RepositoryException, IOException;
+    }
 }
@@ -0,0 +1,8 @@
+package io.nextdms.dms.bulk;
+
+/**
+ * One node handled by a bulk job.
+ * @param sourcePath path of the node, in the trash for a deletion
+ * @param destinationPath path of the node under which it is moved or copied, or where it was for a deletion
+ */
+public record BulkItem(String sourcePath, String destinationPath) {}
@@ -0,0 +1,55 @@
+package io.nextdms.dms.bulk;
+
+import java.util.List;
+
+/**
+ * State of a bulk job, saved after every chunk of items.
+ * @param processed number of items handled so far, failed ones included; the job resumes from there
+ * @param failed number of items that could not be handled
+ * @param nodes number of nodes copied or deleted so far
+ * @param errors messages of the first failures
+ * @param lastModified time of the last change, in milliseconds
+ */
+public record BulkJob(
+    String id,
+    String owner,
+    Operation operation,
+    Status status,
+    int total,
+    int processed,
+    int failed,
+    long nodes,
+    List<String> errors,
+    long created,
+    long lastModified
+) {
+    public enum Operation {
+        MOVE,
+        COPY,
+        DELETE,
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        FAILED,
+    }
+
+    public boolean hasFinished() {
+        return status == Status.COMPLETED || status == Status.CANCELLED || status == Status.FAILED;
+    }
+
+    public BulkJob withStatus(Status status, long lastModified) {
+        return new BulkJob(id, owner, operation, status, total, processed, failed, nodes, errors, created, lastModified);
+    }
+
+    public BulkJob withProgress(int processed, int failed, List<String> errors, long lastModified) {
+        return new BulkJob(id, owner, operation, status, total, processed, failed, nodes, errors, created, lastModified);
+    }
+
+    public BulkJob withNodes(long nodes) {
+        return new BulkJob(id, owner, operation, status, total, processed, failed, nodes, errors, created, lastModified);
+    }
+}
@@ -0,0 +1,13 @@
+package io.nextdms.dms.bulk;
+
+import java.io.IOException;
+import java.util.List;
+import javax.jcr.RepositoryException;
+
+public interface IBulkJobService {
+    BulkJob submit(String owner, BulkJob.Operation operation, List<BulkItem> items) throws RepositoryException, IOException;
+    BulkJob submitDelete(String owner, List<String> paths) throws RepositoryException, IOException;
+    BulkJob get(String owner, String id) throws RepositoryException;
+    List<BulkJob> list(String owner);
+    BulkJob cancel(String owner, String id) throws RepositoryException;
+}
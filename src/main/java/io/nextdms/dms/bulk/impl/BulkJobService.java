@@ -0,0 +1,664 @@
+package io.nextdms.dms.bulk.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nextdms.dms.bulk.BulkItem;
+import io.nextdms.dms.bulk.BulkJob;
+import io.nextdms.dms.bulk.IBulkJobService;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.ExplorerUtils;
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import io.nextdms.dms.session.JcrSessionProvider;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.ReferentialIntegrityException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.jackrabbit.util.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Runs bulk moves, copies and deletions in the background on a bounded pool of threads.
+ * <p>
+ * Items are applied in chunks, each in a session of its own that is saved once per chunk, so that the transient space
+ * stays small and no request thread is held. The items of a job are written once on local disk and its progress after
+ * every chunk; jobs left unfinished by a previous run are resumed at startup from the last saved chunk. Items of that
+ * chunk which were already applied are recognised by their target and counted as done.
+ * <p>
+ * A copy is a deep copy of each subtree by {@link SubtreeCopier}, in bounded commits and with the subtrees of the
+ * children copied in parallel. A copy interrupted by a restart is not resumed, its partial target is reported.
+ * <p>
+ * A job is cancelled between two items, the items already saved stay applied.
+ * <p>
+ * A deletion first moves the nodes into a trash folder of the job, in one save, so that they disappear at once. Each
+ * subtree is then removed bottom-up, in batches of at most a chunk of nodes. Deletions cannot be cancelled. Nodes still
+ * referenced from outside of the deleted subtrees are refused before anything is moved, the references between the
+ * deleted nodes being dropped. A subtree whose removal fails is moved back where it was.
+ * <p>
+ * Jobs pause between two saves so that they leave room to the requests served in the foreground.
+ */
+@Service
+public class BulkJobService implements IBulkJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkJobService.class);
+
+    private static final String STATE_SUFFIX = ".json";
+    private static final String ITEMS_SUFFIX = ".items.json";
+    private static final int MAX_ERRORS = 100;
+
+    /**
+     * Folder holding the nodes detached by the deletion jobs until they are removed. Deletions run under the session of
+     * their owner: with per-user sessions, the users allowed to delete in bulk need {@code jcr:addChildNodes} on
+     * {@code /system} for the folder to be created, and {@code rep:write} on the folder itself. Read access to the
+     * folder should be granted to no one else, the detached nodes staying readable there until they are removed.
+     */
+    public static final String TRASH_PATH = "/system/trash";
+
+    private final OakProperties.BulkJobs properties;
+    private final ObjectMapper objectMapper;
+    private final JcrSessionProvider sessionProvider;
+    private final NodeCacheInvalidator nodeCacheInvalidator;
+    private final Path directory;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService copyExecutor;
+    private final SubtreeCopier copier;
+    private final Map<String, RunningJob> jobs = new ConcurrentHashMap<>();
+
+    public BulkJobService(
+        OakProperties oakProperties,
+        ObjectMapper objectMapper,
+        JcrSessionProvider sessionProvider,
+        NodeCacheInvalidator nodeCacheInvalidator
+    ) {
+        this.properties = oakProperties.getBulkJobs();
+        this.objectMapper = objectMapper;
+        this.sessionProvider = sessionProvider;
+        this.nodeCacheInvalidator = nodeCacheInvalidator;
+        this.directory = Path.of(properties.getDirectory());
+        this.executor = new ThreadPoolExecutor(
+            properties.getThreads(),
+            properties.getThreads(),
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+            threadFactory("bulk-job-")
+        );
+        this.copyExecutor = Executors.newFixedThreadPool(properties.getCopyParallelism(), threadFactory("bulk-copy-"));
+        this.copier = new SubtreeCopier(sessionProvider, nodeCacheInvalidator, copyExecutor, properties.getChunkSize());
+    }
+
+    /**
+     * Reload the jobs of a previous run, and resume those left unfinished.
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<RunningJob> unfinished = new ArrayList<>();
+        try (DirectoryStream<Path> states = Files.newDirectoryStream(directory, "*" + STATE_SUFFIX)) {
+            for (Path statePath : states) {
+                if (statePath.getFileName().toString().endsWith(ITEMS_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    BulkJob job = objectMapper.readValue(statePath.toFile(), BulkJob.class);
+                    List<BulkItem> items = job.hasFinished() ? List.of() : readItems(job.id());
+                    RunningJob running = new RunningJob(job, items);
+                    running.resumed = true;
+                    jobs.put(job.id(), running);
+                    if (!job.hasFinished()) {
+                        unfinished.add(running);
+                    }
+                } catch (IOException e) {
+                    LOG.warn("Discarding unreadable bulk job {}: {}", statePath, e.getMessage());
+                    Files.deleteIfExists(statePath);
+                }
+            }
+        }
+        unfinished.sort(Comparator.comparingLong(running -> running.job.created()));
+        for (RunningJob running : unfinished) {
+            try {
+                executor.execute(() -> run(running));
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Bulk job {} not resumed, the queue is full", running.job.id());
+            }
+        }
+        LOG.info("Resumed {} unfinished bulk jobs", unfinished.size());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        copyExecutor.shutdownNow();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public BulkJob submit(String owner, BulkJob.Operation operation, List<BulkItem> items) throws RepositoryException, IOException {
+        if (operation == null || operation == BulkJob.Operation.DELETE || items == null || items.isEmpty()) {
+            throw new RepositoryException("No nodes specified for the bulk job");
+        }
+        BulkJob job = newJob(UUID.randomUUID().toString(), owner, operation, items);
+        return start(job, items);
+    }
+
+    /**
+     * Detach the nodes into the trash at once, then remove them in the background.
+     */
+    @Override
+    public BulkJob submitDelete(String owner, List<String> paths) throws RepositoryException, IOException {
+        if (paths == null || paths.isEmpty()) {
+            throw new RepositoryException("No nodes specified for the bulk job");
+        }
+        String id = UUID.randomUUID().toString();
+        String trashFolder = TRASH_PATH + "/" + id;
+        List<BulkItem> items = new ArrayList<>(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            if (!StringUtils.hasText(path) || path.equals("/") || path.equals(TRASH_PATH) || path.startsWith(TRASH_PATH + "/")) {
+                throw new RepositoryException("Node cannot be deleted: " + path);
+            }
+            items.add(new BulkItem(trashFolder + "/" + i, path));
+        }
+        // saved before the move, so that detached nodes are never left behind without a job removing them
+        BulkJob job = newJob(id, owner, BulkJob.Operation.DELETE, items);
+        try {
+            sessionProvider.execute(owner, session -> {
+                detach(session, trashFolder, items);
+                return null;
+            });
+        } catch (RepositoryException e) {
+            discard(id);
+            throw e;
+        }
+        return start(job, items);
+    }
+
+    @Override
+    public BulkJob get(String owner, String id) throws RepositoryException {
+        return find(owner, id).snapshot();
+    }
+
+    @Override
+    public List<BulkJob> list(String owner) {
+        return jobs
+            .values()
+            .stream()
+            .map(RunningJob::snapshot)
+            .filter(job -> Objects.equals(job.owner(), owner))
+            .sorted(Comparator.comparingLong(BulkJob::created).reversed())
+            .toList();
+    }
+
+    @Override
+    public BulkJob cancel(String owner, String id) throws RepositoryException {
+        RunningJob running = find(owner, id);
+        if (running.job.operation() == BulkJob.Operation.DELETE && !running.job.hasFinished()) {
+            throw new RepositoryException("A deletion cannot be cancelled, its nodes are already detached");
+        }
+        running.cancelled = true;
+        synchronized (running) {
+            if (running.job.status() == BulkJob.Status.QUEUED) {
+                // not started yet, the thread picking it up ends it at once
+                update(running, running.job.withStatus(BulkJob.Status.CANCELLED, System.currentTimeMillis()));
+            }
+        }
+        return running.job;
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    public void removeExpiredJobs() {
+        long expiredBefore = System.currentTimeMillis() - properties.getExpireAfterMillis();
+        for (RunningJob running : jobs.values()) {
+            if (running.job.hasFinished() && running.job.lastModified() < expiredBefore) {
+                try {
+                    LOG.debug("Removing expired bulk job {}", running.job.id());
+                    discard(running.job.id());
+                } catch (IOException e) {
+                    LOG.warn("Failed to remove expired bulk job {}: {}", running.job.id(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void run(RunningJob running) {
+        synchronized (running) {
+            if (running.job.hasFinished()) {
+                return;
+            }
+            update(running, running.job.withStatus(BulkJob.Status.RUNNING, System.currentTimeMillis()));
+        }
+        BulkJob job = running.job;
+        List<String> errors = new ArrayList<>(job.errors());
+        int processed = job.processed();
+        int failed = job.failed();
+        try {
+            while (processed < running.items.size()) {
+                if (running.cancelled) {
+                    update(running, running.job.withStatus(BulkJob.Status.CANCELLED, System.currentTimeMillis()));
+                    return;
+                }
+                if (executor.isShutdown()) {
+                    // left running, it is resumed at the next startup
+                    return;
+                }
+                List<String> chunkErrors;
+                if (job.operation() == BulkJob.Operation.DELETE) {
+                    chunkErrors = new ArrayList<>();
+                    if (!deleteSubtree(job.owner(), running.items.get(processed), running, chunkErrors)) {
+                        return;
+                    }
+                    processed++;
+                } else if (job.operation() == BulkJob.Operation.COPY) {
+                    chunkErrors = new ArrayList<>();
+                    copySubtree(job.owner(), running.items.get(processed), running, chunkErrors);
+                    running.resumed = false;
+                    processed++;
+                } else {
+                    int end = Math.min(processed + properties.getChunkSize(), running.items.size());
+                    List<BulkItem> chunk = running.items.subList(processed, end);
+                    boolean resumed = running.resumed;
+                    chunkErrors = sessionProvider.execute(job.owner(), session -> applyChunk(session, chunk, resumed, running));
+                    running.resumed = false;
+                    processed += chunk.size();
+                }
+                failed += chunkErrors.size();
+                for (String error : chunkErrors) {
+                    if (errors.size() < MAX_ERRORS) {
+                        errors.add(error);
+                    }
+                }
+                update(running, running.job.withProgress(processed, failed, List.copyOf(errors), System.currentTimeMillis()));
+                if (!pause()) {
+                    return;
+                }
+            }
+            if (job.operation() == BulkJob.Operation.DELETE) {
+                removeTrashFolder(job);
+            }
+            update(running, running.job.withStatus(BulkJob.Status.COMPLETED, System.currentTimeMillis()));
+            LOG.info("Bulk job {} completed: {} items, {} failed", job.id(), processed, failed);
+        } catch (RepositoryException | RuntimeException e) {
+            LOG.error("Bulk job {} failed", job.id(), e);
+            errors.add(e.getMessage());
+            long now = System.currentTimeMillis();
+            update(running, running.job.withProgress(processed, failed, List.copyOf(errors), now).withStatus(BulkJob.Status.FAILED, now));
+        }
+    }
+
+    /**
+     * Remove the subtree bottom-up, saving after every batch of at most a chunk of nodes.
+     * @return whether the subtree is gone, or could not be removed; false when the service stops in between
+     */
+    private boolean deleteSubtree(String owner, BulkItem item, RunningJob running, List<String> errors) {
+        int chunkSize = properties.getChunkSize();
+        try {
+            while (true) {
+                boolean removed = sessionProvider.execute(owner, session -> {
+                    if (!session.nodeExists(item.sourcePath())) {
+                        return true;
+                    }
+                    List<Node> batch = new ArrayList<>(chunkSize);
+                    boolean complete = collectBottomUp(session.getNode(item.sourcePath()), batch, chunkSize);
+                    for (Node node : batch) {
+                        node.remove();
+                    }
+                    session.save();
+                    nodeCacheInvalidator.invalidateTrees(List.of(item.sourcePath()));
+                    running.nodes.addAndGet(batch.size());
+                    return complete;
+                });
+                if (removed) {
+                    return true;
+                }
+                if (executor.isShutdown() || !pause()) {
+                    return false;
+                }
+            }
+        } catch (RepositoryException | RuntimeException e) {
+            LOG.warn("Failed to delete {}", item.destinationPath(), e);
+            errors.add(item.destinationPath() + ": " + e.getMessage() + restore(owner, item));
+            return true;
+        }
+    }
+
+    /**
+     * Move what remains of a subtree that could not be removed back where it was, unless its place was taken.
+     * @return how the remains were dealt with, for the error message
+     */
+    private String restore(String owner, BulkItem item) {
+        String parentPath = Text.getRelativeParent(item.destinationPath(), 1);
+        try {
+            return sessionProvider.execute(owner, session -> {
+                if (!session.nodeExists(item.sourcePath())) {
+                    return "";
+                }
+                String targetPath = ExplorerUtils.childPath(item.destinationPath(), parentPath);
+                if (!session.nodeExists(parentPath) || session.nodeExists(targetPath)) {
+                    return ", its remains are left in " + item.sourcePath();
+                }
+                session.move(item.sourcePath(), targetPath);
+                session.save();
+                nodeCacheInvalidator.invalidateTrees(List.of(item.sourcePath(), targetPath));
+                return ", its remains are restored to " + targetPath;
+            });
+        } catch (RepositoryException | RuntimeException e) {
+            LOG.warn("Failed to restore {} from {}", item.destinationPath(), item.sourcePath(), e);
+            return ", its remains are left in " + item.sourcePath();
+        }
+    }
+
+    private void copySubtree(String owner, BulkItem item, RunningJob running, List<String> errors) {
+        try {
+            if (!StringUtils.hasText(item.sourcePath()) || !StringUtils.hasText(item.destinationPath())) {
+                throw new RepositoryException("Source or destination missing");
+            }
+            String targetPath = ExplorerUtils.childPath(item.sourcePath(), item.destinationPath());
+            if (running.resumed && sessionProvider.execute(owner, session -> session.nodeExists(targetPath))) {
+                throw new RepositoryException("The copy was interrupted by a restart, a possibly incomplete copy is left at " + targetPath);
+            }
+            copier.copy(owner, item.sourcePath(), targetPath, running.nodes);
+        } catch (RepositoryException | RuntimeException e) {
+            LOG.warn("Failed to copy {}", item.sourcePath(), e);
+            errors.add(item.sourcePath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Collect the nodes of the subtree children first, until the limit is reached.
+     * @return whether the whole subtree was collected
+     */
+    private static boolean collectBottomUp(Node node, List<Node> batch, int limit) throws RepositoryException {
+        NodeIterator children = node.getNodes();
+        while (children.hasNext()) {
+            if (batch.size() >= limit || !collectBottomUp(children.nextNode(), batch, limit)) {
+                return false;
+            }
+        }
+        if (batch.size() >= limit) {
+            return false;
+        }
+        batch.add(node);
+        return true;
+    }
+
+    private void detach(Session session, String trashFolder, List<BulkItem> items) throws RepositoryException {
+        List<String> paths = items.stream().map(BulkItem::destinationPath).toList();
+        for (String path : paths) {
+            checkReferences(session, path, paths);
+        }
+        Node parent = session.getRootNode();
+        for (String name : TRASH_PATH.substring(1).split("/")) {
+            parent = parent.hasNode(name) ? parent.getNode(name) : parent.addNode(name, JcrConstants.NT_UNSTRUCTURED);
+        }
+        parent.addNode(trashFolder.substring(trashFolder.lastIndexOf('/') + 1), JcrConstants.NT_UNSTRUCTURED);
+        for (BulkItem item : items) {
+            session.move(item.destinationPath(), item.sourcePath());
+        }
+        session.save();
+        nodeCacheInvalidator.invalidateTrees(paths);
+    }
+
+    /**
+     * Refuse to delete a subtree holding a node referenced from outside of the deleted subtrees: its removal would be
+     * refused once the subtree is in the trash. The references held by the deleted subtrees are removed, so that the
+     * subtrees can then be removed in any order.
+     */
+    private static void checkReferences(Session session, String path, List<String> deletedPaths) throws RepositoryException {
+        List<Node> referenceables = new ArrayList<>();
+        Node root = session.getNode(path);
+        if (root.isNodeType(JcrConstants.MIX_REFERENCEABLE)) {
+            referenceables.add(root);
+        }
+        String statement =
+            "SELECT * FROM [" +
+            JcrConstants.MIX_REFERENCEABLE +
+            "] AS s WHERE ISDESCENDANTNODE(s, '" +
+            root.getPath().replace("'", "''") +
+            "')";
+        NodeIterator nodes = session.getWorkspace().getQueryManager().createQuery(statement, Query.JCR_SQL2).execute().getNodes();
+        while (nodes.hasNext()) {
+            referenceables.add(nodes.nextNode());
+        }
+        for (Node node : referenceables) {
+            PropertyIterator references = node.getReferences();
+            while (references.hasNext()) {
+                Property reference = references.nextProperty();
+                String referencePath = reference.getPath();
+                if (deletedPaths.stream().noneMatch(deleted -> Text.isDescendantOrEqual(deleted, referencePath))) {
+                    throw new ReferentialIntegrityException(node.getPath() + " is referenced by " + referencePath);
+                }
+                if (session.propertyExists(referencePath)) {
+                    // a multi-valued reference is found once per node it references
+                    reference.remove();
+                }
+            }
+        }
+    }
+
+    private void removeTrashFolder(BulkJob job) throws RepositoryException {
+        sessionProvider.execute(job.owner(), session -> {
+            String trashFolder = TRASH_PATH + "/" + job.id();
+            if (session.nodeExists(trashFolder) && !session.getNode(trashFolder).hasNodes()) {
+                session.removeItem(trashFolder);
+                session.save();
+                nodeCacheInvalidator.invalidateTrees(List.of(trashFolder));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Wait between two saves.
+     * @return false when interrupted, the service is stopping
+     */
+    private boolean pause() {
+        if (properties.getThrottleMillis() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(properties.getThrottleMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Move a chunk of items and save them at once. When the save is refused, the chunk is applied again item by item
+     * so that only the faulty items fail.
+     * @return the error messages of the failed items
+     */
+    private List<String> applyChunk(Session session, List<BulkItem> chunk, boolean resumed, RunningJob running)
+        throws RepositoryException {
+        List<String> errors = new ArrayList<>();
+        List<String> moved = new ArrayList<>();
+        for (BulkItem item : chunk) {
+            apply(session, item, resumed, errors, moved);
+        }
+        try {
+            session.save();
+            nodeCacheInvalidator.invalidateTrees(moved);
+            return errors;
+        } catch (RepositoryException e) {
+            LOG.debug("Bulk chunk not saved, applying its items one by one", e);
+            session.refresh(false);
+        }
+        errors.clear();
+        for (BulkItem item : chunk) {
+            if (running.cancelled) {
+                break;
+            }
+            moved.clear();
+            if (apply(session, item, true, errors, moved)) {
+                try {
+                    session.save();
+                    nodeCacheInvalidator.invalidateTrees(moved);
+                } catch (RepositoryException e) {
+                    session.refresh(false);
+                    errors.add(item.sourcePath() + ": " + e.getMessage());
+                }
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Move one item in the session. When resuming, an item whose source is gone and whose target exists was moved before
+     * the previous run stopped and is skipped.
+     * @param moved receives the source and target paths of a moved item
+     * @return whether the item changed the transient space
+     */
+    private static boolean apply(Session session, BulkItem item, boolean resumed, List<String> errors, List<String> moved) {
+        try {
+            if (!StringUtils.hasText(item.sourcePath()) || !StringUtils.hasText(item.destinationPath())) {
+                throw new RepositoryException("Source or destination missing");
+            }
+            String targetPath = ExplorerUtils.childPath(item.sourcePath(), item.destinationPath());
+            if (resumed && !session.nodeExists(item.sourcePath()) && session.nodeExists(targetPath)) {
+                return false;
+            }
+            session.move(item.sourcePath(), targetPath);
+            moved.add(item.sourcePath());
+            moved.add(targetPath);
+            return true;
+        } catch (RepositoryException | RuntimeException e) {
+            errors.add(item.sourcePath() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private BulkJob newJob(String id, String owner, BulkJob.Operation operation, List<BulkItem> items) throws IOException {
+        long now = System.currentTimeMillis();
+        BulkJob job = new BulkJob(id, owner, operation, BulkJob.Status.QUEUED, items.size(), 0, 0, 0, List.of(), now, now);
+        Files.createDirectories(directory);
+        write(itemsPath(id), items);
+        saveState(job);
+        return job;
+    }
+
+    private BulkJob start(BulkJob job, List<BulkItem> items) throws RepositoryException, IOException {
+        RunningJob running = new RunningJob(job, List.copyOf(items));
+        jobs.put(job.id(), running);
+        try {
+            executor.execute(() -> run(running));
+        } catch (RejectedExecutionException e) {
+            if (job.operation() == BulkJob.Operation.DELETE) {
+                // the nodes are already detached, the job is resumed at the next startup
+                throw new RepositoryException("Too many bulk jobs are waiting, the deletion resumes at the next startup");
+            }
+            discard(job.id());
+            throw new RepositoryException("Too many bulk jobs are waiting, retry later");
+        }
+        return job;
+    }
+
+    private void update(RunningJob running, BulkJob job) {
+        job = job.withNodes(running.nodes.get());
+        running.job = job;
+        try {
+            saveState(job);
+        } catch (IOException e) {
+            LOG.warn("Failed to save the state of bulk job {}: {}", job.id(), e.getMessage());
+        }
+    }
+
+    private RunningJob find(String owner, String id) throws RepositoryException {
+        RunningJob running = id == null ? null : jobs.get(id);
+        if (running == null || !Objects.equals(running.job.owner(), owner)) {
+            throw new PathNotFoundException("No bulk job " + id);
+        }
+        return running;
+    }
+
+    private void discard(String id) throws IOException {
+        jobs.remove(id);
+        Files.deleteIfExists(statePath(id));
+        Files.deleteIfExists(itemsPath(id));
+    }
+
+    private List<BulkItem> readItems(String id) throws IOException {
+        return objectMapper.readValue(itemsPath(id).toFile(), new TypeReference<List<BulkItem>>() {});
+    }
+
+    private void saveState(BulkJob job) throws IOException {
+        write(statePath(job.id()), job);
+    }
+
+    private void write(Path path, Object value) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        objectMapper.writeValue(temporary.toFile(), value);
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path statePath(String id) {
+        return directory.resolve(id + STATE_SUFFIX);
+    }
+
+    private Path itemsPath(String id) {
+        return directory.resolve(id + ITEMS_SUFFIX);
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class RunningJob {
+
+        private volatile BulkJob job;
+        private final List<BulkItem> items;
+        private volatile boolean cancelled;
+        private volatile boolean resumed;
+        private final AtomicLong nodes;
+
+        private RunningJob(BulkJob job, List<BulkItem> items) {
+            this.job = job;
+            this.items = items;
+            this.nodes = new AtomicLong(job.nodes());
+        }
+
+        /**
+         * The job, with the number of nodes handled counted up to now
+         */
+        private BulkJob snapshot() {
+            return job.withNodes(nodes.get());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package io.nextdms.dms.bulk.impl;
+
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import io.nextdms.dms.session.JcrSessionProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.nodetype.ConstraintViolationException;
+import javax.jcr.nodetype.NodeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deep copy of a subtree in bounded commits, as a replacement of {@code Workspace.copy} which copies everything in one
+ * commit.
+ * <p>
+ * The root of the copy is created first, then the subtrees of its children are copied in parallel, each in a session
+ * of its own saved every chunk of nodes. Binary values are set from the source values, so that the copy references the
+ * stored blobs instead of streaming their content again. Protected properties are left to the repository, the copies
+ * of referenceable nodes get new identifiers; references are copied as they are and still point to the source nodes.
+ * The children of a node with same-name siblings cannot be addressed by name from other sessions, they are copied in
+ * the session of their parent.
+ * <p>
+ * Unlike {@code Workspace.copy}, a copy is not atomic: when it fails after a first save, the partial copy is left at
+ * the target and its path is reported with the failure.
+ */
+class SubtreeCopier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubtreeCopier.class);
+
+    private final JcrSessionProvider sessionProvider;
+    private final NodeCacheInvalidator nodeCacheInvalidator;
+    private final ExecutorService executor;
+    private final int chunkSize;
+
+    SubtreeCopier(JcrSessionProvider sessionProvider, NodeCacheInvalidator nodeCacheInvalidator, ExecutorService executor, int chunkSize) {
+        this.sessionProvider = sessionProvider;
+        this.nodeCacheInvalidator = nodeCacheInvalidator;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Copy the node at the source path to the target path, counting the nodes created. When the copy fails once part of
+     * it was saved, the partial copy is left behind and its path is given in the message of the exception.
+     */
+    void copy(String owner, String sourcePath, String targetPath, AtomicLong copied) throws RepositoryException {
+        AtomicBoolean saved = new AtomicBoolean();
+        try {
+            copy(owner, sourcePath, targetPath, copied, saved);
+        } catch (RepositoryException | RuntimeException e) {
+            if (!saved.get() || !sessionProvider.execute(owner, session -> session.nodeExists(targetPath))) {
+                throw e;
+            }
+            throw new RepositoryException(e.getMessage() + ", a partial copy is left at " + targetPath, e);
+        }
+    }
+
+    private void copy(String owner, String sourcePath, String targetPath, AtomicLong copied, AtomicBoolean saved)
+        throws RepositoryException {
+        String parentPath = targetPath.lastIndexOf('/') == 0 ? "/" : targetPath.substring(0, targetPath.lastIndexOf('/'));
+        String name = targetPath.substring(targetPath.lastIndexOf('/') + 1);
+        List<String> children = sessionProvider.execute(owner, session -> {
+            Node source = session.getNode(sourcePath);
+            Node target = copyNode(source, session.getNode(parentPath), name);
+            copied.incrementAndGet();
+            try {
+                session.save();
+                saved.set(true);
+                nodeCacheInvalidator.invalidateTrees(List.of(targetPath));
+            } catch (ConstraintViolationException e) {
+                // the node cannot be saved without its mandatory children, the subtree is copied in this session
+                session.refresh(false);
+                copied.decrementAndGet();
+                saved.set(true);
+                copyTree(session, source, session.getNode(parentPath), name, targetPath, copied, new int[1]);
+                session.save();
+                nodeCacheInvalidator.invalidateTrees(List.of(targetPath));
+                return List.of();
+            }
+            List<String> names = new ArrayList<>();
+            for (NodeIterator nodes = source.getNodes(); nodes.hasNext();) {
+                names.add(nodes.nextNode().getName());
+            }
+            if (Set.copyOf(names).size() < names.size()) {
+                // same-name siblings cannot be told apart by name from other sessions, the children are copied in this one
+                copyChildren(session, source, target, targetPath, copied, new int[1]);
+                session.save();
+                nodeCacheInvalidator.invalidateTrees(List.of(targetPath));
+                return List.of();
+            }
+            return names;
+        });
+        if (children.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Void>> copies = new ArrayList<>(children.size());
+        for (String child : children) {
+            copies.add(CompletableFuture.runAsync(() -> copyChild(owner, sourcePath + "/" + child, targetPath, child, copied), executor));
+        }
+        try {
+            CompletableFuture.allOf(copies.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RepositoryException repositoryException) {
+                throw repositoryException;
+            }
+            throw new RepositoryException("Copy of " + sourcePath + " failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        // children added concurrently may have been merged in any order
+        sessionProvider.execute(owner, session -> {
+            Node target = session.getNode(targetPath);
+            if (target.getPrimaryNodeType().hasOrderableChildNodes()) {
+                for (String child : children) {
+                    target.orderBefore(child, null);
+                }
+                session.save();
+                nodeCacheInvalidator.invalidateNodes(List.of(targetPath));
+            }
+            return null;
+        });
+    }
+
+    private void copyChild(String owner, String sourcePath, String targetParentPath, String name, AtomicLong copied) {
+        try {
+            String targetPath = targetParentPath + "/" + name;
+            sessionProvider.execute(owner, session -> {
+                copyTree(session, session.getNode(sourcePath), session.getNode(targetParentPath), name, targetPath, copied, new int[1]);
+                session.save();
+                nodeCacheInvalidator.invalidateTrees(List.of(targetPath));
+                return null;
+            });
+        } catch (RepositoryException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Copy the subtree depth first. Once a child subtree is complete and a chunk of nodes is pending, the session is
+     * saved; the save is put off while it is refused because a node still misses its mandatory children.
+     * @param rootPath path of the root of the copied subtree, evicted from the caches after every save
+     */
+    private void copyTree(Session session, Node source, Node targetParent, String name, String rootPath, AtomicLong copied, int[] pending)
+        throws RepositoryException {
+        Node target = copyNode(source, targetParent, name);
+        copied.incrementAndGet();
+        pending[0]++;
+        copyChildren(session, source, target, rootPath, copied, pending);
+    }
+
+    private void copyChildren(Session session, Node source, Node target, String rootPath, AtomicLong copied, int[] pending)
+        throws RepositoryException {
+        for (NodeIterator nodes = source.getNodes(); nodes.hasNext();) {
+            Node child = nodes.nextNode();
+            copyTree(session, child, target, child.getName(), rootPath, copied, pending);
+            if (pending[0] >= chunkSize) {
+                try {
+                    session.save();
+                    nodeCacheInvalidator.invalidateTrees(List.of(rootPath));
+                    pending[0] = 0;
+                } catch (ConstraintViolationException e) {
+                    LOG.trace("Save put off: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static Node copyNode(Node source, Node targetParent, String name) throws RepositoryException {
+        Node target = targetParent.addNode(name, source.getPrimaryNodeType().getName());
+        for (NodeType mixin : source.getMixinNodeTypes()) {
+            target.addMixin(mixin.getName());
+        }
+        for (PropertyIterator properties = source.getProperties(); properties.hasNext();) {
+            Property property = properties.nextProperty();
+            if (property.getDefinition().isProtected()) {
+                continue;
+            }
+            if (property.isMultiple()) {
+                target.setProperty(property.getName(), property.getValues(), property.getType());
+            } else {
+                target.setProperty(property.getName(), property.getValue());
+            }
+        }
+        return target;
+    }
+}
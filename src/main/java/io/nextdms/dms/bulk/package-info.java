@@ -0,0 +1,4 @@
+/**
+ * Long running operations on many nodes, executed in the background with their progress saved as they go.
+ */
+package io.nextdms.dms.bulk;
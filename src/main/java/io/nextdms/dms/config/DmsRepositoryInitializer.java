@@ -0,0 +1,76 @@
+package io.nextdms.dms.config;
+
+import static org.apache.jackrabbit.oak.plugins.memory.ModifiedNodeState.squeeze;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import org.apache.jackrabbit.oak.api.Root;
+import org.apache.jackrabbit.oak.core.SystemRoot;
+import org.apache.jackrabbit.oak.plugins.index.IndexUtils;
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.plugins.nodetype.write.NodeTypeRegistry;
+import org.apache.jackrabbit.oak.spi.commit.EmptyHook;
+import org.apache.jackrabbit.oak.spi.lifecycle.RepositoryInitializer;
+import org.apache.jackrabbit.oak.spi.query.CompositeQueryIndexProvider;
+import org.apache.jackrabbit.oak.spi.security.OpenSecurityProvider;
+import org.apache.jackrabbit.oak.spi.state.ApplyDiff;
+import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Registers the DMS namespace, node types and indexes. Unlike the initial content, it runs against existing
+ * repositories too, so that what it adds is installed on upgrade.
+ */
+public class DmsRepositoryInitializer implements RepositoryInitializer {
+
+    public static final String DMS_NAMESPACE = "http://nextdms.io/dms/1.0";
+
+    /**
+     * Mixin of the nodes holding a binary whose SHA-256 is recorded.
+     */
+    public static final String MIX_HASHED = "dms:hashed";
+
+    public static final String DMS_SHA256 = "dms:sha256";
+
+    /**
+     * Content identity of the binary whose SHA-256 is recorded, to tell when the binary was replaced since.
+     */
+    public static final String DMS_CONTENT_IDENTITY = "dms:contentIdentity";
+
+    public static final String SHA256_INDEX = "dmsSha256";
+
+    @Override
+    public void initialize(@NotNull NodeBuilder builder) {
+        NodeState base = squeeze(builder.getNodeState());
+        NodeStore store = new MemoryNodeStore(base);
+        registerNodeTypes(
+            SystemRoot.create(store, EmptyHook.INSTANCE, "default", new OpenSecurityProvider(), new CompositeQueryIndexProvider())
+        );
+        NodeState target = store.getRoot();
+        target.compareAgainstBaseState(base, new ApplyDiff(builder));
+
+        NodeBuilder index = IndexUtils.getOrCreateOakIndex(builder);
+        if (!index.hasChildNode(SHA256_INDEX)) {
+            NodeBuilder sha256 = IndexUtils.createIndexDefinition(
+                index,
+                SHA256_INDEX,
+                true,
+                false,
+                List.of(DMS_SHA256),
+                List.of(MIX_HASHED)
+            );
+            sha256.setProperty("info", "Oak index used to find an existing binary by the SHA-256 of its content.");
+        }
+    }
+
+    private static void registerNodeTypes(Root root) {
+        try (InputStream stream = DmsRepositoryInitializer.class.getResourceAsStream("dms_nodetypes.cnd")) {
+            NodeTypeRegistry.register(root, stream, "dms node types");
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read dms node types", e);
+        }
+    }
+}
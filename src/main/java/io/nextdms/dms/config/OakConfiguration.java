@@ -54,6 +54,7 @@ public class OakConfiguration {
         try {
             return new Jcr(new Oak(nodeStore(dataSource)).withAsyncIndexing("async", 5), false)
                 .with(new OakRepositoryInitializer())
+                .with(new DmsRepositoryInitializer())
                 .with(SecurityProviderBuilder.newBuilder().build())
                 .with(new LuceneIndexEditorProvider())
                 .with(new ReferenceIndexProvider())
@@ -1,5 +1,6 @@
 package io.nextdms.dms.config;
 
+import io.nextdms.dms.explorer.query.SearchRequestCompiler;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(prefix = "oak", ignoreUnknownFields = false)
@@ -7,10 +8,52 @@ public class OakProperties {
 
     private final Admin admin = new Admin();
 
+    private final SessionPool sessionPool = new SessionPool();
+
+    private final UserSessions userSessions = new UserSessions();
+
+    private final Cache cache = new Cache();
+
+    private final Uploads uploads = new Uploads();
+
+    private final BulkJobs bulkJobs = new BulkJobs();
+
+    private final Imports imports = new Imports();
+
+    private final Queries queries = new Queries();
+
     public Admin getAdmin() {
         return admin;
     }
 
+    public SessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    public UserSessions getUserSessions() {
+        return userSessions;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Uploads getUploads() {
+        return uploads;
+    }
+
+    public BulkJobs getBulkJobs() {
+        return bulkJobs;
+    }
+
+    public Imports getImports() {
+        return imports;
+    }
+
+    public Queries getQueries() {
+        return queries;
+    }
+
     public static class Admin {
 
         private String username = "admin";
@@ -32,4 +75,429 @@ public class OakProperties {
             this.password = password;
         }
     }
+
+    public static class SessionPool {
+
+        /**
+         * Maximum number of explorer sessions checked out or idle at the same time.
+         */
+        private int maxSize = 20;
+
+        /**
+         * Maximum time to wait for a free session before failing the request.
+         */
+        private long maxWaitMillis = 5000;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public long getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        public void setMaxWaitMillis(long maxWaitMillis) {
+            this.maxWaitMillis = maxWaitMillis;
+        }
+    }
+
+    public static class UserSessions {
+
+        /**
+         * Open explorer sessions as the authenticated user instead of the admin user, so repository ACLs apply.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long a cached login token is reused. Must stay below the Oak token expiration (2 hours by default).
+         */
+        private long tokenTtlMillis = 3_600_000;
+
+        /**
+         * Maximum number of users whose login token is cached; the least recently used one is evicted first.
+         */
+        private int maxCachedTokens = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getTokenTtlMillis() {
+            return tokenTtlMillis;
+        }
+
+        public void setTokenTtlMillis(long tokenTtlMillis) {
+            this.tokenTtlMillis = tokenTtlMillis;
+        }
+
+        public int getMaxCachedTokens() {
+            return maxCachedTokens;
+        }
+
+        public void setMaxCachedTokens(int maxCachedTokens) {
+            this.maxCachedTokens = maxCachedTokens;
+        }
+    }
+
+    public static class Cache {
+
+        /**
+         * Cache converted nodes and their properties between explorer reads.
+         */
+        private boolean nodesEnabled = true;
+
+        /**
+         * Approximate heap budget, in bytes, of the cached nodes.
+         */
+        private long nodesMaxBytes = 64L * 1024 * 1024;
+
+        /**
+         * Upper bound on the life of a cached node, as a safety net in case a change notification is missed.
+         */
+        private long nodesTtlMillis = 600_000;
+
+        /**
+         * How long the summary of a node (name, id, has-children flag) is reused for breadcrumbs.
+         */
+        private long summaryTtlMillis = 30_000;
+
+        /**
+         * Maximum number of cached node summaries.
+         */
+        private long summaryMaxEntries = 10_000;
+
+        public boolean isNodesEnabled() {
+            return nodesEnabled;
+        }
+
+        public void setNodesEnabled(boolean nodesEnabled) {
+            this.nodesEnabled = nodesEnabled;
+        }
+
+        public long getNodesMaxBytes() {
+            return nodesMaxBytes;
+        }
+
+        public void setNodesMaxBytes(long nodesMaxBytes) {
+            this.nodesMaxBytes = nodesMaxBytes;
+        }
+
+        public long getNodesTtlMillis() {
+            return nodesTtlMillis;
+        }
+
+        public void setNodesTtlMillis(long nodesTtlMillis) {
+            this.nodesTtlMillis = nodesTtlMillis;
+        }
+
+        public long getSummaryTtlMillis() {
+            return summaryTtlMillis;
+        }
+
+        public void setSummaryTtlMillis(long summaryTtlMillis) {
+            this.summaryTtlMillis = summaryTtlMillis;
+        }
+
+        public long getSummaryMaxEntries() {
+            return summaryMaxEntries;
+        }
+
+        public void setSummaryMaxEntries(long summaryMaxEntries) {
+            this.summaryMaxEntries = summaryMaxEntries;
+        }
+    }
+
+    public static class Uploads {
+
+        /**
+         * Directory where the chunks of resumable uploads are staged until the upload is finished.
+         */
+        private String stagingDirectory = System.getProperty("java.io.tmpdir") + "/nextdms-uploads";
+
+        /**
+         * Largest upload accepted, in bytes.
+         */
+        private long maxLength = 10L * 1024 * 1024 * 1024;
+
+        /**
+         * Unfinished uploads are discarded once they have not received data for this long.
+         */
+        private long expireAfterMillis = 86_400_000;
+
+        public String getStagingDirectory() {
+            return stagingDirectory;
+        }
+
+        public void setStagingDirectory(String stagingDirectory) {
+            this.stagingDirectory = stagingDirectory;
+        }
+
+        public long getMaxLength() {
+            return maxLength;
+        }
+
+        public void setMaxLength(long maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        public long getExpireAfterMillis() {
+            return expireAfterMillis;
+        }
+
+        public void setExpireAfterMillis(long expireAfterMillis) {
+            this.expireAfterMillis = expireAfterMillis;
+        }
+    }
+
+    public static class BulkJobs {
+
+        /**
+         * Directory where the items and the progress of bulk jobs are kept, so that they resume after a restart.
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/nextdms-jobs";
+
+        /**
+         * Number of items applied between two saves of the session.
+         */
+        private int chunkSize = 100;
+
+        /**
+         * Number of jobs running at the same time.
+         */
+        private int threads = 2;
+
+        /**
+         * Number of subtrees copied at the same time, each in a session of its own.
+         */
+        private int copyParallelism = 4;
+
+        /**
+         * Number of jobs waiting for a thread, further submissions are refused.
+         */
+        private int queueCapacity = 50;
+
+        /**
+         * Pause between two saves of a job, in milliseconds, leaving room to the requests served in the foreground.
+         */
+        private long throttleMillis = 50;
+
+        /**
+         * Finished jobs are forgotten after this long.
+         */
+        private long expireAfterMillis = 604_800_000;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getCopyParallelism() {
+            return copyParallelism;
+        }
+
+        public void setCopyParallelism(int copyParallelism) {
+            this.copyParallelism = copyParallelism;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public long getThrottleMillis() {
+            return throttleMillis;
+        }
+
+        public void setThrottleMillis(long throttleMillis) {
+            this.throttleMillis = throttleMillis;
+        }
+
+        public long getExpireAfterMillis() {
+            return expireAfterMillis;
+        }
+
+        public void setExpireAfterMillis(long expireAfterMillis) {
+            this.expireAfterMillis = expireAfterMillis;
+        }
+    }
+
+    public static class Imports {
+
+        /**
+         * Server directory under which directories can be imported, imports of server directories are disabled when
+         * missing.
+         */
+        private String baseDirectory;
+
+        /**
+         * Number of threads storing the files of the imports.
+         */
+        private int threads = 4;
+
+        /**
+         * Number of files stored between two saves of a session.
+         */
+        private int batchCount = 100;
+
+        /**
+         * Number of bytes stored between two saves of a session.
+         */
+        private long batchBytes = 64L * 1024 * 1024;
+
+        /**
+         * Largest entry of an imported ZIP archive, in bytes once inflated.
+         */
+        private long maxEntryLength = 10L * 1024 * 1024 * 1024;
+
+        /**
+         * Largest content of an imported ZIP archive, in bytes once all its entries are inflated.
+         */
+        private long maxArchiveLength = 50L * 1024 * 1024 * 1024;
+
+        public String getBaseDirectory() {
+            return baseDirectory;
+        }
+
+        public void setBaseDirectory(String baseDirectory) {
+            this.baseDirectory = baseDirectory;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getBatchCount() {
+            return batchCount;
+        }
+
+        public void setBatchCount(int batchCount) {
+            this.batchCount = batchCount;
+        }
+
+        public long getBatchBytes() {
+            return batchBytes;
+        }
+
+        public void setBatchBytes(long batchBytes) {
+            this.batchBytes = batchBytes;
+        }
+
+        public long getMaxEntryLength() {
+            return maxEntryLength;
+        }
+
+        public void setMaxEntryLength(long maxEntryLength) {
+            this.maxEntryLength = maxEntryLength;
+        }
+
+        public long getMaxArchiveLength() {
+            return maxArchiveLength;
+        }
+
+        public void setMaxArchiveLength(long maxArchiveLength) {
+            this.maxArchiveLength = maxArchiveLength;
+        }
+    }
+
+    public static class Queries {
+
+        /**
+         * Number of results counted past the requested page by searches estimating their total.
+         */
+        private long countLimit = 1000;
+
+        /**
+         * What structured searches do when no index can answer them: fail, or only log a warning and traverse.
+         */
+        private SearchRequestCompiler.Traversal traversal = SearchRequestCompiler.Traversal.FAIL;
+
+        /**
+         * Searches taking at least this long are explained and kept in the slow-query log.
+         */
+        private long slowThresholdMillis = 1000;
+
+        /**
+         * Number of slow queries kept, the oldest ones being dropped first.
+         */
+        private int slowLogSize = 100;
+
+        /**
+         * Number of distinct query shapes timed separately, the others being timed together.
+         */
+        private int maxShapes = 200;
+
+        public long getCountLimit() {
+            return countLimit;
+        }
+
+        public void setCountLimit(long countLimit) {
+            this.countLimit = countLimit;
+        }
+
+        public SearchRequestCompiler.Traversal getTraversal() {
+            return traversal;
+        }
+
+        public void setTraversal(SearchRequestCompiler.Traversal traversal) {
+            this.traversal = traversal;
+        }
+
+        public long getSlowThresholdMillis() {
+            return slowThresholdMillis;
+        }
+
+        public void setSlowThresholdMillis(long slowThresholdMillis) {
+            this.slowThresholdMillis = slowThresholdMillis;
+        }
+
+        public int getSlowLogSize() {
+            return slowLogSize;
+        }
+
+        public void setSlowLogSize(int slowLogSize) {
+            this.slowLogSize = slowLogSize;
+        }
+
+        public int getMaxShapes() {
+            return maxShapes;
+        }
+
+        public void setMaxShapes(int maxShapes) {
+            this.maxShapes = maxShapes;
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package io.nextdms.dms.content;
+
+import javax.jcr.Binary;
+
+/**
+ * Binary value resolved for a download, with the metadata needed to answer conditional and range requests.
+ * The content itself is only read when it is written out.
+ *
+ * @param eTag entity tag, strong when derived from the blob content identity, weak otherwise
+ */
+public record BinaryContent(Binary binary, long size, String eTag, String mimeType, String fileName, long lastModified) {
+    public boolean hasStrongETag() {
+        return !eTag.startsWith("W/");
+    }
+}
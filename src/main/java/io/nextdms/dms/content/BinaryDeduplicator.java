@@ -0,0 +1,137 @@
+package io.nextdms.dms.content;
+
+import static io.nextdms.dms.config.DmsRepositoryInitializer.DMS_CONTENT_IDENTITY;
+import static io.nextdms.dms.config.DmsRepositoryInitializer.DMS_SHA256;
+import static io.nextdms.dms.config.DmsRepositoryInitializer.MIX_HASHED;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.nodetype.NodeType;
+import javax.jcr.query.Query;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.jackrabbit.api.JackrabbitValue;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds the binaries already stored with a given SHA-256, through the property index on {@code dms:sha256}, so that an
+ * upload of the same content reuses the stored binary instead of sending it to the blob store again.
+ */
+@Component
+public class BinaryDeduplicator {
+
+    private static final String FIND_BY_SHA256 = "SELECT * FROM [" + MIX_HASHED + "] WHERE [" + DMS_SHA256 + "] = $sha256";
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter savedBytes;
+
+    public BinaryDeduplicator(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("nextdms.uploads.dedup.hits")
+            .description("Uploads served by an existing binary")
+            .register(meterRegistry);
+        this.misses = Counter.builder("nextdms.uploads.dedup.misses")
+            .description("Uploads stored as a new binary")
+            .register(meterRegistry);
+        this.savedBytes = Counter.builder("nextdms.uploads.dedup.saved")
+            .description("Bytes not sent to the blob store thanks to deduplication")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * A stored binary with the given SHA-256 and length, or null when there is none the session can read.
+     * <p>
+     * The recorded hash is trusted, every writer of {@code jcr:data} either records the new hash or clears it. When the
+     * content identity of the binary was recorded along, a candidate whose binary no longer has that identity is
+     * skipped. The content of a candidate is never read.
+     */
+    public Binary find(Session session, String sha256, long length) throws RepositoryException {
+        Query query = session.getWorkspace().getQueryManager().createQuery(FIND_BY_SHA256, Query.JCR_SQL2);
+        query.bindValue("sha256", session.getValueFactory().createValue(sha256));
+        NodeIterator nodes = query.execute().getNodes();
+        while (nodes.hasNext()) {
+            Node node = nodes.nextNode();
+            if (
+                node.hasProperty(JcrConstants.JCR_DATA) &&
+                node.getProperty(JcrConstants.JCR_DATA).getType() == PropertyType.BINARY &&
+                node.getProperty(JcrConstants.JCR_DATA).getLength() == length &&
+                isHashedBinary(node)
+            ) {
+                return node.getProperty(JcrConstants.JCR_DATA).getBinary();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record the SHA-256 of the binary held in the {@code jcr:data} property of the node, and its content identity when
+     * the blob store provides one.
+     */
+    public static void markHashed(Node node, String sha256) throws RepositoryException {
+        if (!node.isNodeType(MIX_HASHED)) {
+            node.addMixin(MIX_HASHED);
+        }
+        node.setProperty(DMS_SHA256, sha256);
+        String contentIdentity = contentIdentity(node.getProperty(JcrConstants.JCR_DATA).getValue());
+        if (contentIdentity != null) {
+            node.setProperty(DMS_CONTENT_IDENTITY, contentIdentity);
+        } else if (node.hasProperty(DMS_CONTENT_IDENTITY)) {
+            node.getProperty(DMS_CONTENT_IDENTITY).remove();
+        }
+    }
+
+    /**
+     * Forget the SHA-256 recorded for the node when the property written, or removed, is its {@code jcr:data}: the
+     * recorded hash no longer describes the content. Every writer of {@code jcr:data} that does not record the new hash
+     * with {@link #markHashed(Node, String)} calls it.
+     */
+    public static void clearHash(Node node, String property) throws RepositoryException {
+        if (!JcrConstants.JCR_DATA.equals(property)) {
+            return;
+        }
+        for (NodeType mixin : node.getMixinNodeTypes()) {
+            if (mixin.getName().equals(MIX_HASHED)) {
+                if (node.hasProperty(DMS_SHA256)) {
+                    node.getProperty(DMS_SHA256).remove();
+                }
+                if (node.hasProperty(DMS_CONTENT_IDENTITY)) {
+                    node.getProperty(DMS_CONTENT_IDENTITY).remove();
+                }
+                node.removeMixin(MIX_HASHED);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Whether the binary of the node is still the one its hash was recorded for, as far as the recorded content identity
+     * tells.
+     */
+    private static boolean isHashedBinary(Node node) throws RepositoryException {
+        if (!node.hasProperty(DMS_CONTENT_IDENTITY)) {
+            return true;
+        }
+        String contentIdentity = contentIdentity(node.getProperty(JcrConstants.JCR_DATA).getValue());
+        return contentIdentity != null && contentIdentity.equals(node.getProperty(DMS_CONTENT_IDENTITY).getString());
+    }
+
+    private static String contentIdentity(Value value) {
+        return value instanceof JackrabbitValue jackrabbitValue ? jackrabbitValue.getContentIdentity() : null;
+    }
+
+    public void recordHit(long length) {
+        hits.increment();
+        savedBytes.increment(length);
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+}
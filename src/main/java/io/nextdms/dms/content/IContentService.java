@@ -0,0 +1,11 @@
+package io.nextdms.dms.content;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+public interface IContentService {
+    BinaryContent getBinary(Session session, String path, String property, int index) throws RepositoryException;
+    void write(BinaryContent content, long offset, long length, OutputStream outputStream) throws RepositoryException, IOException;
+}
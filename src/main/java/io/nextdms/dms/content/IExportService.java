@@ -0,0 +1,10 @@
+package io.nextdms.dms.content;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+public interface IExportService {
+    void exportZip(Session session, String path, boolean manifest, OutputStream outputStream) throws RepositoryException, IOException;
+}
@@ -0,0 +1,10 @@
+package io.nextdms.dms.content;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import javax.jcr.RepositoryException;
+
+public interface IImportService {
+    ImportReport importZip(String owner, String path, Path zipFile) throws RepositoryException, IOException;
+    ImportReport importDirectory(String owner, String path, String directory) throws RepositoryException, IOException;
+}
@@ -0,0 +1,25 @@
+package io.nextdms.dms.content;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+public interface IUploadService {
+    Upload create(String owner, String path, String property, String fileName, String mimeType, long length, String sha256)
+        throws RepositoryException, IOException;
+    Upload reuse(
+        Session session,
+        String owner,
+        String path,
+        String property,
+        String fileName,
+        String mimeType,
+        long length,
+        String sha256
+    ) throws RepositoryException;
+    Upload get(String owner, String id) throws RepositoryException;
+    Upload append(String owner, String id, long offset, InputStream chunk) throws RepositoryException, IOException;
+    Upload finish(Session session, String owner, String id) throws RepositoryException, IOException;
+    void cancel(String owner, String id) throws RepositoryException, IOException;
+}
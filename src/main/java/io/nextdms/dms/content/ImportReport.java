@@ -0,0 +1,28 @@
+package io.nextdms.dms.content;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import.
+ * @param folders number of folders created
+ * @param files number of files stored
+ * @param bytes number of bytes stored
+ * @param failed number of files that could not be stored
+ * @param errors messages of the first failures
+ * @param elapsedMillis duration of the import
+ */
+public record ImportReport(
+    int folders,
+    int files,
+    long bytes,
+    int failed,
+    List<String> errors,
+    long elapsedMillis,
+    double filesPerSecond,
+    double megabytesPerSecond
+) {
+    public static ImportReport of(int folders, int files, long bytes, int failed, List<String> errors, long elapsedMillis) {
+        double seconds = Math.max(elapsedMillis, 1) / 1000d;
+        return new ImportReport(folders, files, bytes, failed, errors, elapsedMillis, files / seconds, bytes / seconds / (1024 * 1024));
+    }
+}
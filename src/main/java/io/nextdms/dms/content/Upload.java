@@ -0,0 +1,36 @@
+package io.nextdms.dms.content;
+
+/**
+ * State of a resumable upload. It is persisted next to the staged data, so that an upload can be resumed after a
+ * restart.
+ *
+ * @param path node receiving the binary, or folder where the file is created when a file name is given
+ * @param property binary property set on the node when no file name is given
+ * @param offset number of bytes received so far
+ * @param sha256 hex SHA-256 of the content, as announced by the client or computed once every byte has been received
+ * @param lastModified time of the last change, in milliseconds
+ */
+public record Upload(
+    String id,
+    String owner,
+    String path,
+    String property,
+    String fileName,
+    String mimeType,
+    long length,
+    long offset,
+    String sha256,
+    long lastModified
+) {
+    public boolean hasAllBytes() {
+        return offset == length;
+    }
+
+    public Upload withOffset(long offset, long lastModified) {
+        return new Upload(id, owner, path, property, fileName, mimeType, length, offset, sha256, lastModified);
+    }
+
+    public Upload withSha256(String sha256) {
+        return new Upload(id, owner, path, property, fileName, mimeType, length, offset, sha256, lastModified);
+    }
+}
@@ -0,0 +1,26 @@
+package io.nextdms.dms.content;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Thrown when a chunk does not start at the current offset of its upload, when another chunk of the same upload is
+ * being received, or when an upload is finished before all its bytes were received.
+ */
+public class UploadConflictException extends RepositoryException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long offset;
+
+    public UploadConflictException(String message, long offset) {
+        super(message);
+        this.offset = offset;
+    }
+
+    /**
+     * Offset the client should resume from.
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,102 @@
+package io.nextdms.dms.content.impl;
+
+import io.nextdms.dms.content.BinaryContent;
+import io.nextdms.dms.content.IContentService;
+import io.nextdms.dms.explorer.JcrValueConverter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import org.apache.jackrabbit.JcrConstants;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+@Service
+public class ContentService implements IContentService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Resolve a binary value. When no property is given, the path may be a file node, whose {@code jcr:content/jcr:data}
+     * is returned, or the resource node itself.
+     */
+    @Override
+    public BinaryContent getBinary(Session session, String path, String property, int index) throws RepositoryException {
+        Node node = session.getNode(path);
+        if (!StringUtils.hasText(property)) {
+            if (node.hasNode(JcrConstants.JCR_CONTENT)) {
+                node = node.getNode(JcrConstants.JCR_CONTENT);
+            }
+            property = JcrConstants.JCR_DATA;
+        }
+        String fileName = node.getName().equals(JcrConstants.JCR_CONTENT) && node.getDepth() > 1
+            ? node.getParent().getName()
+            : node.getName();
+        Property binaryProperty = node.getProperty(property);
+        if (binaryProperty.getType() != PropertyType.BINARY) {
+            throw new RepositoryException("Property " + binaryProperty.getPath() + " is not binary");
+        }
+        Value value;
+        long size;
+        if (binaryProperty.isMultiple()) {
+            Value[] values = binaryProperty.getValues();
+            if (index < 0 || index >= values.length) {
+                throw new RepositoryException("No value " + index + " in " + binaryProperty.getPath());
+            }
+            value = values[index];
+            size = binaryProperty.getLengths()[index];
+        } else {
+            value = binaryProperty.getValue();
+            size = binaryProperty.getLength();
+        }
+        long lastModified = node.hasProperty(JcrConstants.JCR_LASTMODIFIED)
+            ? node.getProperty(JcrConstants.JCR_LASTMODIFIED).getDate().getTimeInMillis()
+            : -1;
+        String mimeType = node.hasProperty(JcrConstants.JCR_MIMETYPE) ? node.getProperty(JcrConstants.JCR_MIMETYPE).getString() : null;
+        String contentIdentity = JcrValueConverter.contentIdentity(value);
+        String eTag = contentIdentity != null
+            ? "\"" + contentIdentity + "\""
+            : "W/\"" + digest(binaryProperty.getPath() + ":" + index + ":" + size + ":" + lastModified) + "\"";
+        return new BinaryContent(value.getBinary(), size, eTag, mimeType, fileName, lastModified);
+    }
+
+    /**
+     * Copy {@code length} bytes of the content starting at {@code offset} through a fixed size buffer, so the heap use
+     * does not depend on the content size.
+     */
+    @Override
+    public void write(BinaryContent content, long offset, long length, OutputStream outputStream) throws RepositoryException, IOException {
+        try (InputStream inputStream = content.binary().getStream()) {
+            inputStream.skipNBytes(offset);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                outputStream.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } finally {
+            content.binary().dispose();
+        }
+    }
+
+    private static String digest(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
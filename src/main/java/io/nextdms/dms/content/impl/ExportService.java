@@ -0,0 +1,104 @@
+package io.nextdms.dms.content.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.nextdms.dms.content.IExportService;
+import io.nextdms.dms.explorer.ExplorerUtils;
+import io.nextdms.dms.explorer.PropertyProjection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.jackrabbit.JcrConstants;
+import org.springframework.stereotype.Service;
+
+/**
+ * Exports a subtree as a ZIP archive written while the tree is walked : files become entries holding their content,
+ * the other nodes become directories. Binaries are copied from the repository stream to the archive, nothing is
+ * buffered beyond the current entry, so memory use does not depend on the size of the subtree.
+ * <p>
+ * The optional manifest is the first entry, {@value #MANIFEST}, with one JSON line per node of the subtree holding its
+ * type, mixins and properties. It is written by a first walk of the tree so that it needs no memory either.
+ */
+@Service
+public class ExportService implements IExportService {
+
+    public static final String MANIFEST = "META-INF/manifest.jsonl";
+
+    private final ObjectWriter nodeWriter;
+
+    public ExportService(ObjectMapper objectMapper) {
+        this.nodeWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public void exportZip(Session session, String path, boolean manifest, OutputStream outputStream)
+        throws RepositoryException, IOException {
+        Node root = session.getNode(path);
+        String prefix = root.getDepth() == 0 ? "" : root.getName() + "/";
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        if (manifest) {
+            zip.putNextEntry(new ZipEntry(MANIFEST));
+            try (JsonGenerator generator = nodeWriter.getFactory().createGenerator(zip)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                writeManifest(root, generator);
+            }
+            zip.closeEntry();
+        }
+        writeEntries(root, prefix, zip);
+        zip.finish();
+        zip.flush();
+    }
+
+    private void writeManifest(Node node, JsonGenerator generator) throws RepositoryException, IOException {
+        nodeWriter.writeValue(generator, ExplorerUtils.toJcrNode(node, PropertyProjection.ALL));
+        generator.writeRaw('\n');
+        for (NodeIterator children = node.getNodes(); children.hasNext();) {
+            writeManifest(children.nextNode(), generator);
+        }
+    }
+
+    /**
+     * Write the entries of the node then of its children, depth first.
+     */
+    private static void writeEntries(Node node, String name, ZipOutputStream zip) throws RepositoryException, IOException {
+        if (node.isNodeType(JcrConstants.NT_FILE)) {
+            writeFile(node, name.substring(0, name.length() - 1), zip);
+            return;
+        }
+        if (!name.isEmpty()) {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.closeEntry();
+        }
+        for (NodeIterator children = node.getNodes(); children.hasNext();) {
+            Node child = children.nextNode();
+            writeEntries(child, name + child.getName() + "/", zip);
+        }
+    }
+
+    private static void writeFile(Node file, String name, ZipOutputStream zip) throws RepositoryException, IOException {
+        ZipEntry entry = new ZipEntry(name);
+        Node content = file.hasNode(JcrConstants.JCR_CONTENT) ? file.getNode(JcrConstants.JCR_CONTENT) : null;
+        if (content != null && content.hasProperty(JcrConstants.JCR_LASTMODIFIED)) {
+            entry.setTime(content.getProperty(JcrConstants.JCR_LASTMODIFIED).getDate().getTimeInMillis());
+        }
+        zip.putNextEntry(entry);
+        if (content != null && content.hasProperty(JcrConstants.JCR_DATA)) {
+            Binary binary = content.getProperty(JcrConstants.JCR_DATA).getBinary();
+            try (InputStream inputStream = binary.getStream()) {
+                inputStream.transferTo(zip);
+            } finally {
+                binary.dispose();
+            }
+        }
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,417 @@
+package io.nextdms.dms.content.impl;
+
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.content.BinaryDeduplicator;
+import io.nextdms.dms.content.IImportService;
+import io.nextdms.dms.content.ImportReport;
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import io.nextdms.dms.session.JcrSessionProvider;
+import jakarta.annotation.PreDestroy;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.jackrabbit.util.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Imports a tree of files, from a ZIP archive or a server directory, as {@code nt:folder} and {@code nt:file} nodes.
+ * <p>
+ * The folders are created first, in one session saved by batches. The files are then stored folder by folder on a
+ * bounded pool of threads, each folder in a session of its own, so that the content of several files is streamed to
+ * the blob store at the same time. A session is saved once a batch of files or of bytes is pending. Existing files are
+ * replaced.
+ */
+@Service
+public class ImportService implements IImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportService.class);
+
+    private static final int MAX_ERRORS = 100;
+
+    private final OakProperties.Imports properties;
+    private final JcrSessionProvider sessionProvider;
+    private final NodeCacheInvalidator nodeCacheInvalidator;
+    private final ExecutorService executor;
+
+    public ImportService(OakProperties oakProperties, JcrSessionProvider sessionProvider, NodeCacheInvalidator nodeCacheInvalidator) {
+        this.properties = oakProperties.getImports();
+        this.sessionProvider = sessionProvider;
+        this.nodeCacheInvalidator = nodeCacheInvalidator;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(properties.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ImportReport importZip(String owner, String path, Path zipFile) throws RepositoryException, IOException {
+        try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+            Map<String, ImportFile> files = new LinkedHashMap<>();
+            SortedSet<String> folders = new TreeSet<>();
+            AtomicLong archiveRemaining = new AtomicLong(properties.getMaxArchiveLength());
+            long declaredLength = 0;
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = relativePath(entry.getName());
+                if (name.isEmpty()) {
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    folders.add(name);
+                    continue;
+                }
+                if (entry.getSize() > properties.getMaxEntryLength()) {
+                    throw new RepositoryException(
+                        "Entry " + entry.getName() + " is larger than " + properties.getMaxEntryLength() + " bytes"
+                    );
+                }
+                declaredLength += Math.max(entry.getSize(), 0);
+                if (declaredLength > properties.getMaxArchiveLength()) {
+                    throw new RepositoryException("Archive is larger than " + properties.getMaxArchiveLength() + " bytes");
+                }
+                long maxLength = entry.getSize() >= 0 ? entry.getSize() : properties.getMaxEntryLength();
+                ContentOpener opener = () ->
+                    new BoundedInputStream(zip.getInputStream(entry), entry.getName(), maxLength, archiveRemaining);
+                files.put(name, new ImportFile(name, entry.getSize(), entry.getTime(), opener));
+            }
+            return importTree(owner, path, folders, files.values());
+        }
+    }
+
+    @Override
+    public ImportReport importDirectory(String owner, String path, String directory) throws RepositoryException, IOException {
+        if (properties.getBaseDirectory() == null) {
+            throw new RepositoryException("Imports of server directories are disabled");
+        }
+        Path base = Path.of(properties.getBaseDirectory()).toRealPath();
+        Path root = base.resolve(directory).normalize();
+        if (!root.startsWith(base) || !Files.isDirectory(root)) {
+            throw new RepositoryException("No directory " + directory + " to import");
+        }
+        List<ImportFile> files = new ArrayList<>();
+        SortedSet<String> folders = new TreeSet<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) paths::iterator) {
+                if (file.equals(root)) {
+                    continue;
+                }
+                String name = relativePath(root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"));
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    folders.add(name);
+                } else if (attributes.isRegularFile()) {
+                    long lastModified = attributes.lastModifiedTime().toMillis();
+                    files.add(new ImportFile(name, attributes.size(), lastModified, () -> Files.newInputStream(file)));
+                }
+            }
+        }
+        return importTree(owner, path, folders, files);
+    }
+
+    private ImportReport importTree(String owner, String path, SortedSet<String> folders, Iterable<ImportFile> files)
+        throws RepositoryException {
+        long start = System.currentTimeMillis();
+        Map<String, List<ImportFile>> filesByFolder = new LinkedHashMap<>();
+        for (ImportFile file : files) {
+            String folder = parent(file.path());
+            filesByFolder.computeIfAbsent(folder, key -> new ArrayList<>()).add(file);
+            for (; !folder.isEmpty(); folder = parent(folder)) {
+                folders.add(folder);
+            }
+        }
+        int createdFolders = sessionProvider.execute(owner, session -> createFolders(session, path, folders));
+
+        Progress progress = new Progress();
+        List<Future<?>> imports = new ArrayList<>(filesByFolder.size());
+        for (Map.Entry<String, List<ImportFile>> folder : filesByFolder.entrySet()) {
+            String folderPath = folder.getKey().isEmpty() ? path : childPath(path, folder.getKey());
+            imports.add(executor.submit(() -> importFiles(owner, folderPath, folder.getValue(), progress)));
+        }
+        for (Future<?> future : imports) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RepositoryException("Import interrupted", e);
+            } catch (ExecutionException e) {
+                throw new RepositoryException("Import failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        ImportReport report = ImportReport.of(
+            createdFolders,
+            progress.files.get(),
+            progress.bytes.get(),
+            progress.failed.get(),
+            List.copyOf(progress.errors),
+            System.currentTimeMillis() - start
+        );
+        LOG.info(
+            "Imported {} files ({} bytes) and {} folders into {} in {} ms: {} files/s, {} MB/s, {} failed",
+            report.files(),
+            report.bytes(),
+            report.folders(),
+            path,
+            report.elapsedMillis(),
+            String.format("%.1f", report.filesPerSecond()),
+            String.format("%.2f", report.megabytesPerSecond()),
+            report.failed()
+        );
+        return report;
+    }
+
+    /**
+     * Create the missing folders, parents first since the paths are sorted.
+     */
+    private int createFolders(Session session, String path, SortedSet<String> folders) throws RepositoryException {
+        int created = 0;
+        List<String> pending = new ArrayList<>();
+        for (String folder : folders) {
+            Node parent = session.getNode(childPath(path, parent(folder)));
+            String name = folder.substring(folder.lastIndexOf('/') + 1);
+            if (!parent.hasNode(name)) {
+                pending.add(parent.addNode(name, JcrConstants.NT_FOLDER).getPath());
+                created++;
+                if (pending.size() >= properties.getBatchCount()) {
+                    session.save();
+                    nodeCacheInvalidator.invalidateNodes(pending);
+                    pending.clear();
+                }
+            }
+        }
+        session.save();
+        nodeCacheInvalidator.invalidateNodes(pending);
+        return created;
+    }
+
+    /**
+     * Store the files of a folder in one session, saved by batches of files or bytes. When a save fails, the files
+     * of the batch are reported as failed.
+     */
+    private void importFiles(String owner, String folderPath, List<ImportFile> files, Progress progress) {
+        try {
+            sessionProvider.execute(owner, session -> {
+                Node folder = session.getNode(folderPath);
+                List<ImportFile> batch = new ArrayList<>();
+                List<String> written = new ArrayList<>();
+                long batchBytes = 0;
+                for (ImportFile file : files) {
+                    try {
+                        written.add(storeFile(session, folder, file));
+                        batch.add(file);
+                        batchBytes += Math.max(file.size(), 0);
+                    } catch (RepositoryException | IOException e) {
+                        progress.fail(file.path(), e);
+                        continue;
+                    }
+                    if (batch.size() >= properties.getBatchCount() || batchBytes >= properties.getBatchBytes()) {
+                        save(session, batch, written, progress);
+                        batch.clear();
+                        written.clear();
+                        batchBytes = 0;
+                    }
+                }
+                save(session, batch, written, progress);
+                return null;
+            });
+        } catch (RepositoryException e) {
+            for (ImportFile file : files) {
+                progress.fail(file.path(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the path of the file written
+     */
+    private static String storeFile(Session session, Node folder, ImportFile file) throws RepositoryException, IOException {
+        String name = file.path().substring(file.path().lastIndexOf('/') + 1);
+        Binary binary;
+        MessageDigest digest = sha256();
+        try (InputStream inputStream = new DigestInputStream(file.opener().open(), digest)) {
+            binary = session.getValueFactory().createBinary(inputStream);
+        }
+        try {
+            Node node = folder.hasNode(name) ? folder.getNode(name) : folder.addNode(name, JcrConstants.NT_FILE);
+            Node content = node.hasNode(JcrConstants.JCR_CONTENT)
+                ? node.getNode(JcrConstants.JCR_CONTENT)
+                : node.addNode(JcrConstants.JCR_CONTENT, JcrConstants.NT_RESOURCE);
+            content.setProperty(JcrConstants.JCR_DATA, binary);
+            String mimeType = URLConnection.guessContentTypeFromName(name);
+            content.setProperty(JcrConstants.JCR_MIMETYPE, mimeType != null ? mimeType : "application/octet-stream");
+            Calendar lastModified = Calendar.getInstance();
+            if (file.lastModified() > 0) {
+                lastModified.setTimeInMillis(file.lastModified());
+            }
+            content.setProperty(JcrConstants.JCR_LASTMODIFIED, lastModified);
+            BinaryDeduplicator.markHashed(content, HexFormat.of().formatHex(digest.digest()));
+            return node.getPath();
+        } finally {
+            binary.dispose();
+        }
+    }
+
+    /**
+     * Save a batch of files, then evict the written files from the caches.
+     */
+    private void save(Session session, List<ImportFile> batch, List<String> written, Progress progress) throws RepositoryException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            session.save();
+            nodeCacheInvalidator.invalidateTrees(written);
+            for (ImportFile file : batch) {
+                progress.files.incrementAndGet();
+                progress.bytes.addAndGet(Math.max(file.size(), 0));
+            }
+        } catch (RepositoryException e) {
+            session.refresh(false);
+            for (ImportFile file : batch) {
+                progress.fail(file.path(), e);
+            }
+        }
+    }
+
+    /**
+     * Path of an entry relative to the imported tree, with every segment made a valid JCR name. Segments leading out
+     * of the tree are dropped.
+     */
+    static String relativePath(String name) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : name.replace('\\', '/').split("/")) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                continue;
+            }
+            segments.add(Text.escapeIllegalJcrChars(segment));
+        }
+        return String.join("/", segments);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String parent(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+
+    private static String childPath(String path, String relativePath) {
+        if (relativePath.isEmpty()) {
+            return path;
+        }
+        return path.endsWith("/") ? path + relativePath : path + "/" + relativePath;
+    }
+
+    @FunctionalInterface
+    private interface ContentOpener {
+        InputStream open() throws IOException;
+    }
+
+    private record ImportFile(String path, long size, long lastModified, ContentOpener opener) {}
+
+    /**
+     * Content of an archive entry, failing once more bytes are inflated than the entry declares or than the archive may
+     * still hold, so that an archive whose sizes lie cannot fill the blob store.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private final String name;
+        private final AtomicLong archiveRemaining;
+        private long remaining;
+
+        private BoundedInputStream(InputStream in, String name, long maxLength, AtomicLong archiveRemaining) {
+            super(in);
+            this.name = name;
+            this.remaining = maxLength;
+            this.archiveRemaining = archiveRemaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                count(1);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws IOException {
+            remaining -= read;
+            if (remaining < 0) {
+                throw new IOException("Entry " + name + " is larger than its declared size");
+            }
+            if (archiveRemaining.addAndGet(-read) < 0) {
+                throw new IOException("Archive is larger than its maximum size");
+            }
+        }
+    }
+
+    private static final class Progress {
+
+        private final AtomicInteger files = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        private void fail(String path, Exception e) {
+            LOG.warn("Failed to import {}: {}", path, e.getMessage());
+            failed.incrementAndGet();
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(path + ": " + e.getMessage());
+            }
+        }
+    }
+}
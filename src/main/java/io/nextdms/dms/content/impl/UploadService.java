@@ -0,0 +1,404 @@
+package io.nextdms.dms.content.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.content.BinaryDeduplicator;
+import io.nextdms.dms.content.IUploadService;
+import io.nextdms.dms.content.Upload;
+import io.nextdms.dms.content.UploadConflictException;
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Calendar;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.apache.jackrabbit.JcrConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Resumable uploads, in the spirit of the tus protocol : an upload is created with its length, receives chunks at
+ * increasing offsets, and is finished once complete.
+ * <p>
+ * Chunks are appended to a staging file on local disk while the SHA-256 of the content is computed. The upload state
+ * is written next to it after every chunk, so that a client can resume after a restart of the server; the digest is
+ * then recomputed from the staged bytes. Finishing an upload hands the staging file to the repository in one pass.
+ * <p>
+ * Stored binaries are marked with their SHA-256. When a binary with the same digest already exists, it is reused : at
+ * creation when the client announces the digest, in which case no byte is sent, or when the upload is finished.
+ */
+@Service
+public class UploadService implements IUploadService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UploadService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String DATA_SUFFIX = ".bin";
+    private static final String STATE_SUFFIX = ".json";
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-fA-F]{64}");
+
+    private final OakProperties.Uploads properties;
+    private final ObjectMapper objectMapper;
+    private final BinaryDeduplicator deduplicator;
+    private final NodeCacheInvalidator nodeCacheInvalidator;
+    private final Path stagingDirectory;
+    private final Map<String, StagedUpload> uploads = new ConcurrentHashMap<>();
+
+    public UploadService(
+        OakProperties oakProperties,
+        ObjectMapper objectMapper,
+        BinaryDeduplicator deduplicator,
+        NodeCacheInvalidator nodeCacheInvalidator
+    ) {
+        this.properties = oakProperties.getUploads();
+        this.objectMapper = objectMapper;
+        this.deduplicator = deduplicator;
+        this.nodeCacheInvalidator = nodeCacheInvalidator;
+        this.stagingDirectory = Path.of(properties.getStagingDirectory());
+    }
+
+    /**
+     * Reload the uploads left unfinished by a previous run.
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        Files.createDirectories(stagingDirectory);
+        try (DirectoryStream<Path> states = Files.newDirectoryStream(stagingDirectory, "*" + STATE_SUFFIX)) {
+            for (Path statePath : states) {
+                try {
+                    Upload upload = objectMapper.readValue(statePath.toFile(), Upload.class);
+                    Path data = dataPath(upload.id());
+                    if (!Files.exists(data)) {
+                        Files.delete(statePath);
+                        continue;
+                    }
+                    long staged = Files.size(data);
+                    if (staged > upload.offset()) {
+                        // bytes written after the last saved state are dropped, the client resends them
+                        try (FileChannel channel = FileChannel.open(data, StandardOpenOption.WRITE)) {
+                            channel.truncate(upload.offset());
+                        }
+                    } else if (staged < upload.offset()) {
+                        upload = upload.withOffset(staged, upload.lastModified());
+                    }
+                    uploads.put(upload.id(), new StagedUpload(upload));
+                } catch (IOException e) {
+                    LOG.warn("Discarding unreadable upload state {}: {}", statePath, e.getMessage());
+                    Files.deleteIfExists(statePath);
+                }
+            }
+        }
+        LOG.info("Recovered {} unfinished uploads", uploads.size());
+    }
+
+    @Override
+    public Upload create(String owner, String path, String property, String fileName, String mimeType, long length, String sha256)
+        throws RepositoryException, IOException {
+        Upload upload = newUpload(owner, path, property, fileName, mimeType, length, sha256);
+        Files.createDirectories(stagingDirectory);
+        Files.write(dataPath(upload.id()), new byte[0]);
+        StagedUpload staged = new StagedUpload(upload);
+        staged.digest = sha256();
+        saveState(upload);
+        uploads.put(upload.id(), staged);
+        return upload;
+    }
+
+    /**
+     * Store an already known content : when a binary with the announced SHA-256 and length exists, it is set on the target
+     * and the returned upload is complete, otherwise nothing is done and null is returned.
+     */
+    @Override
+    public Upload reuse(
+        Session session,
+        String owner,
+        String path,
+        String property,
+        String fileName,
+        String mimeType,
+        long length,
+        String sha256
+    ) throws RepositoryException {
+        Upload upload = newUpload(owner, path, property, fileName, mimeType, length, sha256);
+        Binary binary = deduplicator.find(session, upload.sha256(), length);
+        if (binary == null) {
+            return null;
+        }
+        try {
+            String written = store(session, upload, binary);
+            session.save();
+            nodeCacheInvalidator.invalidateTrees(List.of(written));
+        } finally {
+            binary.dispose();
+        }
+        deduplicator.recordHit(length);
+        return upload.withOffset(length, upload.lastModified());
+    }
+
+    private Upload newUpload(String owner, String path, String property, String fileName, String mimeType, long length, String sha256)
+        throws RepositoryException {
+        if (!StringUtils.hasText(path)) {
+            throw new RepositoryException("Upload path is missing");
+        }
+        if (length < 0 || length > properties.getMaxLength()) {
+            throw new RepositoryException("Upload length must be between 0 and " + properties.getMaxLength());
+        }
+        if (sha256 != null && !SHA256_PATTERN.matcher(sha256).matches()) {
+            throw new RepositoryException("Invalid SHA-256: " + sha256);
+        }
+        return new Upload(
+            UUID.randomUUID().toString(),
+            owner,
+            path,
+            StringUtils.hasText(property) ? property : JcrConstants.JCR_DATA,
+            StringUtils.hasText(fileName) ? fileName : null,
+            mimeType,
+            length,
+            0,
+            sha256 == null ? null : sha256.toLowerCase(Locale.ROOT),
+            System.currentTimeMillis()
+        );
+    }
+
+    @Override
+    public Upload get(String owner, String id) throws RepositoryException {
+        return find(owner, id).upload;
+    }
+
+    /**
+     * Append a chunk at the given offset, which must be the current offset of the upload. When the chunk is cut short,
+     * the bytes received until then are kept and the client resumes from the returned offset.
+     */
+    @Override
+    public Upload append(String owner, String id, long offset, InputStream chunk) throws RepositoryException, IOException {
+        StagedUpload staged = find(owner, id);
+        if (!staged.lock.tryLock()) {
+            throw new UploadConflictException("Another chunk of upload " + id + " is being received", staged.upload.offset());
+        }
+        try {
+            Upload upload = staged.upload;
+            if (offset != upload.offset()) {
+                throw new UploadConflictException("Upload " + id + " is at offset " + upload.offset(), upload.offset());
+            }
+            MessageDigest digest = staged.digest(dataPath(id));
+            long position = offset;
+            try (FileChannel channel = FileChannel.open(dataPath(id), StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+                channel.position(offset);
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = chunk.read(buffer, 0, (int) Math.min(buffer.length, upload.length() - position))) > 0) {
+                    channel.write(ByteBuffer.wrap(buffer, 0, read));
+                    digest.update(buffer, 0, read);
+                    position += read;
+                }
+                channel.force(false);
+            } finally {
+                staged.upload = upload.withOffset(position, System.currentTimeMillis());
+                saveState(staged.upload);
+            }
+            if (position == upload.length() && chunk.read() != -1) {
+                throw new RepositoryException("Chunk goes beyond the length of upload " + id);
+            }
+            return staged.upload;
+        } finally {
+            staged.lock.unlock();
+        }
+    }
+
+    /**
+     * Store the uploaded content in the repository. The upload is discarded once the session is saved.
+     */
+    @Override
+    public Upload finish(Session session, String owner, String id) throws RepositoryException, IOException {
+        StagedUpload staged = find(owner, id);
+        if (!staged.lock.tryLock()) {
+            throw new UploadConflictException("A chunk of upload " + id + " is being received", staged.upload.offset());
+        }
+        try {
+            Upload upload = staged.upload;
+            if (!upload.hasAllBytes()) {
+                throw new UploadConflictException("Upload " + id + " is incomplete", upload.offset());
+            }
+            String sha256 = HexFormat.of().formatHex(staged.digest(dataPath(id)).digest());
+            // completing the digest reset it, it is recomputed if the upload has to be finished again
+            staged.digest = null;
+            if (upload.sha256() != null && !upload.sha256().equals(sha256)) {
+                discard(id);
+                throw new RepositoryException("Content of upload " + id + " does not match its announced SHA-256");
+            }
+            upload = upload.withSha256(sha256);
+            Binary binary = deduplicator.find(session, sha256, upload.length());
+            boolean reused = binary != null;
+            if (!reused) {
+                try (InputStream inputStream = Files.newInputStream(dataPath(id))) {
+                    binary = session.getValueFactory().createBinary(inputStream);
+                }
+            }
+            try {
+                String written = store(session, upload, binary);
+                session.save();
+                nodeCacheInvalidator.invalidateTrees(List.of(written));
+            } finally {
+                binary.dispose();
+            }
+            if (reused) {
+                deduplicator.recordHit(upload.length());
+            } else {
+                deduplicator.recordMiss();
+            }
+            discard(id);
+            return upload;
+        } finally {
+            staged.lock.unlock();
+        }
+    }
+
+    @Override
+    public void cancel(String owner, String id) throws RepositoryException, IOException {
+        StagedUpload staged = find(owner, id);
+        if (!staged.lock.tryLock()) {
+            throw new UploadConflictException("A chunk of upload " + id + " is being received", staged.upload.offset());
+        }
+        try {
+            discard(id);
+        } finally {
+            staged.lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    public void removeExpiredUploads() {
+        long expiredBefore = System.currentTimeMillis() - properties.getExpireAfterMillis();
+        for (StagedUpload staged : uploads.values()) {
+            if (staged.upload.lastModified() < expiredBefore && staged.lock.tryLock()) {
+                try {
+                    LOG.debug("Removing expired upload {}", staged.upload.id());
+                    discard(staged.upload.id());
+                } catch (IOException e) {
+                    LOG.warn("Failed to remove expired upload {}: {}", staged.upload.id(), e.getMessage());
+                } finally {
+                    staged.lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the binary on the target node, or on the content of a file created or replaced in the target folder.
+     * @return the path of the node written, or of the file with its content
+     */
+    private static String store(Session session, Upload upload, Binary binary) throws RepositoryException {
+        Node node = session.getNode(upload.path());
+        if (upload.fileName() == null) {
+            node.setProperty(upload.property(), binary);
+            if (upload.property().equals(JcrConstants.JCR_DATA)) {
+                BinaryDeduplicator.markHashed(node, upload.sha256());
+            }
+            return node.getPath();
+        }
+        Node file = node.hasNode(upload.fileName())
+            ? node.getNode(upload.fileName())
+            : node.addNode(upload.fileName(), JcrConstants.NT_FILE);
+        Node content = file.hasNode(JcrConstants.JCR_CONTENT)
+            ? file.getNode(JcrConstants.JCR_CONTENT)
+            : file.addNode(JcrConstants.JCR_CONTENT, JcrConstants.NT_RESOURCE);
+        content.setProperty(JcrConstants.JCR_DATA, binary);
+        content.setProperty(JcrConstants.JCR_MIMETYPE, upload.mimeType() != null ? upload.mimeType() : "application/octet-stream");
+        content.setProperty(JcrConstants.JCR_LASTMODIFIED, Calendar.getInstance());
+        BinaryDeduplicator.markHashed(content, upload.sha256());
+        return file.getPath();
+    }
+
+    private StagedUpload find(String owner, String id) throws RepositoryException {
+        StagedUpload staged = id == null ? null : uploads.get(id);
+        if (staged == null || !Objects.equals(staged.upload.owner(), owner)) {
+            throw new PathNotFoundException("No upload " + id);
+        }
+        return staged;
+    }
+
+    private void discard(String id) throws IOException {
+        uploads.remove(id);
+        Files.deleteIfExists(statePath(id));
+        Files.deleteIfExists(dataPath(id));
+    }
+
+    private void saveState(Upload upload) throws IOException {
+        Path temporary = stagingDirectory.resolve(upload.id() + STATE_SUFFIX + ".tmp");
+        objectMapper.writeValue(temporary.toFile(), upload);
+        Files.move(temporary, statePath(upload.id()), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path dataPath(String id) {
+        return stagingDirectory.resolve(id + DATA_SUFFIX);
+    }
+
+    private Path statePath(String id) {
+        return stagingDirectory.resolve(id + STATE_SUFFIX);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class StagedUpload {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Upload upload;
+        private MessageDigest digest;
+
+        private StagedUpload(Upload upload) {
+            this.upload = upload;
+        }
+
+        /**
+         * Digest of the bytes staged so far, recomputed from the staging file after a restart or an interrupted chunk.
+         */
+        private MessageDigest digest(Path data) throws IOException {
+            if (digest == null) {
+                MessageDigest rebuilt = sha256();
+                try (InputStream inputStream = Files.newInputStream(data)) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    long remaining = upload.offset();
+                    int read;
+                    while (remaining > 0 && (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                        rebuilt.update(buffer, 0, read);
+                        remaining -= read;
+                    }
+                }
+                digest = rebuilt;
+            }
+            return digest;
+        }
+    }
+}
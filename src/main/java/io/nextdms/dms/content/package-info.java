@@ -0,0 +1,4 @@
+/**
+ * Reading and writing the binary content of documents.
+ */
+package io.nextdms.dms.content;
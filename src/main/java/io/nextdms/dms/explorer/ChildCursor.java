@@ -0,0 +1,38 @@
+package io.nextdms.dms.explorer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Continuation cursor of a paginated child listing: the position reached and the name of the last child returned.
+ * <p>
+ * The position lets the next page skip directly to where the previous one stopped; the name is checked against the
+ * child found there so that insertions or removals between two pages fall back to a start-after-name lookup.
+ *
+ * @param position number of children already returned
+ * @param name name (with same-name-sibling index) of the last child returned
+ */
+public record ChildCursor(long position, String name) {
+    private static final char SEPARATOR = ':';
+
+    public String encode() {
+        String raw = position + String.valueOf(SEPARATOR) + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static ChildCursor decode(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf(SEPARATOR);
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        long position = Long.parseLong(decoded.substring(0, separator));
+        if (position < 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        return new ChildCursor(position, decoded.substring(separator + 1));
+    }
+}
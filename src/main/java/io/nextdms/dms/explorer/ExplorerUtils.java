@@ -1,187 +1,313 @@
 package io.nextdms.dms.explorer;
 
+import io.nextdms.dms.content.BinaryDeduplicator;
+import io.nextdms.dms.explorer.query.CountMode;
+import io.nextdms.dms.explorer.query.SearchPage;
 import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrNodePage;
+import io.nextdms.dto.explorer.JcrNodeSummary;
 import io.nextdms.dto.explorer.JcrProperty;
 import io.nextdms.dto.explorer.JcrValue;
 import jakarta.validation.constraints.NotBlank;
-import java.time.LocalDate;
-import java.time.ZoneId;
+import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import javax.jcr.*;
 import javax.jcr.nodetype.NodeType;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
 import javax.jcr.query.QueryResult;
+import javax.jcr.query.RowIterator;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
 public class ExplorerUtils {
 
+    /**
+     * Variable of the search statements to which the searched text is bound.
+     */
+    public static final String SEARCH_TEXT_VARIABLE = "text";
+
     public static List<JcrNode> getChildreen(Node node) throws RepositoryException {
+        return getChildreen(node, PropertyProjection.ALL);
+    }
+
+    public static List<JcrNode> getChildreen(Node node, PropertyProjection projection) throws RepositoryException {
+        return getChildreen(node, projection, ExplorerUtils::toJcrNode);
+    }
+
+    public static List<JcrNode> getChildreen(Node node, PropertyProjection projection, JcrNodeConverter converter)
+        throws RepositoryException {
         List<JcrNode> children = new ArrayList<>();
         NodeIterator nodeIterator = node.getNodes();
         while (nodeIterator.hasNext()) {
-            Node childNode = nodeIterator.nextNode();
-            JcrNode jcrNode = new JcrNode(
-                childNode.getIdentifier(),
-                childNode.getName(),
-                childNode.getPath(),
-                childNode.getPrimaryNodeType().getName(),
-                Stream.of(node.getMixinNodeTypes()).map(NodeType::getName).toList(),
-                getProperties(childNode)
-            );
-            children.add(jcrNode);
+            children.add(converter.convert(nodeIterator.nextNode(), projection));
         }
         return children;
     }
 
+    /**
+     * Hand every child to the consumer as soon as it is read, without collecting the listing.
+     */
+    public static void forEachChild(Node node, PropertyProjection projection, JcrNodeConverter converter, JcrNodeConsumer consumer)
+        throws RepositoryException, IOException {
+        forEach(node.getNodes(), projection, converter, consumer);
+    }
+
+    public static void forEach(NodeIterator nodeIterator, PropertyProjection projection, JcrNodeConsumer consumer)
+        throws RepositoryException, IOException {
+        forEach(nodeIterator, projection, ExplorerUtils::toJcrNode, consumer);
+    }
+
+    public static void forEach(
+        NodeIterator nodeIterator,
+        PropertyProjection projection,
+        JcrNodeConverter converter,
+        JcrNodeConsumer consumer
+    ) throws RepositoryException, IOException {
+        while (nodeIterator.hasNext()) {
+            consumer.accept(converter.convert(nodeIterator.nextNode(), projection));
+        }
+    }
+
+    /**
+     * Read one page of children, starting after the child designated by the cursor.
+     */
+    public static JcrNodePage getChildreenPage(
+        Node node,
+        ChildCursor after,
+        int pageSize,
+        PropertyProjection projection,
+        JcrNodeConverter converter
+    ) throws RepositoryException {
+        NodeIterator nodeIterator = positionAfter(node, after);
+        List<JcrNode> children = new ArrayList<>(Math.min(pageSize, 256));
+        String lastName = null;
+        while (nodeIterator.hasNext() && children.size() < pageSize) {
+            Node childNode = nodeIterator.nextNode();
+            children.add(converter.convert(childNode, projection));
+            lastName = segmentName(childNode);
+        }
+        String nextCursor = nodeIterator.hasNext() ? new ChildCursor(nodeIterator.getPosition(), lastName).encode() : null;
+        return new JcrNodePage(children, nextCursor);
+    }
+
+    private static NodeIterator positionAfter(Node node, ChildCursor after) throws RepositoryException {
+        NodeIterator nodeIterator = node.getNodes();
+        if (after == null || after.position() == 0) {
+            return nodeIterator;
+        }
+        if (skip(nodeIterator, after.position() - 1) && nodeIterator.hasNext()) {
+            if (segmentName(nodeIterator.nextNode()).equals(after.name())) {
+                return nodeIterator;
+            }
+        }
+        // children were added or removed since the previous page, look the last returned child up by name
+        NodeIterator scan = node.getNodes();
+        while (scan.hasNext()) {
+            if (segmentName(scan.nextNode()).equals(after.name())) {
+                return scan;
+            }
+        }
+        // the last returned child is gone, resume at the same position
+        NodeIterator resume = node.getNodes();
+        skip(resume, after.position());
+        return resume;
+    }
+
+    private static boolean skip(NodeIterator nodeIterator, long count) {
+        try {
+            nodeIterator.skip(count);
+            return true;
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+    }
+
+    private static String segmentName(Node node) throws RepositoryException {
+        return node.getIndex() > 1 ? node.getName() + "[" + node.getIndex() + "]" : node.getName();
+    }
+
+    public static JcrNode toJcrNode(Node node, PropertyProjection projection) throws RepositoryException {
+        return new JcrNode(
+            node.getIdentifier(),
+            node.getName(),
+            node.getPath(),
+            node.getPrimaryNodeType().getName(),
+            Stream.of(node.getMixinNodeTypes()).map(NodeType::getName).toList(),
+            getProperties(node, projection)
+        );
+    }
+
+    public static JcrNodeSummary toJcrNodeSummary(Node node) throws RepositoryException {
+        return new JcrNodeSummary(
+            node.getIdentifier(),
+            node.getName(),
+            node.getPath(),
+            node.getPrimaryNodeType().getName(),
+            node.hasNodes()
+        );
+    }
+
+    /**
+     * Paths from the root down to the given path, e.g. {@code /, /a, /a/b} for {@code /a/b}.
+     */
+    public static List<String> ancestorPaths(String path) {
+        String normalized = path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        List<String> paths = new ArrayList<>();
+        paths.add("/");
+        int index = 0;
+        while ((index = normalized.indexOf('/', index + 1)) > 0) {
+            paths.add(normalized.substring(0, index));
+        }
+        if (normalized.length() > 1) {
+            paths.add(normalized);
+        }
+        return paths;
+    }
+
+    /**
+     * Restrict already converted properties to the projection.
+     */
+    public static Map<String, JcrProperty> project(Map<String, JcrProperty> properties, PropertyProjection projection) {
+        if (projection.isAll()) {
+            return properties;
+        }
+        Map<String, JcrProperty> projected = new HashMap<>(projection.names().size());
+        for (String name : projection.names()) {
+            JcrProperty property = properties.get(name);
+            if (property != null) {
+                projected.put(name, property);
+            }
+        }
+        return projected;
+    }
+
     public static Map<String, JcrProperty> getProperties(Node node) throws RepositoryException {
         Map<String, JcrProperty> properties = new HashMap<>();
         PropertyIterator propertyIterator = node.getProperties();
         while (propertyIterator.hasNext()) {
             Property property = propertyIterator.nextProperty();
-            JcrProperty jcrProperty = new JcrProperty(
-                property.getName(),
-                property.getType(),
-                property.isMultiple(),
-                property.getDefinition().isProtected(),
-                getJcrValues(property)
-            );
-            properties.put(property.getName(), jcrProperty);
+            properties.put(property.getName(), toJcrProperty(property));
         }
         return properties;
     }
 
-    static JcrValue[] getJcrValues(Property property) throws RepositoryException {
-        if (property.isMultiple()) {
-            Value[] values = property.getValues();
-            JcrValue[] jcrValues = new JcrValue[values.length];
-            for (int i = 0; i < values.length; i++) {
-                jcrValues[i] = convertValue(values[i], values[i].getType());
+    /**
+     * Read only the properties selected by the projection. Named projections look each property up directly,
+     * so the {@link PropertyIterator} is only used when all properties are requested.
+     */
+    public static Map<String, JcrProperty> getProperties(Node node, PropertyProjection projection) throws RepositoryException {
+        if (projection.isAll()) {
+            return getProperties(node);
+        }
+        Map<String, JcrProperty> properties = new HashMap<>(projection.names().size());
+        for (String name : projection.names()) {
+            if (node.hasProperty(name)) {
+                properties.put(name, toJcrProperty(node.getProperty(name)));
             }
-            return jcrValues;
-        } else {
-            Calendar calendar = property.getDate();
-            Date date = (calendar != null) ? calendar.getTime() : null;
-            LocalDate localDate = (calendar != null) ? calendar.toInstant().atZone(ZoneId.systemDefault()).toLocalDate() : null;
-            var jcrValue = new JcrValue(
-                property.getBoolean(),
-                date,
-                localDate,
-                null,
-                null,
-                property.getDecimal(),
-                property.getDouble(),
-                property.getLong(),
-                property.getString(),
-                true,
-                PropertyType.nameFromValue(property.getType())
-            );
-            return new JcrValue[] { jcrValue };
         }
+        return properties;
     }
 
-    private static JcrValue convertValue(Value value, int type) throws ValueFormatException, RepositoryException {
-        var jcrValue = new JcrValue();
-        switch (type) {
-            case PropertyType.BOOLEAN:
-                jcrValue.setPropertyType(PropertyType.TYPENAME_BOOLEAN);
-                jcrValue.setBooleanValue(value.getBoolean());
-                break;
-            case PropertyType.DATE:
-                jcrValue.setPropertyType(PropertyType.TYPENAME_DATE);
-                Calendar calendar = value.getDate();
-                Date date = (calendar != null) ? calendar.getTime() : null;
-                LocalDate localDate = (calendar != null) ? calendar.toInstant().atZone(ZoneId.systemDefault()).toLocalDate() : null;
-                jcrValue.setDateValue(date);
-                jcrValue.setLocalDateValue(localDate);
-                break;
-            case PropertyType.DECIMAL:
-                jcrValue.setPropertyType(PropertyType.TYPENAME_DECIMAL);
-                jcrValue.setDecimalValue(value.getDecimal());
-                break;
-            case PropertyType.DOUBLE:
-                jcrValue.setPropertyType(PropertyType.TYPENAME_DOUBLE);
-                jcrValue.setDoubleValue(value.getDouble());
-                break;
-            case PropertyType.LONG:
-                jcrValue.setPropertyType(PropertyType.TYPENAME_LONG);
-                jcrValue.setLongValue(value.getLong());
-                break;
-            case PropertyType.STRING:
-                jcrValue.setPropertyType(PropertyType.TYPENAME_STRING);
-                jcrValue.setStringValue(value.getString());
-                break;
-            case PropertyType.NAME:
-            case PropertyType.PATH:
-            case PropertyType.UNDEFINED:
-            case PropertyType.URI:
-            case PropertyType.BINARY:
-            case PropertyType.WEAKREFERENCE:
-            default:
-                break;
-        }
-        return jcrValue;
+    public static JcrProperty toJcrProperty(Property property) throws RepositoryException {
+        return new JcrProperty(
+            property.getName(),
+            property.getType(),
+            property.isMultiple(),
+            property.getDefinition().isProtected(),
+            getJcrValues(property)
+        );
+    }
+
+    static JcrValue[] getJcrValues(Property property) throws RepositoryException {
+        return JcrValueConverter.toJcrValues(property);
     }
 
     public static void setNodeProperty(Node node, String name, JcrProperty prop) throws RepositoryException {
+        ValueFactory valueFactory = node.getSession().getValueFactory();
         if (prop.multiValue()) {
-            Value[] values = Arrays.stream(prop.values())
-                .map(jcrValue -> {
-                    try {
-                        return node.getSession().getValueFactory().createValue(jcrValue.getStringValue(), prop.type());
-                    } catch (RepositoryException e) {
-                        throw new RuntimeException(e);
-                    }
-                })
-                .toArray(Value[]::new);
+            Value[] values = new Value[prop.values().length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = JcrValueConverter.toValue(valueFactory, prop.values()[i]);
+            }
             node.setProperty(name, values);
         } else {
-            JcrValue jcrValue = prop.values()[0];
-            switch (prop.type()) {
-                case PropertyType.BOOLEAN:
-                    node.setProperty(name, jcrValue.getBooleanValue());
-                    break;
-                case PropertyType.DATE:
-                    Calendar calendar = Calendar.getInstance();
-                    calendar.setTime(jcrValue.getDateValue());
-                    node.setProperty(name, calendar);
-                    break;
-                case PropertyType.DECIMAL:
-                    node.setProperty(name, jcrValue.getDecimalValue());
-                    break;
-                case PropertyType.DOUBLE:
-                    node.setProperty(name, jcrValue.getDoubleValue());
-                    break;
-                case PropertyType.LONG:
-                    node.setProperty(name, jcrValue.getLongValue());
-                    break;
-                case PropertyType.STRING:
-                    node.setProperty(name, jcrValue.getStringValue());
-                    break;
-                default:
-                    throw new RepositoryException("Unsupported property type: " + prop.type());
+            node.setProperty(name, JcrValueConverter.toValue(valueFactory, prop.values()[0]));
+        }
+        BinaryDeduplicator.clearHash(node, name);
+    }
+
+    /**
+     * Path of the source node once moved or copied under the destination, without the same-name sibling index of its name
+     */
+    public static String childPath(String sourcePath, String destinationPath) {
+        String sourceName = sourcePath.substring(sourcePath.lastIndexOf('/') + 1);
+        if (sourceName.indexOf('[') >= 0) {
+            sourceName = sourceName.substring(0, sourceName.indexOf('['));
+        }
+        return destinationPath.equals("/") ? destinationPath + sourceName : destinationPath + "/" + sourceName;
+    }
+
+    /**
+     * Set the property only when the submitted values differ from the persisted ones. Protected properties and binary
+     * descriptors are never written.
+     * @return whether the property was written
+     */
+    public static boolean updateNodeProperty(Node node, String name, JcrProperty prop) throws RepositoryException {
+        for (JcrValue value : prop.values()) {
+            if (value instanceof JcrValue.BinaryValue) {
+                return false;
             }
         }
+        if (node.hasProperty(name)) {
+            Property property = node.getProperty(name);
+            if (property.getDefinition().isProtected() || hasValues(property, prop)) {
+                return false;
+            }
+        }
+        setNodeProperty(node, name, prop);
+        return true;
     }
 
-    // TODO : add support for ordering (path, lastModified, etc)
-    public static String transformTofullTextSearchNonExclusiveQuery(String query) {
-        return String.format("SELECT * FROM [nt:base] WHERE CONTAINS(s.*, '%s')", query);
+    private static boolean hasValues(Property property, JcrProperty prop) throws RepositoryException {
+        if (property.isMultiple() != prop.multiValue()) {
+            return false;
+        }
+        ValueFactory valueFactory = property.getSession().getValueFactory();
+        if (!property.isMultiple()) {
+            return prop.values().length > 0 && property.getValue().equals(JcrValueConverter.toValue(valueFactory, prop.values()[0]));
+        }
+        Value[] values = property.getValues();
+        if (values.length != prop.values().length) {
+            return false;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!values[i].equals(JcrValueConverter.toValue(valueFactory, prop.values()[i]))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     // TODO : add support for ordering (path, lastModified, etc)
-    public static String transformToXPathSearchNonExclusiveQuery(String query, @NotBlank String targetPath) {
-        return String.format("%s//element(*, nt:base)[jcr:contains(., '%s')]", targetPath, query);
+    /**
+     * Full text search statement, the searched text being bound to {@value #SEARCH_TEXT_VARIABLE}, so that every search
+     * has the same shape.
+     */
+    public static String fullTextSearchStatement() {
+        return "SELECT * FROM [nt:base] AS s WHERE CONTAINS(s.*, $" + SEARCH_TEXT_VARIABLE + ")";
     }
 
     // TODO : add support for ordering (path, lastModified, etc)
-    public static String transformSqlSearchNonExclusiveQuery(String query, @NotBlank String targetPath) {
-        return String.format("SELECT * FROM [nt:base] WHERE [nt:base] LIKE '%s%' AND CONTAINS(*, '%s')", targetPath, query);
+    /**
+     * Full text search statement below a path, the searched text being bound to {@value #SEARCH_TEXT_VARIABLE}. JCR-SQL2
+     * only takes a literal path in ISDESCENDANTNODE, so there is one shape per path.
+     */
+    public static String fullTextSearchStatement(@NotBlank String targetPath) {
+        String path = targetPath.replace("'", "''");
+        return "SELECT * FROM [nt:base] AS s WHERE ISDESCENDANTNODE(s, '" + path + "') AND CONTAINS(s.*, $" + SEARCH_TEXT_VARIABLE + ")";
     }
 
     public static QueryResult createQuery(QueryManager queryManager, String queryStr, String queryType, Pageable pageable)
@@ -199,19 +325,24 @@ public class ExplorerUtils {
     }
 
     public static List<JcrNode> getSearcResult(Session session, QueryResult queryResult) throws RepositoryException {
+        return getSearcResult(session, queryResult, PropertyProjection.ALL);
+    }
+
+    public static List<JcrNode> getSearcResult(Session session, QueryResult queryResult, PropertyProjection projection)
+        throws RepositoryException {
+        return getSearcResult(session, queryResult, projection, ExplorerUtils::toJcrNode);
+    }
+
+    public static List<JcrNode> getSearcResult(
+        Session session,
+        QueryResult queryResult,
+        PropertyProjection projection,
+        JcrNodeConverter converter
+    ) throws RepositoryException {
         List<JcrNode> nodesList = new ArrayList<>();
         NodeIterator nodes = queryResult.getNodes();
         while (nodes.hasNext()) {
-            Node node = nodes.nextNode();
-            JcrNode jcrNode = new JcrNode(
-                node.getIdentifier(),
-                node.getName(),
-                node.getPath(),
-                node.getPrimaryNodeType().getName(),
-                Stream.of(node.getMixinNodeTypes()).map(NodeType::getName).toList(),
-                getProperties(node)
-            );
-            nodesList.add(jcrNode);
+            nodesList.add(converter.convert(nodes.nextNode(), projection));
         }
         return nodesList;
     }
@@ -224,33 +355,66 @@ public class ExplorerUtils {
         }
     }
 
-    public static int getSearchTotalCount(QueryManager queryManager, Pageable pageable, String queryType, String query)
-        throws RepositoryException {
-        if (pageable == null) {
-            return 0;
+    /**
+     * Read one page of results and count the results as the count mode asks, in a single execution of the query: the
+     * results before the page are skipped by the query engine, and the results after it are counted as rows, without
+     * reading their nodes.
+     * @param query query without limit nor offset
+     * @param pageable the page to read, all the results when {@code null}
+     * @param countLimit number of results counted past the page with {@link CountMode#ESTIMATE}
+     * @return the page and the number of rows read to build it, the skipped offset included
+     */
+    public static SearchPageRead getSearchPage(
+        Query query,
+        Pageable pageable,
+        CountMode countMode,
+        long countLimit,
+        PropertyProjection projection,
+        JcrNodeConverter converter
+    ) throws RepositoryException {
+        if (pageable == null || pageable.isUnpaged()) {
+            List<JcrNode> content = new ArrayList<>();
+            RowIterator rows = query.execute().getRows();
+            while (rows.hasNext()) {
+                content.add(converter.convert(rows.nextRow().getNode(), projection));
+            }
+            return new SearchPageRead(new SearchPage<>(content, Pageable.unpaged(), content.size(), countMode, true), content.size());
+        }
+        int pageSize = pageable.getPageSize();
+        query.setOffset(pageable.getOffset());
+        switch (countMode) {
+            case NONE -> query.setLimit(pageSize + 1L);
+            case ESTIMATE -> query.setLimit(pageSize + countLimit);
+            case EXACT -> {}
+        }
+        RowIterator rows = query.execute().getRows();
+        long size = countMode == CountMode.ESTIMATE ? rows.getSize() : -1;
+        List<JcrNode> content = new ArrayList<>(pageSize);
+        while (content.size() < pageSize && rows.hasNext()) {
+            content.add(converter.convert(rows.nextRow().getNode(), projection));
+        }
+        long remaining = 0;
+        long rowsRead = pageable.getOffset() + content.size();
+        if (size >= 0) {
+            remaining = size - content.size();
         } else {
-            return switch (queryType) {
-                case Query.JCR_SQL2:
-                    Query sqlQuery = queryManager.createQuery(transformToCountQuery(query), queryType);
-                    QueryResult sqlResult = sqlQuery.execute();
-                    yield (int) sqlResult.getNodes().getSize(); // we might need to change this to a more efficient way . and avoid trunckating
-                case Query.XPATH:
-                    Query xpathQuery = queryManager.createQuery(String.format("COUNT(%s)", query), queryType);
-                    QueryResult xpathResult = xpathQuery.execute();
-                    yield (int) xpathResult.getNodes().getSize();
-                default:
-                    yield 0;
-            };
+            while (rows.hasNext()) {
+                rows.nextRow();
+                remaining++;
+            }
+            rowsRead += remaining;
         }
+        boolean exact = switch (countMode) {
+            case EXACT -> true;
+            case ESTIMATE -> content.size() + remaining < pageSize + countLimit;
+            case NONE -> remaining == 0;
+        };
+        long total = pageable.getOffset() + content.size() + remaining;
+        return new SearchPageRead(new SearchPage<>(content, pageable, total, countMode, exact), rowsRead);
     }
 
-    public static String transformToCountQuery(String query) {
-        // Regular expression pattern to match 'SELECT' (case-insensitive),
-        // followed by any characters, and then 'FROM' (case-insensitive).
-        String regex = "(?i)SELECT\\s+.*?\\s+FROM";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(query);
-        // Replace the part between SELECT and FROM with newSelection
-        return matcher.replaceFirst("SELECT COUNT(*) FROM");
-    }
+    /**
+     * A page of search results and the number of rows read to build it.
+     */
+    public record SearchPageRead(SearchPage<JcrNode> page, long rowsRead) {}
 }
@@ -1,7 +1,13 @@
 package io.nextdms.dms.explorer;
 
+import io.nextdms.dms.explorer.query.CountMode;
+import io.nextdms.dms.explorer.query.SearchPage;
+import io.nextdms.dto.explorer.JcrBreadcrumb;
 import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrNodePage;
+import io.nextdms.dto.explorer.JcrNodeTypeCatalog;
 import io.nextdms.dto.explorer.JcrProperty;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import javax.jcr.Node;
@@ -12,14 +18,42 @@ import org.springframework.data.domain.Pageable;
 
 public interface IExplorerReadService {
     List<Map<String, List<JcrNode>>> getNodeTree(Session session, String path) throws RepositoryException;
+    JcrBreadcrumb getBreadcrumb(Session session, String path, String UUID, boolean includeSiblings, int maxSiblings)
+        throws RepositoryException;
     List<JcrNode> getNode(Session session, String path, String UUID) throws RepositoryException;
+    List<JcrNode> getNode(Session session, String path, String UUID, PropertyProjection projection) throws RepositoryException;
+    void streamNode(Session session, String path, String UUID, PropertyProjection projection, JcrNodeConsumer consumer)
+        throws RepositoryException, IOException;
+    JcrNodePage getNodePage(Session session, String path, String UUID, String cursor, int pageSize, PropertyProjection projection)
+        throws RepositoryException;
     Map<String, JcrProperty> getProperties(Session session, Node node) throws RepositoryException;
     Map<String, JcrProperty> getProperties(Session session, String path, String uuid) throws RepositoryException;
+    Map<String, JcrProperty> getProperties(Session session, String path, String uuid, PropertyProjection projection)
+        throws RepositoryException;
     List<String> getAvailableNodeTypes(Session session) throws RepositoryException;
     List<String> getMixinNodeTypes(Session session) throws RepositoryException;
-    Page<JcrNode> fullTextSearch(Session session, String query, Pageable pageable) throws RepositoryException;
-    Page<JcrNode> xpathSearch(Session session, String query, Pageable pageable) throws RepositoryException;
-    Page<JcrNode> sqlSearch(Session session, String query, Pageable pageable) throws RepositoryException;
+    JcrNodeTypeCatalog getNodeTypeCatalog(Session session) throws RepositoryException;
+    Page<JcrNode> fullTextSearch(Session session, String text, Pageable pageable) throws RepositoryException;
+    SearchPage<JcrNode> fullTextSearch(Session session, String text, Pageable pageable, PropertyProjection projection, CountMode countMode)
+        throws RepositoryException;
+    Page<JcrNode> xpathSearch(Session session, String text, String targetPath, Pageable pageable) throws RepositoryException;
+    SearchPage<JcrNode> xpathSearch(
+        Session session,
+        String text,
+        String targetPath,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException;
+    Page<JcrNode> sqlSearch(Session session, String text, String targetPath, Pageable pageable) throws RepositoryException;
+    SearchPage<JcrNode> sqlSearch(
+        Session session,
+        String text,
+        String targetPath,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException;
     List<Map<String, String>> getNodeTypeIcons(Session session) throws RepositoryException;
     String getBrowsableContentFilterRegex(Session session) throws RepositoryException;
 }
@@ -1,8 +1,12 @@
 package io.nextdms.dms.explorer;
 
+import io.nextdms.dto.explorer.JcrBatchResult;
 import io.nextdms.dto.explorer.JcrNode;
 import io.nextdms.dto.explorer.JcrProperty;
+import io.nextdms.dto.explorer.JcrPropertyChanges;
+import io.nextdms.dto.explorer.JcrWriteOperation;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -29,9 +33,10 @@ public interface IExplorerWriteService {
     String saveNodeDetails(Session session, String sourcePath, JcrNode jcrNode) throws RepositoryException;
     String addNewProperty(Session session, String sourcePath, String name, JcrProperty value) throws RepositoryException;
     String deleteProperty(Session session, String sourcePath, String name) throws RepositoryException;
-    String saveProperties(Session session, String sourcePath, JcrNode jcrNode) throws RepositoryException;
+    JcrPropertyChanges saveProperties(Session session, String sourcePath, JcrNode jcrNode) throws RepositoryException;
     String saveProperty(Session session, String sourcePath, String property, JcrProperty value) throws RepositoryException;
     String savePropertyBinaryValue(Session session, String sourcePath, String property, InputStream value) throws RepositoryException;
     Boolean addNodeTypes(Session session, String cnd) throws RepositoryException;
     Boolean changeNodeTypeIconAssociation(Session session, String nodeType, String iconPath) throws RepositoryException;
+    JcrBatchResult applyBatch(Session session, List<JcrWriteOperation> operations) throws RepositoryException;
 }
@@ -0,0 +1,12 @@
+package io.nextdms.dms.explorer;
+
+import io.nextdms.dto.explorer.JcrNode;
+import java.io.IOException;
+
+/**
+ * Receives nodes one by one while a listing or a query result is being iterated, e.g. to stream them to a client.
+ */
+@FunctionalInterface
+public interface JcrNodeConsumer {
+    void accept(JcrNode node) throws IOException;
+}
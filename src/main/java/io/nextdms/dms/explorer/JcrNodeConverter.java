@@ -0,0 +1,14 @@
+package io.nextdms.dms.explorer;
+
+import io.nextdms.dto.explorer.JcrNode;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+/**
+ * Converts a repository node to its explorer representation, e.g. directly with {@link ExplorerUtils#toJcrNode} or
+ * through a cache.
+ */
+@FunctionalInterface
+public interface JcrNodeConverter {
+    JcrNode convert(Node node, PropertyProjection projection) throws RepositoryException;
+}
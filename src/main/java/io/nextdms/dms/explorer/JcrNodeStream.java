@@ -0,0 +1,13 @@
+package io.nextdms.dms.explorer;
+
+import java.io.IOException;
+import javax.jcr.RepositoryException;
+
+/**
+ * Nodes ready to be handed one by one to a consumer, e.g. the result of a query already executed, so that its errors
+ * are raised before anything is written.
+ */
+@FunctionalInterface
+public interface JcrNodeStream {
+    void forEach(JcrNodeConsumer consumer) throws RepositoryException, IOException;
+}
@@ -0,0 +1,203 @@
+package io.nextdms.dms.explorer;
+
+import io.nextdms.dto.explorer.JcrValue;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.jackrabbit.api.JackrabbitValue;
+
+/**
+ * Conversion between JCR values and {@link JcrValue} records.
+ * <p>
+ * The property type is read once and selects the only getter that is called, so no value is converted to a type it is
+ * not stored as. Single-valued properties are read straight from the property, without creating a {@link Value}.
+ * <p>
+ * Binary values are never read: they are described by their length, the content identity of their blob, the mime type
+ * of their node and the URL their content can be downloaded from.
+ */
+public final class JcrValueConverter {
+
+    /**
+     * Base path and download mapping of the files endpoint, shared with the controller so that the download URLs of the
+     * binary values always designate the endpoint serving them.
+     */
+    public static final String FILES_PATH = "/api/content/files";
+    public static final String DOWNLOAD_MAPPING = "/download";
+
+    /**
+     * Endpoint streaming the content of a binary property, see {@link #downloadUrl(String, String, int)}.
+     */
+    public static final String DOWNLOAD_PATH = FILES_PATH + DOWNLOAD_MAPPING;
+
+    private static final JcrValue[] NO_VALUES = new JcrValue[0];
+
+    private JcrValueConverter() {}
+
+    public static JcrValue[] toJcrValues(Property property) throws RepositoryException {
+        int type = property.getType();
+        if (type == PropertyType.BINARY) {
+            return toBinaryValues(property);
+        }
+        if (!property.isMultiple()) {
+            return new JcrValue[] { toJcrValue(property, type) };
+        }
+        Value[] values = property.getValues();
+        if (values.length == 0) {
+            return NO_VALUES;
+        }
+        JcrValue[] jcrValues = new JcrValue[values.length];
+        for (int i = 0; i < values.length; i++) {
+            jcrValues[i] = toJcrValue(values[i], type);
+        }
+        return jcrValues;
+    }
+
+    public static JcrValue toJcrValue(Property property, int type) throws RepositoryException {
+        return switch (type) {
+            case PropertyType.BINARY -> toBinaryValues(property)[0];
+            case PropertyType.LONG -> new JcrValue.LongValue(property.getLong());
+            case PropertyType.DOUBLE -> new JcrValue.DoubleValue(property.getDouble());
+            case PropertyType.DATE -> new JcrValue.DateValue(toOffsetDateTime(property.getDate()));
+            case PropertyType.BOOLEAN -> new JcrValue.BooleanValue(property.getBoolean());
+            case PropertyType.DECIMAL -> new JcrValue.DecimalValue(property.getDecimal());
+            default -> toStringTypedValue(property.getString(), type);
+        };
+    }
+
+    public static JcrValue toJcrValue(Value value, int type) throws RepositoryException {
+        return switch (type) {
+            case PropertyType.BINARY -> toBinaryValue(value);
+            case PropertyType.LONG -> new JcrValue.LongValue(value.getLong());
+            case PropertyType.DOUBLE -> new JcrValue.DoubleValue(value.getDouble());
+            case PropertyType.DATE -> new JcrValue.DateValue(toOffsetDateTime(value.getDate()));
+            case PropertyType.BOOLEAN -> new JcrValue.BooleanValue(value.getBoolean());
+            case PropertyType.DECIMAL -> new JcrValue.DecimalValue(value.getDecimal());
+            default -> toStringTypedValue(value.getString(), type);
+        };
+    }
+
+    /**
+     * JCR value holding the given {@link JcrValue}. Binary values cannot be written this way, their content is uploaded
+     * separately.
+     */
+    public static Value toValue(ValueFactory valueFactory, JcrValue jcrValue) throws RepositoryException {
+        if (jcrValue instanceof JcrValue.StringValue value) {
+            return valueFactory.createValue(value.value());
+        } else if (jcrValue instanceof JcrValue.LongValue value) {
+            return valueFactory.createValue(value.value());
+        } else if (jcrValue instanceof JcrValue.DoubleValue value) {
+            return valueFactory.createValue(value.value());
+        } else if (jcrValue instanceof JcrValue.DateValue value) {
+            return valueFactory.createValue(toCalendar(value.value()));
+        } else if (jcrValue instanceof JcrValue.BooleanValue value) {
+            return valueFactory.createValue(value.value());
+        } else if (jcrValue instanceof JcrValue.DecimalValue value) {
+            return valueFactory.createValue(value.value());
+        } else if (jcrValue instanceof JcrValue.NameValue value) {
+            return valueFactory.createValue(value.value(), PropertyType.NAME);
+        } else if (jcrValue instanceof JcrValue.PathValue value) {
+            return valueFactory.createValue(value.value(), PropertyType.PATH);
+        } else if (jcrValue instanceof JcrValue.ReferenceValue value) {
+            return valueFactory.createValue(value.value(), PropertyType.REFERENCE);
+        } else if (jcrValue instanceof JcrValue.WeakReferenceValue value) {
+            return valueFactory.createValue(value.value(), PropertyType.WEAKREFERENCE);
+        } else if (jcrValue instanceof JcrValue.UriValue value) {
+            return valueFactory.createValue(value.value(), PropertyType.URI);
+        }
+        throw new RepositoryException("Binary values are not written from their descriptor");
+    }
+
+    private static JcrValue toStringTypedValue(String value, int type) {
+        return switch (type) {
+            case PropertyType.NAME -> new JcrValue.NameValue(value);
+            case PropertyType.PATH -> new JcrValue.PathValue(value);
+            case PropertyType.REFERENCE -> new JcrValue.ReferenceValue(value);
+            case PropertyType.WEAKREFERENCE -> new JcrValue.WeakReferenceValue(value);
+            case PropertyType.URI -> new JcrValue.UriValue(value);
+            default -> new JcrValue.StringValue(value);
+        };
+    }
+
+    /**
+     * Descriptors of the values of a binary property, read from the property metadata only.
+     */
+    public static JcrValue[] toBinaryValues(Property property) throws RepositoryException {
+        Node node = property.getParent();
+        String mimeType = node.hasProperty(JcrConstants.JCR_MIMETYPE) ? node.getProperty(JcrConstants.JCR_MIMETYPE).getString() : null;
+        if (!property.isMultiple()) {
+            return new JcrValue[] {
+                new JcrValue.BinaryValue(
+                    property.getLength(),
+                    contentIdentity(property.getValue()),
+                    mimeType,
+                    downloadUrl(node.getPath(), property.getName(), -1)
+                ),
+            };
+        }
+        Value[] values = property.getValues();
+        long[] lengths = property.getLengths();
+        JcrValue[] jcrValues = new JcrValue[values.length];
+        for (int i = 0; i < values.length; i++) {
+            jcrValues[i] = new JcrValue.BinaryValue(
+                lengths[i],
+                contentIdentity(values[i]),
+                mimeType,
+                downloadUrl(node.getPath(), property.getName(), i)
+            );
+        }
+        return jcrValues;
+    }
+
+    /**
+     * Descriptor of a binary value detached from its property, without mime type nor download URL.
+     */
+    private static JcrValue toBinaryValue(Value value) throws RepositoryException {
+        Binary binary = value.getBinary();
+        try {
+            return new JcrValue.BinaryValue(binary.getSize(), contentIdentity(value), null, null);
+        } finally {
+            binary.dispose();
+        }
+    }
+
+    /**
+     * Identity of the blob holding the value, equal for equal contents, or null when the store does not provide one.
+     */
+    public static String contentIdentity(Value value) {
+        return value instanceof JackrabbitValue jackrabbitValue ? jackrabbitValue.getContentIdentity() : null;
+    }
+
+    /**
+     * URL of the content of a binary property, the index selects a value of a multi-valued property and is ignored when
+     * negative.
+     */
+    public static String downloadUrl(String path, String property, int index) {
+        StringBuilder url = new StringBuilder(DOWNLOAD_PATH)
+            .append("?path=")
+            .append(URLEncoder.encode(path, StandardCharsets.UTF_8))
+            .append("&property=")
+            .append(URLEncoder.encode(property, StandardCharsets.UTF_8));
+        if (index >= 0) {
+            url.append("&index=").append(index);
+        }
+        return url.toString();
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Calendar calendar) {
+        return calendar == null ? null : OffsetDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId());
+    }
+
+    private static Calendar toCalendar(OffsetDateTime dateTime) {
+        return dateTime == null ? null : GregorianCalendar.from(dateTime.toZonedDateTime());
+    }
+}
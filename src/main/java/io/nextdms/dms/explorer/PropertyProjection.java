@@ -0,0 +1,43 @@
+package io.nextdms.dms.explorer;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Selects which properties are read when a node is converted to a {@link io.nextdms.dto.explorer.JcrNode}.
+ * <p>
+ * {@link #ALL} walks every property of the node, {@link #NONE} never touches the properties, and a named projection
+ * looks up only the requested properties without iterating the others.
+ *
+ * @param names the property names to read, {@code null} meaning all of them
+ */
+public record PropertyProjection(Set<String> names) {
+    public static final PropertyProjection ALL = new PropertyProjection(null);
+    public static final PropertyProjection NONE = new PropertyProjection(Set.of());
+
+    /**
+     * Build a projection from a request parameter: a missing parameter or {@code *} selects all properties,
+     * an empty parameter selects none.
+     */
+    public static PropertyProjection of(Collection<String> names) {
+        if (names == null || names.contains("*")) {
+            return ALL;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String name : names) {
+            if (name != null && !name.isBlank()) {
+                selected.add(name.trim());
+            }
+        }
+        return selected.isEmpty() ? NONE : new PropertyProjection(Set.copyOf(selected));
+    }
+
+    public boolean isAll() {
+        return names == null;
+    }
+
+    public boolean isNone() {
+        return names != null && names.isEmpty();
+    }
+}
@@ -0,0 +1,159 @@
+package io.nextdms.dms.explorer.cache;
+
+import io.nextdms.dms.SessionUtils;
+import io.nextdms.dms.config.OakProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts cached nodes and the node type catalog when the repository changes.
+ * <p>
+ * The listener is registered on the whole workspace. Oak delivers both the commits of this instance and the ones of
+ * other cluster nodes to it, so every cache of the cluster drops a node as soon as it is changed anywhere. Events are
+ * delivered asynchronously, the services writing on this instance therefore also evict what they saved right after the
+ * save, so that the next request of the writer does not read the node it has just changed from the cache.
+ */
+@Component
+public class NodeCacheInvalidator implements EventListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NodeCacheInvalidator.class);
+
+    private static final int EVENT_TYPES =
+        Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED | Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+    private final Repository repository;
+    private final OakProperties oakProperties;
+    private final NodeReadCache nodeReadCache;
+    private final NodeSummaryCache nodeSummaryCache;
+    private final NodeTypeCatalogCache nodeTypeCatalogCache;
+    private Session session;
+
+    public NodeCacheInvalidator(
+        Repository repository,
+        OakProperties oakProperties,
+        NodeReadCache nodeReadCache,
+        NodeSummaryCache nodeSummaryCache,
+        NodeTypeCatalogCache nodeTypeCatalogCache
+    ) {
+        this.repository = repository;
+        this.oakProperties = oakProperties;
+        this.nodeReadCache = nodeReadCache;
+        this.nodeSummaryCache = nodeSummaryCache;
+        this.nodeTypeCatalogCache = nodeTypeCatalogCache;
+    }
+
+    @PostConstruct
+    public void register() throws RepositoryException {
+        session = SessionUtils.getSessionForExplorer(repository, oakProperties);
+        ObservationManager observationManager = session.getWorkspace().getObservationManager();
+        observationManager.addEventListener(this, EVENT_TYPES, "/", true, null, null, false);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        if (session != null) {
+            try {
+                session.getWorkspace().getObservationManager().removeEventListener(this);
+            } catch (RepositoryException e) {
+                LOG.warn("Failed to remove the node cache listener: {}", e.getMessage());
+            }
+            SessionUtils.ungetSession(session);
+        }
+    }
+
+    /**
+     * Evict the nodes whose properties or mixins were saved, and the summaries of their parents.
+     */
+    public void invalidateNodes(Collection<String> paths) {
+        for (String path : paths) {
+            nodeReadCache.invalidate(path);
+            nodeSummaryCache.invalidate(path);
+            nodeSummaryCache.invalidate(parent(path));
+        }
+    }
+
+    /**
+     * Evict the subtrees that were saved, moved or removed, and the summaries of their parents.
+     */
+    public void invalidateTrees(Collection<String> paths) {
+        for (String path : paths) {
+            nodeReadCache.invalidateTree(path);
+            nodeSummaryCache.invalidateTree(path);
+            nodeSummaryCache.invalidate(parent(path));
+        }
+    }
+
+    @Override
+    public void onEvent(EventIterator events) {
+        while (events.hasNext()) {
+            try {
+                onEvent(events.nextEvent());
+            } catch (RepositoryException e) {
+                LOG.warn("Unreadable change event, dropping all cached nodes: {}", e.getMessage());
+                nodeReadCache.invalidateAll();
+                nodeSummaryCache.invalidateAll();
+                nodeTypeCatalogCache.invalidate();
+            }
+        }
+    }
+
+    private void onEvent(Event event) throws RepositoryException {
+        String path = event.getPath();
+        if (isBelow(path, NodeTypeCatalogCache.NODE_TYPES_PATH) || isBelow(path, NodeTypeCatalogCache.ICONS_PATH)) {
+            nodeTypeCatalogCache.invalidate();
+        }
+        if (path.contains("/rep:policy")) {
+            // access control changed, what any user may read below this node can be different
+            nodeReadCache.invalidateAll();
+            nodeSummaryCache.invalidateAll();
+            return;
+        }
+        switch (event.getType()) {
+            case Event.PROPERTY_ADDED, Event.PROPERTY_CHANGED, Event.PROPERTY_REMOVED -> {
+                String nodePath = parent(path);
+                nodeReadCache.invalidate(nodePath);
+                nodeSummaryCache.invalidate(nodePath);
+            }
+            case Event.NODE_ADDED -> {
+                nodeReadCache.invalidate(path);
+                nodeSummaryCache.invalidate(path);
+                nodeSummaryCache.invalidate(parent(path));
+            }
+            case Event.NODE_REMOVED -> {
+                nodeReadCache.invalidateTree(path);
+                nodeSummaryCache.invalidateTree(path);
+                nodeSummaryCache.invalidate(parent(path));
+            }
+            case Event.NODE_MOVED -> {
+                Object source = event.getInfo().get("srcAbsPath");
+                if (source instanceof String sourcePath) {
+                    nodeReadCache.invalidateTree(sourcePath);
+                    nodeSummaryCache.invalidateTree(sourcePath);
+                }
+                nodeReadCache.invalidateTree(path);
+                nodeSummaryCache.invalidateTree(path);
+            }
+            default -> {}
+        }
+    }
+
+    private static boolean isBelow(String path, String ancestor) {
+        return path.startsWith(ancestor) && (path.length() == ancestor.length() || path.charAt(ancestor.length()) == '/');
+    }
+
+    private static String parent(String path) {
+        int index = path.lastIndexOf('/');
+        return index <= 0 ? "/" : path.substring(0, index);
+    }
+}
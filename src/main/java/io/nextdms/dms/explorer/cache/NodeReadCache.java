@@ -0,0 +1,142 @@
+package io.nextdms.dms.explorer.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.ExplorerUtils;
+import io.nextdms.dms.explorer.JcrNodeConverter;
+import io.nextdms.dms.explorer.PropertyProjection;
+import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrProperty;
+import io.nextdms.dto.explorer.JcrValue;
+import java.time.Duration;
+import java.util.Map;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of converted nodes, with all their properties, keyed by path and user.
+ * <p>
+ * Only complete snapshots are cached: a read with a property projection is served from a cached snapshot when there
+ * is one, but a miss is answered by reading just the projected properties, without populating the cache. Entries are
+ * evicted by the {@link NodeCacheInvalidator} as soon as the repository reports a change, and in any case after
+ * {@code oak.cache.nodes-ttl-millis}.
+ */
+@Component
+public class NodeReadCache implements JcrNodeConverter {
+
+    private final boolean enabled;
+    private final PathCache<JcrNode> cache;
+
+    public NodeReadCache(OakProperties oakProperties, MeterRegistry meterRegistry) {
+        this.enabled = oakProperties.getCache().isNodesEnabled();
+        this.cache = new PathCache<>(
+            Caffeine.newBuilder()
+                .maximumWeight(oakProperties.getCache().getNodesMaxBytes())
+                .weigher((String path, Map<String, JcrNode> nodes) -> weigh(path, nodes))
+                .expireAfterWrite(Duration.ofMillis(oakProperties.getCache().getNodesTtlMillis()))
+                .recordStats()
+                .build()
+        );
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.cache(), "nextdms.explorer.nodes");
+    }
+
+    @Override
+    public JcrNode convert(Node node, PropertyProjection projection) throws RepositoryException {
+        if (!enabled) {
+            return ExplorerUtils.toJcrNode(node, projection);
+        }
+        String userId = node.getSession().getUserID();
+        String path = node.getPath();
+        JcrNode cached = cache.get(userId, path);
+        if (cached != null) {
+            return projection.isAll() ? cached : withProperties(cached, ExplorerUtils.project(cached.properties(), projection));
+        }
+        if (!projection.isAll()) {
+            return ExplorerUtils.toJcrNode(node, projection);
+        }
+        long generation = cache.generation();
+        JcrNode jcrNode = ExplorerUtils.toJcrNode(node, PropertyProjection.ALL);
+        cache.put(userId, path, jcrNode, generation);
+        return jcrNode;
+    }
+
+    public Map<String, JcrProperty> getProperties(Node node, PropertyProjection projection) throws RepositoryException {
+        if (enabled && !projection.isAll()) {
+            JcrNode cached = cache.get(node.getSession().getUserID(), node.getPath());
+            return cached != null ? ExplorerUtils.project(cached.properties(), projection) : ExplorerUtils.getProperties(node, projection);
+        }
+        return convert(node, projection).properties();
+    }
+
+    public void invalidate(String path) {
+        cache.invalidate(path);
+    }
+
+    public void invalidateTree(String path) {
+        cache.invalidateTree(path);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static JcrNode withProperties(JcrNode node, Map<String, JcrProperty> properties) {
+        return new JcrNode(node.uuid(), node.name(), node.path(), node.primaryNodeType(), node.mixinTypes(), properties);
+    }
+
+    /**
+     * Rough estimate, in bytes, of the heap held by the cached nodes of a path.
+     */
+    static int weigh(String path, Map<String, JcrNode> nodes) {
+        long weight = 64 + 2L * path.length();
+        for (JcrNode node : nodes.values()) {
+            weight += 128 + 2L * (length(node.uuid()) + length(node.name()) + length(node.path()) + length(node.primaryNodeType()));
+            weight += 48L * node.mixinTypes().size();
+            for (JcrProperty property : node.properties().values()) {
+                weight += 96 + 2L * length(property.name());
+                for (JcrValue value : property.values()) {
+                    weight += weigh(value);
+                }
+            }
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private static long weigh(JcrValue value) {
+        if (value instanceof JcrValue.StringValue string) {
+            return 56 + 2L * length(string.value());
+        } else if (value instanceof JcrValue.NameValue name) {
+            return 56 + 2L * length(name.value());
+        } else if (value instanceof JcrValue.PathValue path) {
+            return 56 + 2L * length(path.value());
+        } else if (value instanceof JcrValue.ReferenceValue reference) {
+            return 56 + 2L * length(reference.value());
+        } else if (value instanceof JcrValue.WeakReferenceValue reference) {
+            return 56 + 2L * length(reference.value());
+        } else if (value instanceof JcrValue.UriValue uri) {
+            return 56 + 2L * length(uri.value());
+        } else if (value instanceof JcrValue.BinaryValue binary) {
+            return 64 + 2L * length(binary.contentIdentity(), binary.mimeType(), binary.downloadUrl());
+        } else if (value instanceof JcrValue.DateValue) {
+            return 96;
+        } else if (value instanceof JcrValue.DecimalValue) {
+            return 64;
+        }
+        return 16;
+    }
+
+    private static int length(String... values) {
+        int length = 0;
+        for (String value : values) {
+            length += length(value);
+        }
+        return length;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,57 @@
+package io.nextdms.dms.explorer.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.ExplorerUtils;
+import io.nextdms.dto.explorer.JcrNodeSummary;
+import java.time.Duration;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short-lived cache of node summaries used to build breadcrumbs, so that navigating below the same ancestors does not
+ * look them up again. Entries are kept per user as well as per path because what a user may see depends on its ACLs.
+ * <p>
+ * Entries expire {@code oak.cache.summary-ttl-millis} after they are read, which bounds how stale a title or
+ * {@code hasChildren} flag can be when no invalidation reaches the cache.
+ */
+@Component
+public class NodeSummaryCache {
+
+    private final PathCache<JcrNodeSummary> cache;
+
+    public NodeSummaryCache(OakProperties oakProperties) {
+        this.cache = new PathCache<>(
+            Caffeine.newBuilder()
+                .maximumSize(oakProperties.getCache().getSummaryMaxEntries())
+                .expireAfterWrite(Duration.ofMillis(oakProperties.getCache().getSummaryTtlMillis()))
+                .build()
+        );
+    }
+
+    public JcrNodeSummary get(Session session, String path) throws RepositoryException {
+        JcrNodeSummary summary = cache.get(session.getUserID(), path);
+        if (summary == null) {
+            long generation = cache.generation();
+            summary = ExplorerUtils.toJcrNodeSummary(session.getNode(path));
+            cache.put(session.getUserID(), path, summary, generation);
+        }
+        return summary;
+    }
+
+    /**
+     * Drop the summaries of the given path, for every user.
+     */
+    public void invalidate(String path) {
+        cache.invalidate(path);
+    }
+
+    public void invalidateTree(String path) {
+        cache.invalidateTree(path);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,148 @@
+package io.nextdms.dms.explorer.cache;
+
+import io.nextdms.dms.session.JcrSessionPool;
+import io.nextdms.dto.explorer.JcrNodeType;
+import io.nextdms.dto.explorer.JcrNodeTypeCatalog;
+import io.nextdms.dto.explorer.JcrPropertyDefinition;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.nodetype.NodeType;
+import javax.jcr.nodetype.NodeTypeIterator;
+import javax.jcr.nodetype.PropertyDefinition;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the node type catalog. Node types only change when a CND is registered, so the catalog is built once and
+ * kept until the {@link NodeCacheInvalidator} sees a change below {@value #NODE_TYPES_PATH} or {@value #ICONS_PATH},
+ * or until the write service registers node types or icons itself.
+ * <p>
+ * The catalog is shared by all users, so it is built with a pooled explorer session rather than the session of the
+ * first caller: the icons are read the same whoever asks first.
+ */
+@Component
+public class NodeTypeCatalogCache {
+
+    public static final String NODE_TYPES_PATH = "/jcr:system/jcr:nodeTypes";
+
+    /**
+     * Node holding one property per node type, named after the type, whose value is the icon path.
+     */
+    public static final String ICONS_PATH = "/system/nodetype-icons";
+
+    private final JcrSessionPool sessionPool;
+    private final AtomicReference<JcrNodeTypeCatalog> catalog = new AtomicReference<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public NodeTypeCatalogCache(JcrSessionPool sessionPool) {
+        this.sessionPool = sessionPool;
+    }
+
+    public JcrNodeTypeCatalog get() throws RepositoryException {
+        JcrNodeTypeCatalog current = catalog.get();
+        if (current == null) {
+            long readGeneration = generation.get();
+            // pooled sessions are refreshed on checkout, the change that dropped the catalog is seen
+            Session session = sessionPool.borrow();
+            try {
+                current = build(session);
+            } finally {
+                sessionPool.release(session);
+            }
+            catalog.compareAndSet(null, current);
+            if (generation.get() != readGeneration) {
+                catalog.set(null);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * The cached catalog, or null when it has not been built since the last change.
+     */
+    public JcrNodeTypeCatalog getIfPresent() {
+        return catalog.get();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        catalog.set(null);
+    }
+
+    static JcrNodeTypeCatalog build(Session session) throws RepositoryException {
+        Map<String, String> icons = getIcons(session);
+        List<JcrNodeType> nodeTypes = new ArrayList<>();
+        NodeTypeIterator iterator = session.getWorkspace().getNodeTypeManager().getAllNodeTypes();
+        while (iterator.hasNext()) {
+            NodeType nodeType = iterator.nextNodeType();
+            nodeTypes.add(
+                new JcrNodeType(
+                    nodeType.getName(),
+                    nodeType.isMixin(),
+                    nodeType.isAbstract(),
+                    Stream.of(nodeType.getDeclaredSupertypeNames()).sorted().toList(),
+                    Stream.of(nodeType.getPropertyDefinitions()).map(NodeTypeCatalogCache::toJcrPropertyDefinition).toList(),
+                    icons.get(nodeType.getName())
+                )
+            );
+        }
+        nodeTypes.sort(Comparator.comparing(JcrNodeType::name));
+        return new JcrNodeTypeCatalog(version(nodeTypes), List.copyOf(nodeTypes));
+    }
+
+    private static JcrPropertyDefinition toJcrPropertyDefinition(PropertyDefinition definition) {
+        return new JcrPropertyDefinition(
+            definition.getName(),
+            PropertyType.nameFromValue(definition.getRequiredType()),
+            definition.isMultiple(),
+            definition.isMandatory(),
+            definition.isAutoCreated(),
+            definition.isProtected()
+        );
+    }
+
+    private static Map<String, String> getIcons(Session session) throws RepositoryException {
+        Map<String, String> icons = new TreeMap<>();
+        if (session.nodeExists(ICONS_PATH)) {
+            Node iconsNode = session.getNode(ICONS_PATH);
+            PropertyIterator properties = iconsNode.getProperties();
+            while (properties.hasNext()) {
+                Property property = properties.nextProperty();
+                if (!property.isMultiple() && property.getType() == PropertyType.STRING) {
+                    icons.put(property.getName(), property.getString());
+                }
+            }
+        }
+        return icons;
+    }
+
+    /**
+     * Digest of the catalog content, identical on every cluster node holding the same node types.
+     */
+    private static String version(List<JcrNodeType> nodeTypes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (JcrNodeType nodeType : nodeTypes) {
+                digest.update(nodeType.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package io.nextdms.dms.explorer.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Cache of values keyed by repository path and user, so that all the entries of a path can be dropped at once when the
+ * node changes, whoever read them.
+ * <p>
+ * Every invalidation bumps a generation counter and is logged with its path. A value read from the repository is only
+ * kept if no invalidation of its path, or of an ancestor tree, happened since the reader captured {@link #generation()},
+ * so a slow read cannot put back a value that was already invalidated while the reads of other paths are kept. Only the
+ * latest invalidations are logged: a read older than the log is dropped.
+ */
+final class PathCache<V> {
+
+    private static final int MAX_INVALIDATIONS = 1024;
+
+    private final Cache<String, Map<String, V>> cache;
+    private final Deque<Invalidation> invalidations = new ArrayDeque<>();
+    private long generation;
+
+    private record Invalidation(long generation, String path, boolean tree) {
+        boolean covers(String other) {
+            return path.equals(other) || tree && other.startsWith(path.endsWith("/") ? path : path + "/");
+        }
+    }
+
+    PathCache(Cache<String, Map<String, V>> cache) {
+        this.cache = cache;
+    }
+
+    Cache<String, Map<String, V>> cache() {
+        return cache;
+    }
+
+    long generation() {
+        synchronized (invalidations) {
+            return generation;
+        }
+    }
+
+    V get(String userId, String path) {
+        Map<String, V> values = cache.getIfPresent(path);
+        return values == null ? null : values.get(userId);
+    }
+
+    void put(String userId, String path, V value, long readGeneration) {
+        cache
+            .asMap()
+            .compute(path, (key, values) -> {
+                if (values == null) {
+                    return Map.of(userId, value);
+                }
+                // copy on write, so that the weigher sees every change
+                Map<String, V> copy = new HashMap<>(values);
+                copy.put(userId, value);
+                return copy;
+            });
+        if (invalidatedSince(path, readGeneration)) {
+            cache.invalidate(path);
+        }
+    }
+
+    void invalidate(String path) {
+        log(path, false);
+        cache.invalidate(path);
+    }
+
+    /**
+     * Drop the entries of the path and of all its descendants.
+     */
+    void invalidateTree(String path) {
+        String prefix = path.endsWith("/") ? path : path + "/";
+        log(path, true);
+        cache.invalidate(path);
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    void invalidateAll() {
+        log("/", true);
+        cache.invalidateAll();
+    }
+
+    /**
+     * Logged before the entries are dropped, so that a value put in between is dropped by {@link #put}.
+     */
+    private void log(String path, boolean tree) {
+        synchronized (invalidations) {
+            generation++;
+            if (invalidations.size() >= MAX_INVALIDATIONS) {
+                invalidations.removeFirst();
+            }
+            invalidations.addLast(new Invalidation(generation, path, tree));
+        }
+    }
+
+    private boolean invalidatedSince(String path, long readGeneration) {
+        synchronized (invalidations) {
+            if (generation == readGeneration) {
+                return false;
+            }
+            Invalidation oldest = invalidations.peekFirst();
+            if (oldest == null || oldest.generation() > readGeneration + 1) {
+                // the log does not reach back to the read
+                return true;
+            }
+            for (Iterator<Invalidation> newest = invalidations.descendingIterator(); newest.hasNext();) {
+                Invalidation invalidation = newest.next();
+                if (invalidation.generation() <= readGeneration) {
+                    return false;
+                }
+                if (invalidation.covers(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -2,18 +2,29 @@ package io.nextdms.dms.explorer.impl;
 
 import static io.nextdms.dms.explorer.ExplorerUtils.*;
 
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.ChildCursor;
 import io.nextdms.dms.explorer.ExplorerUtils;
 import io.nextdms.dms.explorer.IExplorerReadService;
+import io.nextdms.dms.explorer.JcrNodeConsumer;
+import io.nextdms.dms.explorer.PropertyProjection;
+import io.nextdms.dms.explorer.cache.NodeReadCache;
+import io.nextdms.dms.explorer.cache.NodeSummaryCache;
+import io.nextdms.dms.explorer.cache.NodeTypeCatalogCache;
+import io.nextdms.dms.explorer.query.CountMode;
+import io.nextdms.dms.explorer.query.QueryMonitor;
+import io.nextdms.dms.explorer.query.SearchPage;
+import io.nextdms.dto.explorer.JcrBreadcrumb;
 import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrNodePage;
+import io.nextdms.dto.explorer.JcrNodeSummary;
+import io.nextdms.dto.explorer.JcrNodeType;
+import io.nextdms.dto.explorer.JcrNodeTypeCatalog;
 import io.nextdms.dto.explorer.JcrProperty;
+import java.io.IOException;
 import java.util.*;
 import javax.jcr.*;
-import javax.jcr.nodetype.NodeType;
-import javax.jcr.nodetype.NodeTypeIterator;
-import javax.jcr.nodetype.NodeTypeManager;
 import javax.jcr.query.Query;
-import javax.jcr.query.QueryManager;
-import javax.jcr.query.QueryResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -26,6 +37,26 @@ public class ExplorerReadService implements IExplorerReadService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ExplorerReadService.class);
 
+    private final NodeSummaryCache nodeSummaryCache;
+    private final NodeReadCache nodeReadCache;
+    private final NodeTypeCatalogCache nodeTypeCatalogCache;
+    private final QueryMonitor queryMonitor;
+    private final OakProperties.Queries queryProperties;
+
+    public ExplorerReadService(
+        NodeSummaryCache nodeSummaryCache,
+        NodeReadCache nodeReadCache,
+        NodeTypeCatalogCache nodeTypeCatalogCache,
+        QueryMonitor queryMonitor,
+        OakProperties oakProperties
+    ) {
+        this.nodeSummaryCache = nodeSummaryCache;
+        this.nodeReadCache = nodeReadCache;
+        this.nodeTypeCatalogCache = nodeTypeCatalogCache;
+        this.queryMonitor = queryMonitor;
+        this.queryProperties = oakProperties.getQueries();
+    }
+
     @Override
     public List<Map<String, List<JcrNode>>> getNodeTree(Session session, String path) throws RepositoryException {
         List<Map<String, List<JcrNode>>> returnList;
@@ -51,68 +82,158 @@ public class ExplorerReadService implements IExplorerReadService {
         return returnList;
     }
 
+    /**
+     * Build the breadcrumb of a node from cached ancestor summaries, in the given session. Unlike {@link #getNodeTree}
+     * no ancestor listing is read; only the siblings of the node itself are listed, when requested.
+     */
+    @Override
+    public JcrBreadcrumb getBreadcrumb(Session session, String path, String UUID, boolean includeSiblings, int maxSiblings)
+        throws RepositoryException {
+        Node node = StringUtils.hasText(UUID) ? session.getNodeByIdentifier(UUID) : session.getNode(path);
+        List<JcrNodeSummary> ancestors = new ArrayList<>();
+        for (String ancestorPath : ExplorerUtils.ancestorPaths(node.getPath())) {
+            ancestors.add(nodeSummaryCache.get(session, ancestorPath));
+        }
+        List<JcrNodeSummary> siblings = new ArrayList<>();
+        if (includeSiblings && node.getDepth() > 0) {
+            NodeIterator nodeIterator = node.getParent().getNodes();
+            while (nodeIterator.hasNext() && siblings.size() < maxSiblings) {
+                siblings.add(ExplorerUtils.toJcrNodeSummary(nodeIterator.nextNode()));
+            }
+        }
+        return new JcrBreadcrumb(ancestors, siblings);
+    }
+
     @Override
     public List<JcrNode> getNode(Session session, String path, String UUID) throws RepositoryException {
+        return getNode(session, path, UUID, PropertyProjection.ALL);
+    }
+
+    @Override
+    public List<JcrNode> getNode(Session session, String path, String UUID, PropertyProjection projection) throws RepositoryException {
         Node node = StringUtils.hasText(UUID) ? session.getNodeByIdentifier(UUID) : session.getNode(path);
-        return ExplorerUtils.getChildreen(node);
+        return ExplorerUtils.getChildreen(node, projection, nodeReadCache);
     }
 
     @Override
-    public List<String> getAvailableNodeTypes(Session session) throws RepositoryException {
-        NodeTypeManager nodeTypeManager = session.getWorkspace().getNodeTypeManager();
-        NodeTypeIterator nodeTypes = nodeTypeManager.getAllNodeTypes();
-        List<String> nodeTypeNames = new ArrayList<>();
-        while (nodeTypes.hasNext()) {
-            NodeType nodeType = nodeTypes.nextNodeType();
-            nodeTypeNames.add(nodeType.getName());
+    public void streamNode(Session session, String path, String UUID, PropertyProjection projection, JcrNodeConsumer consumer)
+        throws RepositoryException, IOException {
+        Node node = StringUtils.hasText(UUID) ? session.getNodeByIdentifier(UUID) : session.getNode(path);
+        ExplorerUtils.forEachChild(node, projection, nodeReadCache, consumer);
+    }
+
+    @Override
+    public JcrNodePage getNodePage(Session session, String path, String UUID, String cursor, int pageSize, PropertyProjection projection)
+        throws RepositoryException {
+        if (pageSize <= 0) {
+            throw new RepositoryException("Page size must be positive");
+        }
+        ChildCursor after;
+        try {
+            after = StringUtils.hasText(cursor) ? ChildCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            throw new RepositoryException("Invalid cursor: " + cursor, e);
         }
-        return nodeTypeNames;
+        Node node = StringUtils.hasText(UUID) ? session.getNodeByIdentifier(UUID) : session.getNode(path);
+        return ExplorerUtils.getChildreenPage(node, after, pageSize, projection, nodeReadCache);
+    }
+
+    @Override
+    public List<String> getAvailableNodeTypes(Session session) throws RepositoryException {
+        return getNodeTypeCatalog(session).nodeTypes().stream().map(JcrNodeType::name).toList();
     }
 
     @Override
     public List<String> getMixinNodeTypes(Session session) throws RepositoryException {
-        NodeTypeManager nodeTypeManager = session.getWorkspace().getNodeTypeManager();
-        NodeTypeIterator nodeTypes = nodeTypeManager.getMixinNodeTypes();
-        List<String> nodeTypeNames = new ArrayList<>();
-        while (nodeTypes.hasNext()) {
-            NodeType nodeType = nodeTypes.nextNodeType();
-            nodeTypeNames.add(nodeType.getName());
-        }
-        return nodeTypeNames;
+        return getNodeTypeCatalog(session).nodeTypes().stream().filter(JcrNodeType::mixin).map(JcrNodeType::name).toList();
     }
 
     @Override
-    public Page<JcrNode> fullTextSearch(Session session, String query, Pageable pageable) throws RepositoryException {
-        QueryManager queryManager = session.getWorkspace().getQueryManager();
-        QueryResult result = createQuery(queryManager, query, Query.JCR_SQL2, pageable);
-        return transformToPage(
-            getSearcResult(session, result),
-            pageable,
-            getSearchTotalCount(queryManager, pageable, Query.JCR_SQL2, query)
-        );
+    public JcrNodeTypeCatalog getNodeTypeCatalog(Session session) throws RepositoryException {
+        return nodeTypeCatalogCache.get();
     }
 
     @Override
-    public Page<JcrNode> xpathSearch(Session session, String query, Pageable pageable) throws RepositoryException {
-        QueryManager queryManager = session.getWorkspace().getQueryManager();
-        QueryResult result = createQuery(queryManager, query, Query.XPATH, pageable);
-        return transformToPage(getSearcResult(session, result), pageable, getSearchTotalCount(queryManager, pageable, Query.XPATH, query));
+    public Page<JcrNode> fullTextSearch(Session session, String text, Pageable pageable) throws RepositoryException {
+        return fullTextSearch(session, text, pageable, PropertyProjection.ALL, CountMode.EXACT);
     }
 
     @Override
-    public Page<JcrNode> sqlSearch(Session session, String query, Pageable pageable) throws RepositoryException {
-        QueryManager queryManager = session.getWorkspace().getQueryManager();
-        QueryResult result = createQuery(queryManager, query, Query.JCR_SQL2, pageable);
-        return transformToPage(
-            getSearcResult(session, result),
-            pageable,
-            getSearchTotalCount(queryManager, pageable, Query.JCR_SQL2, query)
-        );
+    public SearchPage<JcrNode> fullTextSearch(
+        Session session,
+        String text,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException {
+        return templateSearch(session, fullTextSearchStatement(), text, pageable, projection, countMode);
+    }
+
+    @Override
+    public Page<JcrNode> xpathSearch(Session session, String text, String targetPath, Pageable pageable) throws RepositoryException {
+        return xpathSearch(session, text, targetPath, pageable, PropertyProjection.ALL, CountMode.EXACT);
+    }
+
+    /**
+     * Oak takes no bind variable in XPath, the search runs as the JCR-SQL2 statement Oak would convert it to.
+     */
+    @Override
+    public SearchPage<JcrNode> xpathSearch(
+        Session session,
+        String text,
+        String targetPath,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException {
+        return templateSearch(session, fullTextSearchStatement(targetPath), text, pageable, projection, countMode);
+    }
+
+    @Override
+    public Page<JcrNode> sqlSearch(Session session, String text, String targetPath, Pageable pageable) throws RepositoryException {
+        return sqlSearch(session, text, targetPath, pageable, PropertyProjection.ALL, CountMode.EXACT);
+    }
+
+    @Override
+    public SearchPage<JcrNode> sqlSearch(
+        Session session,
+        String text,
+        String targetPath,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException {
+        return templateSearch(session, fullTextSearchStatement(targetPath), text, pageable, projection, countMode);
+    }
+
+    /**
+     * Run a fixed search statement, the text of the request being bound to it.
+     */
+    private SearchPage<JcrNode> templateSearch(
+        Session session,
+        String statement,
+        String text,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException {
+        Query query = session.getWorkspace().getQueryManager().createQuery(statement, Query.JCR_SQL2);
+        Value value = session.getValueFactory().createValue(text);
+        query.bindValue(SEARCH_TEXT_VARIABLE, value);
+        long start = System.nanoTime();
+        SearchPageRead read = getSearchPage(query, pageable, countMode, queryProperties.getCountLimit(), projection, nodeReadCache);
+        queryMonitor.record(session, query, Map.of(SEARCH_TEXT_VARIABLE, value), read.rowsRead(), System.nanoTime() - start);
+        return read.page();
     }
 
     @Override
     public List<Map<String, String>> getNodeTypeIcons(Session session) throws RepositoryException {
-        return List.of();
+        return getNodeTypeCatalog(session)
+            .nodeTypes()
+            .stream()
+            .filter(nodeType -> nodeType.icon() != null)
+            .map(nodeType -> Map.of("nodeType", nodeType.name(), "icon", nodeType.icon()))
+            .toList();
     }
 
     @Override
@@ -122,12 +243,18 @@ public class ExplorerReadService implements IExplorerReadService {
 
     @Override
     public Map<String, JcrProperty> getProperties(Session session, Node node) throws RepositoryException {
-        return ExplorerUtils.getProperties(node);
+        return nodeReadCache.getProperties(node, PropertyProjection.ALL);
     }
 
     @Override
     public Map<String, JcrProperty> getProperties(Session session, String path, String uuid) throws RepositoryException {
+        return getProperties(session, path, uuid, PropertyProjection.ALL);
+    }
+
+    @Override
+    public Map<String, JcrProperty> getProperties(Session session, String path, String uuid, PropertyProjection projection)
+        throws RepositoryException {
         final var node = StringUtils.hasText(uuid) ? session.getNodeByIdentifier(uuid) : session.getNode(path);
-        return ExplorerUtils.getProperties(node);
+        return nodeReadCache.getProperties(node, projection);
     }
 }
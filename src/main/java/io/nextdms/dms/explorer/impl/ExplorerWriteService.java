@@ -1,21 +1,33 @@
 package io.nextdms.dms.explorer.impl;
 
+import static io.nextdms.dms.explorer.ExplorerUtils.childPath;
 import static io.nextdms.dms.explorer.ExplorerUtils.setNodeProperty;
+import static io.nextdms.dms.explorer.ExplorerUtils.updateNodeProperty;
 
+import io.nextdms.dms.content.BinaryDeduplicator;
 import io.nextdms.dms.explorer.IExplorerWriteService;
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import io.nextdms.dms.explorer.cache.NodeTypeCatalogCache;
+import io.nextdms.dto.explorer.JcrBatchResult;
 import io.nextdms.dto.explorer.JcrNode;
 import io.nextdms.dto.explorer.JcrProperty;
+import io.nextdms.dto.explorer.JcrPropertyChanges;
+import io.nextdms.dto.explorer.JcrWriteOperation;
 import java.io.InputStream;
 import java.io.StringReader;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import javax.jcr.Item;
 import javax.jcr.Node;
+import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.UnsupportedRepositoryOperationException;
 import javax.jcr.nodetype.NodeTypeManager;
 import org.apache.jackrabbit.commons.cnd.CndImporter;
 import org.apache.jackrabbit.commons.cnd.ParseException;
+import org.apache.jackrabbit.util.Text;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -25,6 +37,14 @@ public class ExplorerWriteService implements IExplorerWriteService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ExplorerWriteService.class);
 
+    private final NodeTypeCatalogCache nodeTypeCatalogCache;
+    private final NodeCacheInvalidator nodeCacheInvalidator;
+
+    public ExplorerWriteService(NodeTypeCatalogCache nodeTypeCatalogCache, NodeCacheInvalidator nodeCacheInvalidator) {
+        this.nodeTypeCatalogCache = nodeTypeCatalogCache;
+        this.nodeCacheInvalidator = nodeCacheInvalidator;
+    }
+
     /**
      * Add new node and add mandatory jcr:content child node if the node type is a file type
      */
@@ -60,6 +80,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
                 for (String mixinName : mixinTypes) newNode.addMixin(mixinName);
             }
             session.save();
+            nodeCacheInvalidator.invalidateNodes(List.of(newNode.getPath()));
         } catch (Exception e) {
             LOG.error("Node not added. ", e);
             throw new RepositoryException("Node not added. " + e.getMessage());
@@ -83,6 +104,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
             Node node = (Node) item;
             node.addMixin(mixinType);
             session.save();
+            nodeCacheInvalidator.invalidateNodes(List.of(node.getPath()));
         } catch (Exception e) {
             LOG.error("Mixin type not added. ", e);
             throw new RepositoryException("Mixin type not added.  " + e.getMessage());
@@ -105,6 +127,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
             Node node = (Node) item;
             node.removeMixin(mixinType);
             session.save();
+            nodeCacheInvalidator.invalidateNodes(List.of(node.getPath()));
         } catch (Exception e) {
             LOG.error("Mixin type not removed. ", e);
             throw new RepositoryException("Mixin type not removed. " + e.getMessage());
@@ -114,22 +137,14 @@ public class ExplorerWriteService implements IExplorerWriteService {
 
     @Override
     public String moveNode(Session session, String sourcePath, String destinationPath) throws RepositoryException {
-        String sourceName;
         try {
             if (null == sourcePath || sourcePath.equals("") || null == destinationPath || destinationPath.equals("")) {
                 throw new Exception("Node not moved.");
             }
-            int lastIndexOfSlash = sourcePath.lastIndexOf('/');
-            sourceName = sourcePath.substring(lastIndexOfSlash + 1, sourcePath.length());
-            if (sourceName.indexOf('[') >= 0) {
-                sourceName = sourceName.substring(0, sourceName.indexOf('['));
-            }
-            if (destinationPath.equals("/")) {
-                session.move(sourcePath, destinationPath + sourceName);
-            } else {
-                session.move(sourcePath, destinationPath + "/" + sourceName);
-            }
+            String targetPath = childPath(sourcePath, destinationPath);
+            session.move(sourcePath, targetPath);
             session.save();
+            nodeCacheInvalidator.invalidateTrees(List.of(sourcePath, targetPath));
         } catch (Exception e) {
             LOG.error("Node Not Moved. ", e);
             throw new RepositoryException("Node Not Moved. " + e.getMessage());
@@ -151,6 +166,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
             newPath = sourcePath.substring(0, lastIndexOfSlash + 1) + newName;
             session.move(sourcePath, newPath);
             session.save();
+            nodeCacheInvalidator.invalidateTrees(List.of(sourcePath, newPath));
         } catch (Exception e) {
             LOG.error("Node Not Renamed. ", e);
             throw new RepositoryException("Node Not Renamed. " + e.getMessage());
@@ -166,6 +182,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
         }
 
         StringBuilder resultBuilder = new StringBuilder();
+        List<String> written = new ArrayList<>();
         int successCount = 0;
         int failCount = 0;
 
@@ -180,20 +197,10 @@ public class ExplorerWriteService implements IExplorerWriteService {
                         continue;
                     }
 
-                    int lastIndexOfSlash = sourcePath.lastIndexOf('/');
-                    String sourceName = sourcePath.substring(lastIndexOfSlash + 1);
-                    if (sourceName.indexOf('[') >= 0) {
-                        sourceName = sourceName.substring(0, sourceName.indexOf('['));
-                    }
-
-                    String targetPath;
-                    if (destinationPath.equals("/")) {
-                        targetPath = destinationPath + sourceName;
-                    } else {
-                        targetPath = destinationPath + "/" + sourceName;
-                    }
-
+                    String targetPath = childPath(sourcePath, destinationPath);
                     session.move(sourcePath, targetPath);
+                    written.add(sourcePath);
+                    written.add(targetPath);
                     successCount++;
                 } catch (Exception e) {
                     LOG.error("Failed to move node: " + sourcePath + " to " + destinationPath, e);
@@ -202,6 +209,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
             }
 
             session.save();
+            nodeCacheInvalidator.invalidateTrees(written);
             resultBuilder.append("Successfully moved ").append(successCount).append(" nodes");
             if (failCount > 0) {
                 resultBuilder.append(", failed to move ").append(failCount).append(" nodes");
@@ -214,14 +222,27 @@ public class ExplorerWriteService implements IExplorerWriteService {
         return resultBuilder.toString();
     }
 
+    /**
+     * Cut and paste as a workspace move, which relinks the subtree instead of duplicating it. Copying then deleting is
+     * only done when the repository does not support the move.
+     */
     @Override
     public String cutAndPasteNode(Session session, String sourcePath, String destinationPath) throws RepositoryException {
         try {
             if (null == sourcePath || sourcePath.equals("") || null == destinationPath || destinationPath.equals("")) {
                 throw new Exception("Node not cut.");
             }
-            copyNode(session, sourcePath, destinationPath);
-            deleteNode(session, sourcePath);
+            String targetPath = childPath(sourcePath, destinationPath);
+            // the source path may carry a same-name sibling index, the caches are keyed by the plain path
+            String movedPath = session.getNode(sourcePath).getPath();
+            try {
+                session.getWorkspace().move(sourcePath, targetPath);
+                nodeCacheInvalidator.invalidateTrees(List.of(movedPath, targetPath));
+            } catch (UnsupportedRepositoryOperationException e) {
+                LOG.debug("Workspace move not supported, copying then deleting {}", sourcePath);
+                copyNode(session, sourcePath, destinationPath);
+                deleteNode(session, sourcePath);
+            }
         } catch (Exception e) {
             LOG.error("Node not cut. ", e);
             throw new RepositoryException("Node not cut. " + e.getMessage());
@@ -232,22 +253,14 @@ public class ExplorerWriteService implements IExplorerWriteService {
 
     @Override
     public String copyNode(Session session, String sourcePath, String destinationPath) throws RepositoryException {
-        String sourceName;
         try {
             if (null == sourcePath || sourcePath.equals("") || null == destinationPath || destinationPath.equals("")) {
                 throw new Exception("Node not copied.");
             }
-            int lastIndexOfSlash = sourcePath.lastIndexOf('/');
-            sourceName = sourcePath.substring(lastIndexOfSlash + 1, sourcePath.length());
-            if (sourceName.indexOf('[') >= 0) {
-                sourceName = sourceName.substring(0, sourceName.indexOf('['));
-            }
-            if (destinationPath.equals("/")) {
-                session.getWorkspace().copy(sourcePath, destinationPath + sourceName);
-            } else {
-                session.getWorkspace().copy(sourcePath, destinationPath + "/" + sourceName);
-            }
+            String targetPath = childPath(sourcePath, destinationPath);
+            session.getWorkspace().copy(sourcePath, targetPath);
             session.save();
+            nodeCacheInvalidator.invalidateTrees(List.of(targetPath));
         } catch (Exception e) {
             LOG.error("Node not copied. ", e);
             throw new RepositoryException("Node not copied. " + e.getMessage());
@@ -263,6 +276,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
         }
 
         StringBuilder resultBuilder = new StringBuilder();
+        List<String> written = new ArrayList<>();
         int successCount = 0;
         int failCount = 0;
 
@@ -277,20 +291,9 @@ public class ExplorerWriteService implements IExplorerWriteService {
                         continue;
                     }
 
-                    int lastIndexOfSlash = sourcePath.lastIndexOf('/');
-                    String sourceName = sourcePath.substring(lastIndexOfSlash + 1);
-                    if (sourceName.indexOf('[') >= 0) {
-                        sourceName = sourceName.substring(0, sourceName.indexOf('['));
-                    }
-
-                    String targetPath;
-                    if (destinationPath.equals("/")) {
-                        targetPath = destinationPath + sourceName;
-                    } else {
-                        targetPath = destinationPath + "/" + sourceName;
-                    }
-
+                    String targetPath = childPath(sourcePath, destinationPath);
                     session.getWorkspace().copy(sourcePath, targetPath);
+                    written.add(targetPath);
                     successCount++;
                 } catch (Exception e) {
                     LOG.error("Failed to copy node: " + sourcePath + " to " + destinationPath, e);
@@ -299,6 +302,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
             }
 
             session.save();
+            nodeCacheInvalidator.invalidateTrees(written);
             resultBuilder.append("Successfully copied ").append(successCount).append(" nodes");
             if (failCount > 0) {
                 resultBuilder.append(", failed to copy ").append(failCount).append(" nodes");
@@ -318,8 +322,15 @@ public class ExplorerWriteService implements IExplorerWriteService {
         }
         try {
             Item item = session.getItem(sourcePath);
+            boolean isNode = item.isNode();
+            String nodePath = isNode ? item.getPath() : item.getParent().getPath();
             item.remove();
             session.save();
+            if (isNode) {
+                nodeCacheInvalidator.invalidateTrees(List.of(nodePath));
+            } else {
+                nodeCacheInvalidator.invalidateNodes(List.of(nodePath));
+            }
         } catch (Exception e) {
             LOG.error("Node not deleted. ", e);
             throw new RepositoryException("Node not deleted. " + e.getMessage());
@@ -349,6 +360,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
             setNodeProperty(pathNode, name, value);
 
             session.save();
+            nodeCacheInvalidator.invalidateNodes(List.of(pathNode.getPath()));
         } catch (Exception e) {
             LOG.error("Property not added. ", e);
             throw new RepositoryException("Property not added. " + e.getMessage());
@@ -369,7 +381,9 @@ public class ExplorerWriteService implements IExplorerWriteService {
             }
             Node pathNode = (Node) item;
             pathNode.getProperty(name).remove();
+            BinaryDeduplicator.clearHash(pathNode, name);
             session.save();
+            nodeCacheInvalidator.invalidateNodes(List.of(pathNode.getPath()));
         } catch (Exception e) {
             LOG.error("Property not deleted. ", e);
             throw new RepositoryException("Property not deleted. " + e.getMessage());
@@ -378,11 +392,16 @@ public class ExplorerWriteService implements IExplorerWriteService {
         return "Successfully deleted " + name + " property at " + sourcePath;
     }
 
+    /**
+     * Save the submitted properties of the node, writing only those whose value differs from the persisted one
+     */
     @Override
-    public String saveProperties(Session session, String sourcePath, JcrNode jcrNode) throws RepositoryException {
-        if (null == jcrNode) {
+    public JcrPropertyChanges saveProperties(Session session, String sourcePath, JcrNode jcrNode) throws RepositoryException {
+        if (null == jcrNode || null == jcrNode.properties()) {
             throw new RepositoryException("Properties not saved.");
         }
+        List<String> changed = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
         try {
             Item item = session.getItem(sourcePath);
             if (!(item instanceof Node)) {
@@ -390,17 +409,24 @@ public class ExplorerWriteService implements IExplorerWriteService {
             }
 
             Node pathNode = (Node) item;
-            for (Iterator<Map.Entry<String, JcrProperty>> iterator = jcrNode.properties().entrySet().iterator(); iterator.hasNext();) {
-                Map.Entry<String, JcrProperty> propertyPair = iterator.next();
-                setNodeProperty(pathNode, propertyPair.getValue().name(), propertyPair.getValue());
+            for (JcrProperty property : jcrNode.properties().values()) {
+                if (updateNodeProperty(pathNode, property.name(), property)) {
+                    changed.add(property.name());
+                } else {
+                    skipped.add(property.name());
+                }
+            }
+            if (!changed.isEmpty()) {
+                session.save();
+                nodeCacheInvalidator.invalidateNodes(List.of(pathNode.getPath()));
             }
-            session.save();
         } catch (Exception e) {
             LOG.error("Properties not saved. ", e);
+            session.refresh(false);
             throw new RepositoryException("Properties not saved. " + e.getMessage());
         }
 
-        return "Successfully saved. " + sourcePath;
+        return new JcrPropertyChanges(sourcePath, changed, skipped);
     }
 
     @Override
@@ -414,8 +440,11 @@ public class ExplorerWriteService implements IExplorerWriteService {
                 return null;
             }
             Node pathNode = (Node) item;
-            setNodeProperty(pathNode, property, value);
+            if (!updateNodeProperty(pathNode, property, value)) {
+                return "Property unchanged " + sourcePath;
+            }
             session.save();
+            nodeCacheInvalidator.invalidateNodes(List.of(pathNode.getPath()));
         } catch (Exception e) {
             LOG.error("Property value not saved. ", e);
             throw new RepositoryException("Property not saved. " + e.getMessage());
@@ -436,7 +465,9 @@ public class ExplorerWriteService implements IExplorerWriteService {
             }
             Node pathNode = (Node) item;
             pathNode.setProperty(property, session.getValueFactory().createBinary(inputStream));
+            BinaryDeduplicator.clearHash(pathNode, property);
             session.save();
+            nodeCacheInvalidator.invalidateNodes(List.of(pathNode.getPath()));
         } catch (Exception e) {
             LOG.error("Binary Property not saved. ", e);
             throw new RepositoryException("Property not saved. " + e.getMessage());
@@ -456,6 +487,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
             NodeTypeManager nodeTypeManager = session.getWorkspace().getNodeTypeManager();
             CndImporter.registerNodeTypes(new StringReader(cnd), session);
             session.save();
+            nodeTypeCatalogCache.invalidate();
             LOG.info("Successfully registered node types from CND");
             return true;
         } catch (ParseException e) {
@@ -481,14 +513,14 @@ public class ExplorerWriteService implements IExplorerWriteService {
 
             // Store the icon association in a system node
             // Assuming there's a specific location where icon associations are stored
-            String iconAssociationPath = "/system/nodetype-icons";
+            String iconAssociationPath = NodeTypeCatalogCache.ICONS_PATH;
 
             // Check if the icon association path exists, create if it doesn't
             if (!session.nodeExists(iconAssociationPath)) {
                 Node rootNode = session.getRootNode();
                 Node systemNode;
                 if (!rootNode.hasNode("system")) {
-                    systemNode = rootNode.addNode("system", "nt:folder");
+                    systemNode = rootNode.addNode("system", "nt:unstructured");
                 } else {
                     systemNode = rootNode.getNode("system");
                 }
@@ -499,6 +531,7 @@ public class ExplorerWriteService implements IExplorerWriteService {
             iconAssociationNode.setProperty(nodeType, iconPath);
 
             session.save();
+            nodeTypeCatalogCache.invalidate();
             LOG.info("Successfully associated icon with node type: " + nodeType + " -> " + iconPath);
             return true;
         } catch (Exception e) {
@@ -506,4 +539,134 @@ public class ExplorerWriteService implements IExplorerWriteService {
             throw new RepositoryException("Failed to associate icon with node type: " + e.getMessage());
         }
     }
+
+    /**
+     * Apply the operations in order and save them at once. When an operation fails, the following ones are still tried
+     * so that every error is reported, then all the changes are discarded and nothing is saved.
+     */
+    @Override
+    public JcrBatchResult applyBatch(Session session, List<JcrWriteOperation> operations) throws RepositoryException {
+        if (operations == null || operations.isEmpty()) {
+            throw new RepositoryException("No operations specified");
+        }
+        List<JcrBatchResult.OperationResult> results = new ArrayList<>(operations.size());
+        List<String> writtenNodes = new ArrayList<>();
+        List<String> writtenTrees = new ArrayList<>();
+        boolean failed = false;
+        for (int i = 0; i < operations.size(); i++) {
+            try {
+                String path = apply(session, operations.get(i));
+                collectWritten(operations.get(i), path, writtenNodes, writtenTrees);
+                results.add(new JcrBatchResult.OperationResult(i, path, null));
+            } catch (RepositoryException | RuntimeException e) {
+                LOG.debug("Batch operation {} failed", i, e);
+                results.add(new JcrBatchResult.OperationResult(i, null, e.getMessage()));
+                failed = true;
+            }
+        }
+        if (failed) {
+            session.refresh(false);
+            return new JcrBatchResult(false, null, results);
+        }
+        try {
+            session.save();
+        } catch (RepositoryException e) {
+            LOG.error("Batch not saved. ", e);
+            session.refresh(false);
+            return new JcrBatchResult(false, e.getMessage(), results);
+        }
+        nodeCacheInvalidator.invalidateNodes(writtenNodes);
+        nodeCacheInvalidator.invalidateTrees(writtenTrees);
+        return new JcrBatchResult(true, null, results);
+    }
+
+    /**
+     * Collect the nodes changed by an operation of a batch, and the subtrees it moved or removed.
+     * @param changedPath path returned by {@link #apply}
+     */
+    private static void collectWritten(JcrWriteOperation operation, String changedPath, List<String> nodes, List<String> trees) {
+        if (operation instanceof JcrWriteOperation.Move op) {
+            trees.add(op.sourcePath());
+            trees.add(changedPath);
+        } else if (operation instanceof JcrWriteOperation.Rename op) {
+            trees.add(op.path());
+            trees.add(changedPath);
+        } else if (operation instanceof JcrWriteOperation.Delete) {
+            // the deleted item may be a property of the parent
+            trees.add(changedPath);
+            nodes.add(Text.getRelativeParent(changedPath, 1));
+        } else if (operation instanceof JcrWriteOperation.SetProperty op) {
+            nodes.add(op.path());
+        } else if (operation instanceof JcrWriteOperation.DeleteProperty op) {
+            nodes.add(op.path());
+        } else {
+            nodes.add(changedPath);
+        }
+    }
+
+    /**
+     * Apply one operation of a batch to the transient space of the session, returning the path of the changed item.
+     */
+    private static String apply(Session session, JcrWriteOperation operation) throws RepositoryException {
+        if (operation instanceof JcrWriteOperation.AddNode op) {
+            Node parent = session.getNode(required(op.path(), "path"));
+            String name = required(op.name(), "name");
+            Node node = op.primaryType() == null ? parent.addNode(name) : parent.addNode(name, op.primaryType());
+            if (op.mixinTypes() != null) {
+                for (String mixinType : op.mixinTypes()) {
+                    node.addMixin(mixinType);
+                }
+            }
+            return node.getPath();
+        }
+        if (operation instanceof JcrWriteOperation.AddMixin op) {
+            Node node = session.getNode(required(op.path(), "path"));
+            node.addMixin(required(op.mixinType(), "mixinType"));
+            return node.getPath();
+        }
+        if (operation instanceof JcrWriteOperation.RemoveMixin op) {
+            Node node = session.getNode(required(op.path(), "path"));
+            node.removeMixin(required(op.mixinType(), "mixinType"));
+            return node.getPath();
+        }
+        if (operation instanceof JcrWriteOperation.Move op) {
+            String targetPath = childPath(required(op.sourcePath(), "sourcePath"), required(op.destinationPath(), "destinationPath"));
+            session.move(op.sourcePath(), targetPath);
+            return targetPath;
+        }
+        if (operation instanceof JcrWriteOperation.Rename op) {
+            String path = required(op.path(), "path");
+            String newPath = path.substring(0, path.lastIndexOf('/') + 1) + required(op.newName(), "newName");
+            session.move(path, newPath);
+            return newPath;
+        }
+        if (operation instanceof JcrWriteOperation.Delete op) {
+            session.removeItem(required(op.path(), "path"));
+            return op.path();
+        }
+        if (operation instanceof JcrWriteOperation.SetProperty op) {
+            if (op.property() == null) {
+                throw new RepositoryException("property is missing");
+            }
+            Node node = session.getNode(required(op.path(), "path"));
+            updateNodeProperty(node, required(op.property().name(), "property name"), op.property());
+            return node.getProperty(op.property().name()).getPath();
+        }
+        if (operation instanceof JcrWriteOperation.DeleteProperty op) {
+            Node node = session.getNode(required(op.path(), "path"));
+            Property property = node.getProperty(required(op.name(), "name"));
+            String path = property.getPath();
+            property.remove();
+            BinaryDeduplicator.clearHash(node, op.name());
+            return path;
+        }
+        throw new RepositoryException("Unknown operation " + operation);
+    }
+
+    private static String required(String value, String name) throws RepositoryException {
+        if (value == null || value.isEmpty()) {
+            throw new RepositoryException(name + " is missing");
+        }
+        return value;
+    }
 }
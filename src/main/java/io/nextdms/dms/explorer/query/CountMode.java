@@ -0,0 +1,30 @@
+package io.nextdms.dms.explorer.query;
+
+import java.util.Locale;
+
+/**
+ * How the total number of results of a paginated search is obtained.
+ */
+public enum CountMode {
+    /**
+     * Every result is counted, while the requested page is read: the whole result set is iterated.
+     */
+    EXACT,
+    /**
+     * The size known to the query engine when it has one, otherwise the results are counted up to a limit past the
+     * requested page: the total is a lower bound when the limit is reached.
+     */
+    ESTIMATE,
+    /**
+     * No total: one more result than the page size is read to tell whether a next page exists.
+     */
+    NONE;
+
+    /**
+     * @param mode {@code exact}, {@code estimate} or {@code none}, in any case; {@code exact} when missing
+     * @throws IllegalArgumentException for any other value
+     */
+    public static CountMode of(String mode) {
+        return mode == null || mode.isBlank() ? EXACT : valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -1,6 +1,11 @@
 package io.nextdms.dms.explorer.query;
 
+import io.nextdms.dms.explorer.JcrNodeStream;
+import io.nextdms.dms.explorer.PropertyProjection;
 import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrNodePage;
+import io.nextdms.dto.explorer.JcrQueryPlan;
+import io.nextdms.dto.explorer.JcrSearchRequest;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import org.springframework.data.domain.Page;
@@ -8,4 +13,27 @@ import org.springframework.data.domain.Pageable;
 
 public interface IQueryService {
     Page<JcrNode> search(Session session, String query, String type, Pageable pageable) throws RepositoryException;
+    Page<JcrNode> search(Session session, String query, String type, Pageable pageable, PropertyProjection projection)
+        throws RepositoryException;
+    SearchPage<JcrNode> search(
+        Session session,
+        String query,
+        String type,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException;
+    SearchPage<JcrNode> search(
+        Session session,
+        JcrSearchRequest request,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException;
+    JcrQueryPlan explain(Session session, String query, String type) throws RepositoryException;
+    JcrQueryPlan explain(Session session, JcrSearchRequest request) throws RepositoryException;
+    JcrNodePage searchPage(Session session, String query, String cursor, int pageSize, PropertyProjection projection)
+        throws RepositoryException;
+    JcrNodeStream streamSearch(Session session, String query, String type, Pageable pageable, PropertyProjection projection)
+        throws RepositoryException;
 }
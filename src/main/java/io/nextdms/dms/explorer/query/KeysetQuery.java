@@ -0,0 +1,230 @@
+package io.nextdms.dms.explorer.query;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import javax.jcr.query.InvalidQueryException;
+import javax.jcr.query.Query;
+
+/**
+ * JCR-SQL2 query paginated by keyset: each page starts after the sort key of the last node of the previous page, so
+ * that reaching a page does not read the results of all the previous ones.
+ * <p>
+ * The query must have a single selector and at most one ordering, on a property or on the path. The path is added as a
+ * tie breaker so that the order is total; when ordering on a property, nodes without it are left out. The sort key of
+ * the previous page is bound as the {@code $keysetValue} and {@code $keysetPath} variables.
+ */
+public final class KeysetQuery {
+
+    static final String VALUE_VARIABLE = "keysetValue";
+    static final String PATH_VARIABLE = "keysetPath";
+
+    private static final Pattern UNSUPPORTED = Pattern.compile("(?i)\\b(JOIN|UNION)\\b");
+    private static final Pattern FROM = Pattern.compile("(?i)\\bFROM\\b");
+    private static final Pattern WHERE = Pattern.compile("(?i)\\bWHERE\\b");
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)\\bORDER\\s+BY\\b");
+    private static final Pattern OPTION = Pattern.compile("(?i)\\bOPTION\\s*\\(");
+    private static final Pattern SOURCE = Pattern.compile(
+        "(?is)^\\s*(\\[[^\\]]+\\]|[^\\s\\[\\]]+)(?:\\s+AS\\s+(\\[[^\\]]+\\]|[^\\s\\[\\]]+))?\\s*$"
+    );
+    private static final Pattern PATH_ORDERING = Pattern.compile(
+        "(?is)^PATH\\s*\\(\\s*(\\[[^\\]]+\\]|[^\\s\\[\\]()]+)\\s*\\)(?:\\s+(ASC|DESC))?$"
+    );
+    private static final Pattern PROPERTY_ORDERING = Pattern.compile(
+        "(?is)^(?:(\\[[^\\]]+\\]|[^\\s.\\[\\]()]+)\\.)?(\\[[^\\]]+\\]|[^\\s\\[\\]()]+)(?:\\s+(ASC|DESC))?$"
+    );
+
+    private final String select;
+    private final String selector;
+    private final String condition;
+    private final String property;
+    private final boolean descending;
+    private final String options;
+
+    private KeysetQuery(String select, String selector, String condition, String property, boolean descending, String options) {
+        this.select = select;
+        this.selector = selector;
+        this.condition = condition;
+        this.property = property;
+        this.descending = descending;
+        this.options = options;
+    }
+
+    /**
+     * @throws InvalidQueryException if the statement has joins, unions, several orderings or an ordering on anything
+     * else than a property or the path of its selector
+     */
+    public static KeysetQuery parse(String statement) throws InvalidQueryException {
+        String masked = maskLiterals(statement);
+        if (UNSUPPORTED.matcher(masked).find()) {
+            throw new InvalidQueryException("Keyset pagination does not support joins nor unions: " + statement);
+        }
+        Matcher from = FROM.matcher(masked);
+        if (!from.find()) {
+            throw new InvalidQueryException("Not a JCR-SQL2 query: " + statement);
+        }
+        int end = statement.length();
+        int option = find(OPTION, masked, from.end(), end);
+        int orderBy = find(ORDER_BY, masked, from.end(), option);
+        int where = find(WHERE, masked, from.end(), orderBy);
+
+        Matcher source = SOURCE.matcher(statement.substring(from.end(), where));
+        if (!source.matches()) {
+            throw new InvalidQueryException("Keyset pagination needs a single selector: " + statement);
+        }
+        String selector = source.group(2) != null ? source.group(2) : source.group(1);
+        if (!selector.startsWith("[") && selector.contains(":")) {
+            selector = "[" + selector + "]";
+        }
+        String condition = where < orderBy ? statement.substring(where, orderBy).replaceFirst("(?i)^WHERE", "").trim() : null;
+        String select = statement.substring(0, where).trim();
+        String options = option < end ? statement.substring(option).trim() : "";
+
+        String property = null;
+        boolean descending = false;
+        if (orderBy < option) {
+            String ordering = statement.substring(orderBy, option).replaceFirst("(?i)^ORDER\\s+BY", "").trim();
+            Matcher path = PATH_ORDERING.matcher(ordering);
+            Matcher propertyOrdering = PROPERTY_ORDERING.matcher(ordering);
+            if (path.matches()) {
+                checkSelector(statement, selector, path.group(1));
+                descending = "DESC".equalsIgnoreCase(path.group(2));
+            } else if (propertyOrdering.matches()) {
+                if (propertyOrdering.group(1) != null) {
+                    checkSelector(statement, selector, propertyOrdering.group(1));
+                }
+                property = unbracket(propertyOrdering.group(2));
+                descending = "DESC".equalsIgnoreCase(propertyOrdering.group(3));
+                if ("jcr:path".equals(property)) {
+                    property = null;
+                }
+            } else {
+                throw new InvalidQueryException("Keyset pagination needs at most one ordering, on a property or the path: " + statement);
+            }
+        }
+        return new KeysetQuery(select, selector, condition, property, descending, options);
+    }
+
+    /**
+     * The statement of the first page, or of a following page when continued: the sort key of the previous page is then
+     * to be bound.
+     */
+    public String statement(boolean continued) {
+        StringBuilder statement = new StringBuilder(select);
+        String path = "PATH(" + selector + ")";
+        String comparison = descending ? " < " : " > ";
+        String separator = " WHERE ";
+        if (condition != null) {
+            statement.append(separator).append('(').append(condition).append(')');
+            separator = " AND ";
+        }
+        if (property != null) {
+            String value = selector + ".[" + property + "]";
+            statement.append(separator).append(value).append(" IS NOT NULL");
+            if (continued) {
+                statement
+                    .append(" AND (")
+                    .append(value)
+                    .append(comparison)
+                    .append('$')
+                    .append(VALUE_VARIABLE)
+                    .append(" OR (")
+                    .append(value)
+                    .append(" = $")
+                    .append(VALUE_VARIABLE)
+                    .append(" AND ")
+                    .append(path)
+                    .append(" > $")
+                    .append(PATH_VARIABLE)
+                    .append("))");
+            }
+            statement.append(" ORDER BY ").append(value).append(descending ? " DESC, " : ", ").append(path);
+        } else {
+            if (continued) {
+                statement.append(separator).append(path).append(comparison).append('$').append(PATH_VARIABLE);
+            }
+            statement.append(" ORDER BY ").append(path).append(descending ? " DESC" : "");
+        }
+        if (!options.isEmpty()) {
+            statement.append(' ').append(options);
+        }
+        return statement.toString();
+    }
+
+    /**
+     * Create the query of the page following the cursor, the first page when it is {@code null}.
+     */
+    public Query createQuery(Session session, SearchCursor after) throws RepositoryException {
+        Query query = session.getWorkspace().getQueryManager().createQuery(statement(after != null), Query.JCR_SQL2);
+        if (after != null) {
+            if ((property != null) == (after.type() == PropertyType.UNDEFINED)) {
+                throw new InvalidQueryException("Cursor does not match the ordering of the query");
+            }
+            ValueFactory valueFactory = session.getValueFactory();
+            query.bindValue(PATH_VARIABLE, valueFactory.createValue(after.path()));
+            if (property != null) {
+                query.bindValue(VALUE_VARIABLE, valueFactory.createValue(after.value(), after.type()));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * The cursor of the page following the given node.
+     */
+    public SearchCursor cursorAfter(Node node) throws RepositoryException {
+        if (property == null) {
+            return new SearchCursor(node.getPath(), PropertyType.UNDEFINED, null);
+        }
+        Property sortProperty = node.getProperty(property);
+        Value value = sortProperty.isMultiple() ? sortProperty.getValues()[0] : sortProperty.getValue();
+        return new SearchCursor(node.getPath(), value.getType(), value.getString());
+    }
+
+    private static int find(Pattern pattern, String masked, int from, int to) {
+        Matcher matcher = pattern.matcher(masked).region(from, to);
+        return matcher.find() ? matcher.start() : to;
+    }
+
+    private static void checkSelector(String statement, String selector, String name) throws InvalidQueryException {
+        if (!unbracket(selector).equals(unbracket(name))) {
+            throw new InvalidQueryException("Unknown selector " + name + ": " + statement);
+        }
+    }
+
+    private static String unbracket(String name) {
+        return name.startsWith("[") && name.endsWith("]") ? name.substring(1, name.length() - 1) : name;
+    }
+
+    /**
+     * Blank out string literals and bracketed names, keeping positions, so that keywords are only looked up in the
+     * structure of the statement.
+     */
+    private static String maskLiterals(String statement) {
+        StringBuilder masked = new StringBuilder(statement.length());
+        char closing = 0;
+        for (int i = 0; i < statement.length(); i++) {
+            char c = statement.charAt(i);
+            if (closing != 0) {
+                masked.append(c == closing ? c : ' ');
+                if (c == closing) {
+                    closing = 0;
+                }
+            } else {
+                masked.append(c);
+                if (c == '\'' || c == '"') {
+                    closing = c;
+                } else if (c == '[') {
+                    closing = ']';
+                }
+            }
+        }
+        return masked.toString();
+    }
+}
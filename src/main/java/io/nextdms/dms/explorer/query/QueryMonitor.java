@@ -0,0 +1,185 @@
+package io.nextdms.dms.explorer.query;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dto.explorer.JcrQueryPlan;
+import io.nextdms.dto.explorer.JcrSlowQuery;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.RowIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Explains search queries and watches their execution: each execution is timed per query shape, the statement with its
+ * literals blanked out, and the executions slower than {@code oak.queries.slow-threshold-millis} are explained and kept
+ * in a bounded log, the oldest being dropped first.
+ * <p>
+ * Only the slow queries are explained, by a second {@code EXPLAIN MEASURE} query that plans without reading any row.
+ * Shapes past {@code oak.queries.max-shapes} are timed together, so that ad-hoc queries do not grow the metrics.
+ */
+@Component
+public class QueryMonitor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryMonitor.class);
+
+    static final String OTHER_SHAPE = "other";
+
+    /**
+     * Name of the XPath query language, whose {@link Query} constant is deprecated.
+     */
+    static final String XPATH = "xpath";
+
+    private static final int MAX_SHAPE_LENGTH = 256;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'|\"(?:[^\"]|\"\")*\"");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.:$])-?\\d+(?:\\.\\d+)?(?:[eE][-+]?\\d+)?(?![\\w.:])");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern COST = Pattern.compile("\\s*cost:\\s*\\{([^}]*)}\\s*$");
+    private static final Pattern SELECTOR_COST = Pattern.compile(":\\s*(-?(?:Infinity|[\\d.]+(?:E[-+]?\\d+)?))");
+    private static final Pattern INDEX = Pattern.compile("/\\*\\s*(\\S+)");
+
+    private final OakProperties.Queries properties;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> shapes = ConcurrentHashMap.newKeySet();
+    private final Deque<JcrSlowQuery> slowQueries = new ArrayDeque<>();
+
+    public QueryMonitor(OakProperties oakProperties, MeterRegistry meterRegistry) {
+        this.properties = oakProperties.getQueries();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Plan the statement as the repository would execute it, without reading any row. Bind variables missing from the
+     * bindings are bound to an empty string, which leaves the choice of index unchanged.
+     */
+    public JcrQueryPlan explain(Session session, String statement, String language, Map<String, Value> bindings)
+        throws RepositoryException {
+        String explain = XPATH.equals(language) ? "explain measure " : "EXPLAIN MEASURE ";
+        Query query = session.getWorkspace().getQueryManager().createQuery(explain + statement, language);
+        for (String name : query.getBindVariableNames()) {
+            Value value = bindings.get(name);
+            query.bindValue(name, value != null ? value : session.getValueFactory().createValue(""));
+        }
+        QueryResult result = query.execute();
+        List<String> plans = new ArrayList<>();
+        RowIterator rows = result.getRows();
+        while (rows.hasNext()) {
+            plans.add(rows.nextRow().getValue("plan").getString());
+        }
+        return toPlan(statement, language, String.join("\n", plans));
+    }
+
+    /**
+     * Time an execution under the shape of its statement, and keep it in the slow-query log when above the threshold.
+     * @param bindings values bound to the query, for its plan to be the executed one
+     * @param rowsRead number of result rows read
+     * @param elapsedNanos time of the execution and the reading of its rows
+     */
+    public void record(Session session, Query query, Map<String, Value> bindings, long rowsRead, long elapsedNanos) {
+        String statement = query.getStatement();
+        String language = query.getLanguage();
+        Timer.builder("nextdms.explorer.queries.execution")
+            .description("Time spent executing search queries and reading their rows")
+            .tag("language", language)
+            .tag("shape", boundedShape(statement))
+            .register(meterRegistry)
+            .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        if (durationMillis < properties.getSlowThresholdMillis()) {
+            return;
+        }
+        JcrQueryPlan plan = null;
+        try {
+            plan = explain(session, statement, language, bindings);
+        } catch (RepositoryException e) {
+            LOG.debug("Could not explain slow query {}: {}", statement, e.getMessage());
+        }
+        LOG.info("Slow query ({} ms, {} rows): {}", durationMillis, rowsRead, statement);
+        JcrSlowQuery slowQuery = new JcrSlowQuery(Instant.now(), statement, language, rowsRead, durationMillis, plan);
+        synchronized (slowQueries) {
+            while (!slowQueries.isEmpty() && slowQueries.size() >= properties.getSlowLogSize()) {
+                slowQueries.removeLast();
+            }
+            if (properties.getSlowLogSize() > 0) {
+                slowQueries.addFirst(slowQuery);
+            }
+        }
+    }
+
+    /**
+     * The slow queries kept, the latest first.
+     */
+    public List<JcrSlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return List.copyOf(slowQueries);
+        }
+    }
+
+    public void clearSlowQueries() {
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    /**
+     * The statement with its string and number literals replaced by {@code ?} and its spaces collapsed, so that the
+     * queries differing only by their values share one shape.
+     */
+    public static String shape(String statement) {
+        String shape = STRING_LITERAL.matcher(statement).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return SPACES.matcher(shape).replaceAll(" ").trim();
+    }
+
+    private String boundedShape(String statement) {
+        String shape = shape(statement);
+        if (shape.length() > MAX_SHAPE_LENGTH) {
+            shape = shape.substring(0, MAX_SHAPE_LENGTH);
+        }
+        if (shapes.contains(shape)) {
+            return shape;
+        }
+        synchronized (shapes) {
+            if (shapes.size() >= properties.getMaxShapes()) {
+                return OTHER_SHAPE;
+            }
+            shapes.add(shape);
+            return shape;
+        }
+    }
+
+    static JcrQueryPlan toPlan(String statement, String language, String explained) {
+        String plan = explained;
+        Double cost = null;
+        Matcher costs = COST.matcher(explained);
+        if (costs.find()) {
+            plan = explained.substring(0, costs.start());
+            Matcher selectorCost = SELECTOR_COST.matcher(costs.group(1));
+            while (selectorCost.find()) {
+                cost = (cost == null ? 0 : cost) + Double.parseDouble(selectorCost.group(1));
+            }
+        }
+        List<String> indexes = new ArrayList<>();
+        Matcher index = INDEX.matcher(plan);
+        while (index.find()) {
+            indexes.add(index.group(1));
+        }
+        return new JcrQueryPlan(statement, language, plan, List.copyOf(indexes), cost, indexes.contains("traverse"));
+    }
+}
@@ -0,0 +1,47 @@
+package io.nextdms.dms.explorer.query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import javax.jcr.PropertyType;
+
+/**
+ * Continuation cursor of a keyset-paginated search: the sort key of the last node returned.
+ *
+ * @param path path of the last node returned, which breaks ties between equal values
+ * @param type {@link PropertyType} of the value, {@link PropertyType#UNDEFINED} when ordering by path
+ * @param value string form of the ordering property of the last node, {@code null} when ordering by path
+ */
+public record SearchCursor(String path, int type, String value) {
+    private static final char SEPARATOR = ':';
+    private static final char VALUE_SEPARATOR = '\n';
+
+    public String encode() {
+        String raw = type + String.valueOf(SEPARATOR) + path + (value == null ? "" : VALUE_SEPARATOR + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encode()}
+     */
+    public static SearchCursor decode(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = decoded.indexOf(SEPARATOR);
+        if (separator <= 0 || !decoded.startsWith("/", separator + 1)) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        int type = Integer.parseInt(decoded.substring(0, separator));
+        String rest = decoded.substring(separator + 1);
+        int valueSeparator = rest.indexOf(VALUE_SEPARATOR);
+        if (type == PropertyType.UNDEFINED) {
+            if (valueSeparator >= 0) {
+                throw new IllegalArgumentException("Malformed cursor: " + cursor);
+            }
+            return new SearchCursor(rest, type, null);
+        }
+        if (valueSeparator < 0) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor);
+        }
+        PropertyType.nameFromValue(type);
+        return new SearchCursor(rest.substring(0, valueSeparator), type, rest.substring(valueSeparator + 1));
+    }
+}
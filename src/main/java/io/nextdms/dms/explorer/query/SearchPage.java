@@ -0,0 +1,29 @@
+package io.nextdms.dms.explorer.query;
+
+import java.util.List;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * One page of search results, with the way its total was obtained. With {@link CountMode#NONE} the total only tells
+ * whether a next page exists; with {@link CountMode#ESTIMATE} it may be a lower bound.
+ */
+public class SearchPage<T> extends PageImpl<T> {
+
+    private final CountMode countMode;
+    private final boolean totalExact;
+
+    public SearchPage(List<T> content, Pageable pageable, long total, CountMode countMode, boolean totalExact) {
+        super(content, pageable, total);
+        this.countMode = countMode;
+        this.totalExact = totalExact;
+    }
+
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
@@ -0,0 +1,198 @@
+package io.nextdms.dms.explorer.query;
+
+import io.nextdms.dto.explorer.JcrSearchRequest;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import javax.jcr.query.InvalidQueryException;
+import javax.jcr.query.Query;
+
+/**
+ * Compiles a {@link JcrSearchRequest} to a JCR-SQL2 statement written the way Oak indexes are matched: the node type as
+ * selector, a path restriction, plain comparisons of properties with bound values, prefix searches as LIKE, and the
+ * full-text term as CONTAINS. No function is applied to a property, which would keep an index from being used.
+ * <p>
+ * Values are bound, never written into the statement, so requests with the same criteria share one statement. The
+ * statement ends with a traversal option: Oak refuses the query, or logs a warning, when no index can answer it.
+ */
+public final class SearchRequestCompiler {
+
+    public static final String SELECTOR = "s";
+    public static final String TEXT_VARIABLE = "text";
+
+    private static final Pattern NAME = Pattern.compile("^[^\\[\\]|*/'\"\\s][^\\[\\]|*/'\"]*$");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    /**
+     * What the query engine does with a query that no index can answer.
+     */
+    public enum Traversal {
+        WARN,
+        FAIL,
+    }
+
+    /**
+     * A statement and the values to bind to its variables.
+     */
+    public record CompiledQuery(String statement, List<Binding> bindings) {
+        /**
+         * @return the values bound, by variable name
+         */
+        public Map<String, Value> bind(Query query, ValueFactory valueFactory) throws RepositoryException {
+            Map<String, Value> values = new HashMap<>();
+            for (Binding binding : bindings) {
+                Value value = valueFactory.createValue(binding.value(), binding.type());
+                query.bindValue(binding.name(), value);
+                values.put(binding.name(), value);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * @param type {@link PropertyType} of the value
+     */
+    public record Binding(String name, String value, int type) {}
+
+    private SearchRequestCompiler() {}
+
+    /**
+     * @throws InvalidQueryException if a name is not a valid JCR name or a predicate has the wrong number of values
+     */
+    public static CompiledQuery compile(JcrSearchRequest request, Traversal traversal) throws InvalidQueryException {
+        List<String> conditions = new ArrayList<>();
+        List<Binding> bindings = new ArrayList<>();
+        String nodeType = request.nodeType() == null || request.nodeType().isBlank() ? "nt:base" : name(request.nodeType());
+        if (request.path() != null && !request.path().isBlank() && !request.path().equals("/")) {
+            if (!request.path().startsWith("/")) {
+                throw new InvalidQueryException("Not an absolute path: " + request.path());
+            }
+            String path = request.path().endsWith("/") ? request.path().substring(0, request.path().length() - 1) : request.path();
+            conditions.add("ISDESCENDANTNODE(" + SELECTOR + ", '" + path.replace("'", "''") + "')");
+        }
+        if (request.predicates() != null) {
+            for (JcrSearchRequest.Predicate predicate : request.predicates()) {
+                conditions.add(condition(predicate, bindings));
+            }
+        }
+        if (request.dateRanges() != null) {
+            for (JcrSearchRequest.DateRange range : request.dateRanges()) {
+                String property = property(range.property());
+                if (range.from() != null) {
+                    conditions.add(property + " >= $" + bindDate(range.from(), bindings));
+                }
+                if (range.to() != null) {
+                    conditions.add(property + " < $" + bindDate(range.to(), bindings));
+                }
+            }
+        }
+        if (request.text() != null && !request.text().isBlank()) {
+            conditions.add("CONTAINS(" + SELECTOR + ".*, $" + TEXT_VARIABLE + ")");
+            bindings.add(new Binding(TEXT_VARIABLE, request.text(), PropertyType.STRING));
+        }
+
+        StringBuilder statement = new StringBuilder("SELECT * FROM [").append(nodeType).append("] AS ").append(SELECTOR);
+        if (!conditions.isEmpty()) {
+            statement.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        if (request.sort() != null && !request.sort().isEmpty()) {
+            List<String> orderings = new ArrayList<>();
+            for (JcrSearchRequest.Sort sort : request.sort()) {
+                String operand = "jcr:score".equals(sort.property()) ? "SCORE(" + SELECTOR + ")" : property(sort.property());
+                orderings.add(operand + (sort.descending() ? " DESC" : ""));
+            }
+            statement.append(" ORDER BY ").append(String.join(", ", orderings));
+        }
+        statement.append(" OPTION(TRAVERSAL ").append(traversal.name());
+        if (request.indexTag() != null && !request.indexTag().isBlank()) {
+            statement.append(", INDEX TAG [").append(name(request.indexTag())).append(']');
+        }
+        statement.append(')');
+        return new CompiledQuery(statement.toString(), List.copyOf(bindings));
+    }
+
+    private static String condition(JcrSearchRequest.Predicate predicate, List<Binding> bindings) throws InvalidQueryException {
+        if (predicate.operator() == null) {
+            throw new InvalidQueryException("Missing operator on " + predicate.property());
+        }
+        String property = property(predicate.property());
+        List<String> values = predicate.values() == null ? List.of() : predicate.values();
+        int type = type(predicate.type());
+        return switch (predicate.operator()) {
+            case EXISTS -> property + " IS NOT NULL";
+            case NOT_EXISTS -> property + " IS NULL";
+            case IN -> {
+                if (values.isEmpty()) {
+                    throw new InvalidQueryException("IN needs at least one value on " + predicate.property());
+                }
+                List<String> variables = new ArrayList<>();
+                for (String value : values) {
+                    variables.add("$" + bind(value, type, bindings));
+                }
+                yield property + " IN(" + String.join(", ", variables) + ")";
+            }
+            default -> {
+                if (values.size() != 1) {
+                    throw new InvalidQueryException(predicate.operator() + " needs one value on " + predicate.property());
+                }
+                String value = values.get(0);
+                String operator =
+                    switch (predicate.operator()) {
+                        case NOT_EQUALS -> " <> ";
+                        case GREATER_THAN -> " > ";
+                        case GREATER_OR_EQUAL -> " >= ";
+                        case LESS_THAN -> " < ";
+                        case LESS_OR_EQUAL -> " <= ";
+                        case STARTS_WITH -> " LIKE ";
+                        default -> " = ";
+                    };
+                if (predicate.operator() == JcrSearchRequest.Operator.STARTS_WITH) {
+                    value = value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                    type = PropertyType.STRING;
+                }
+                yield property + operator + "$" + bind(value, type, bindings);
+            }
+        };
+    }
+
+    private static String bind(String value, int type, List<Binding> bindings) {
+        String name = "v" + bindings.size();
+        bindings.add(new Binding(name, value, type));
+        return name;
+    }
+
+    private static String bindDate(OffsetDateTime date, List<Binding> bindings) {
+        return bind(DATE_FORMAT.format(date), PropertyType.DATE, bindings);
+    }
+
+    private static String property(String name) throws InvalidQueryException {
+        return SELECTOR + ".[" + name(name) + "]";
+    }
+
+    private static String name(String name) throws InvalidQueryException {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new InvalidQueryException("Invalid name: " + name);
+        }
+        return name;
+    }
+
+    private static int type(String name) throws InvalidQueryException {
+        if (name == null || name.isBlank()) {
+            return PropertyType.STRING;
+        }
+        for (int type = PropertyType.STRING; type <= PropertyType.DECIMAL; type++) {
+            if (PropertyType.nameFromValue(type).equalsIgnoreCase(name.trim())) {
+                return type;
+            }
+        }
+        throw new InvalidQueryException("Unknown property type: " + name);
+    }
+}
@@ -1,30 +1,174 @@
 package io.nextdms.dms.explorer.query.impl;
 
 import static io.nextdms.dms.explorer.ExplorerUtils.*;
-import static io.nextdms.dms.explorer.ExplorerUtils.getSearchTotalCount;
 
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.ExplorerUtils;
+import io.nextdms.dms.explorer.JcrNodeStream;
+import io.nextdms.dms.explorer.PropertyProjection;
+import io.nextdms.dms.explorer.query.CountMode;
 import io.nextdms.dms.explorer.query.IQueryService;
+import io.nextdms.dms.explorer.query.KeysetQuery;
+import io.nextdms.dms.explorer.query.QueryMonitor;
+import io.nextdms.dms.explorer.query.SearchCursor;
+import io.nextdms.dms.explorer.query.SearchPage;
+import io.nextdms.dms.explorer.query.SearchRequestCompiler;
 import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrNodePage;
+import io.nextdms.dto.explorer.JcrQueryPlan;
+import io.nextdms.dto.explorer.JcrSearchRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.Value;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
-import javax.jcr.query.QueryResult;
+import javax.jcr.query.RowIterator;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 @Service
 public class QueryService implements IQueryService {
 
+    private final OakProperties.Queries properties;
+    private final QueryMonitor queryMonitor;
+
+    public QueryService(OakProperties oakProperties, QueryMonitor queryMonitor) {
+        this.properties = oakProperties.getQueries();
+        this.queryMonitor = queryMonitor;
+    }
+
     @Override
     public Page<JcrNode> search(Session session, String query, String type, Pageable pageable) throws RepositoryException {
+        return search(session, query, type, pageable, PropertyProjection.ALL);
+    }
+
+    @Override
+    public Page<JcrNode> search(Session session, String query, String type, Pageable pageable, PropertyProjection projection)
+        throws RepositoryException {
+        return search(session, query, type, pageable, projection, CountMode.EXACT);
+    }
+
+    @Override
+    public SearchPage<JcrNode> search(
+        Session session,
+        String query,
+        String type,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException {
         QueryManager queryManager = session.getWorkspace().getQueryManager();
-        QueryResult result = createQuery(queryManager, query, Query.JCR_SQL2, pageable);
-        return transformToPage(
-            getSearcResult(session, result),
-            pageable,
-            getSearchTotalCount(queryManager, pageable, Query.JCR_SQL2, query)
-        );
+        Query jcrQuery = queryManager.createQuery(query, type);
+        return monitoredSearchPage(session, jcrQuery, Map.of(), pageable, projection, countMode);
+    }
+
+    /**
+     * Compile the request to JCR-SQL2 and bind its values. With the FAIL traversal policy, Oak throws an
+     * {@link javax.jcr.query.InvalidQueryException} when no index can answer the query.
+     * @see SearchRequestCompiler
+     */
+    @Override
+    public SearchPage<JcrNode> search(
+        Session session,
+        JcrSearchRequest request,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException {
+        SearchRequestCompiler.CompiledQuery compiled = SearchRequestCompiler.compile(request, properties.getTraversal());
+        Query jcrQuery = session.getWorkspace().getQueryManager().createQuery(compiled.statement(), Query.JCR_SQL2);
+        Map<String, Value> bindings = compiled.bind(jcrQuery, session.getValueFactory());
+        return monitoredSearchPage(session, jcrQuery, bindings, pageable, projection, countMode);
+    }
+
+    @Override
+    public JcrQueryPlan explain(Session session, String query, String type) throws RepositoryException {
+        return queryMonitor.explain(session, query, type, Map.of());
+    }
+
+    /**
+     * The request is compiled allowing traversal, so that the plan of a request refused for traversing can be seen.
+     */
+    @Override
+    public JcrQueryPlan explain(Session session, JcrSearchRequest request) throws RepositoryException {
+        SearchRequestCompiler.CompiledQuery compiled = SearchRequestCompiler.compile(request, SearchRequestCompiler.Traversal.WARN);
+        Query jcrQuery = session.getWorkspace().getQueryManager().createQuery(compiled.statement(), Query.JCR_SQL2);
+        return queryMonitor.explain(session, compiled.statement(), Query.JCR_SQL2, compiled.bind(jcrQuery, session.getValueFactory()));
+    }
+
+    /**
+     * Read the page of a JCR-SQL2 query following the cursor, by keyset: the query only returns the nodes after the sort
+     * key of the cursor, so that the cost of a page does not grow with its depth. No total count is computed.
+     * @see KeysetQuery
+     */
+    @Override
+    public JcrNodePage searchPage(Session session, String query, String cursor, int pageSize, PropertyProjection projection)
+        throws RepositoryException {
+        SearchCursor after;
+        try {
+            after = StringUtils.hasText(cursor) ? SearchCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            throw new RepositoryException("Invalid cursor: " + cursor, e);
+        }
+        KeysetQuery keysetQuery = KeysetQuery.parse(query);
+        Query jcrQuery = keysetQuery.createQuery(session, after);
+        jcrQuery.setLimit(pageSize + 1L);
+        long start = System.nanoTime();
+        RowIterator rows = jcrQuery.execute().getRows();
+        List<JcrNode> content = new ArrayList<>(pageSize);
+        Node last = null;
+        while (content.size() < pageSize && rows.hasNext()) {
+            last = rows.nextRow().getNode();
+            content.add(toJcrNode(last, projection));
+        }
+        String nextCursor = rows.hasNext() ? keysetQuery.cursorAfter(last).encode() : null;
+        queryMonitor.record(session, jcrQuery, Map.of(), content.size() + (nextCursor != null ? 1 : 0), System.nanoTime() - start);
+        return new JcrNodePage(content, nextCursor);
+    }
+
+    /**
+     * Execute the query, so that an invalid query fails here, and return the stream handing each result node to its
+     * consumer as soon as the result yields it. No total count is computed.
+     */
+    @Override
+    public JcrNodeStream streamSearch(Session session, String query, String type, Pageable pageable, PropertyProjection projection)
+        throws RepositoryException {
+        QueryManager queryManager = session.getWorkspace().getQueryManager();
+        Query jcrQuery = queryManager.createQuery(query, type);
+        if (pageable != null) {
+            jcrQuery.setLimit(pageable.getPageSize());
+            jcrQuery.setOffset(pageable.getOffset());
+        }
+        long start = System.nanoTime();
+        NodeIterator nodes = jcrQuery.execute().getNodes();
+        return consumer -> {
+            long[] rowsRead = { 0 };
+            forEach(nodes, projection, node -> {
+                rowsRead[0]++;
+                consumer.accept(node);
+            });
+            queryMonitor.record(session, jcrQuery, Map.of(), rowsRead[0], System.nanoTime() - start);
+        };
+    }
+
+    private SearchPage<JcrNode> monitoredSearchPage(
+        Session session,
+        Query query,
+        Map<String, Value> bindings,
+        Pageable pageable,
+        PropertyProjection projection,
+        CountMode countMode
+    ) throws RepositoryException {
+        long start = System.nanoTime();
+        SearchPageRead read = getSearchPage(query, pageable, countMode, properties.getCountLimit(), projection, ExplorerUtils::toJcrNode);
+        queryMonitor.record(session, query, bindings, read.rowsRead(), System.nanoTime() - start);
+        return read.page();
     }
 }
@@ -0,0 +1,34 @@
+package io.nextdms.dms.management;
+
+import io.nextdms.dms.explorer.query.QueryMonitor;
+import io.nextdms.dto.explorer.JcrSlowQuery;
+import java.util.List;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Slow-query log of the searches, under {@code /management/slowqueries}: reading it lists the slow queries kept, the
+ * latest first, deleting it empties it.
+ */
+@Component
+@Endpoint(id = "slowqueries")
+public class SlowQueriesEndpoint {
+
+    private final QueryMonitor queryMonitor;
+
+    public SlowQueriesEndpoint(QueryMonitor queryMonitor) {
+        this.queryMonitor = queryMonitor;
+    }
+
+    @ReadOperation
+    public List<JcrSlowQuery> slowQueries() {
+        return queryMonitor.getSlowQueries();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        queryMonitor.clearSlowQueries();
+    }
+}
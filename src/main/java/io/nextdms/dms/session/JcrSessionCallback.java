@@ -0,0 +1,12 @@
+package io.nextdms.dms.session;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+/**
+ * Unit of work executed against a session borrowed from the {@link JcrSessionPool}.
+ */
+@FunctionalInterface
+public interface JcrSessionCallback<T> {
+    T doInSession(Session session) throws RepositoryException;
+}
@@ -0,0 +1,160 @@
+package io.nextdms.dms.session;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.nextdms.dms.SessionUtils;
+import io.nextdms.dms.config.OakProperties;
+import jakarta.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded pool of pre-authenticated admin sessions for the explorer.
+ * <p>
+ * Logging in to Oak with credentials is expensive (password hash check, permission setup), so sessions are kept
+ * open and handed out again. A session is refreshed on checkout to see the latest revision and discard any
+ * transient changes left by the previous borrower; sessions which are no longer live are evicted.
+ */
+@Component
+public class JcrSessionPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JcrSessionPool.class);
+
+    private final Repository repository;
+    private final OakProperties oakProperties;
+    private final LinkedBlockingDeque<Session> idleSessions = new LinkedBlockingDeque<>();
+    private final Set<Session> borrowedSessions = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final Timer waitTimer;
+    private volatile boolean closed;
+
+    public JcrSessionPool(Repository repository, OakProperties oakProperties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.oakProperties = oakProperties;
+        this.permits = new Semaphore(oakProperties.getSessionPool().getMaxSize(), true);
+        Gauge.builder("nextdms.jcr.session.pool.active", activeCount, AtomicInteger::get)
+            .description("Number of explorer sessions currently checked out")
+            .register(meterRegistry);
+        Gauge.builder("nextdms.jcr.session.pool.idle", idleSessions, LinkedBlockingDeque::size)
+            .description("Number of open explorer sessions waiting to be borrowed")
+            .register(meterRegistry);
+        this.waitTimer = Timer.builder("nextdms.jcr.session.pool.wait")
+            .description("Time spent waiting for an explorer session")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Borrow a session, run the callback and return the session to the pool, even when the callback fails.
+     */
+    public <T> T execute(JcrSessionCallback<T> callback) throws RepositoryException {
+        Session session = borrow();
+        try {
+            return callback.doInSession(session);
+        } finally {
+            release(session);
+        }
+    }
+
+    /**
+     * Borrow a session from the pool. Every borrowed session must be handed back with {@link #release(Session)}.
+     */
+    public Session borrow() throws RepositoryException {
+        if (closed) {
+            throw new RepositoryException("Session pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(oakProperties.getSessionPool().getMaxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                throw new RepositoryException("Timed out waiting for an explorer session");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while waiting for an explorer session", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        try {
+            Session session = pollValidSession();
+            if (session == null) {
+                session = SessionUtils.getSessionForExplorer(repository, oakProperties);
+            }
+            activeCount.incrementAndGet();
+            borrowedSessions.add(session);
+            return session;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw new RepositoryException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Return a borrowed session to the pool. Sessions which are no longer usable are logged out instead.
+     */
+    public void release(Session session) {
+        if (session == null || !borrowedSessions.remove(session)) {
+            return;
+        }
+        activeCount.decrementAndGet();
+        try {
+            if (!closed && session.isLive()) {
+                idleSessions.offerFirst(session);
+            } else {
+                SessionUtils.ungetSession(session);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Whether the session is currently borrowed from this pool.
+     */
+    public boolean owns(Session session) {
+        return borrowedSessions.contains(session);
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleSessions.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        closed = true;
+        Session session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            SessionUtils.ungetSession(session);
+        }
+    }
+
+    private Session pollValidSession() {
+        Session session;
+        while ((session = idleSessions.pollFirst()) != null) {
+            try {
+                if (session.isLive()) {
+                    session.refresh(false);
+                    return session;
+                }
+            } catch (RepositoryException e) {
+                LOG.warn("Evicting broken explorer session: {}", e.getMessage());
+            }
+            SessionUtils.ungetSession(session);
+        }
+        return null;
+    }
+}
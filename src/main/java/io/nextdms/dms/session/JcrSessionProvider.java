@@ -0,0 +1,61 @@
+package io.nextdms.dms.session;
+
+import io.nextdms.dms.SessionUtils;
+import io.nextdms.dms.config.OakProperties;
+import javax.jcr.AccessDeniedException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides the session serving a request : a session of the authenticated user when per-user sessions are enabled,
+ * a pooled admin session otherwise. When per-user sessions are enabled, a request without login is refused rather than
+ * served by an admin session, which would bypass the access control of the repository.
+ */
+@Component
+public class JcrSessionProvider {
+
+    private final JcrSessionPool sessionPool;
+    private final UserSessionFactory userSessionFactory;
+    private final OakProperties oakProperties;
+
+    public JcrSessionProvider(JcrSessionPool sessionPool, UserSessionFactory userSessionFactory, OakProperties oakProperties) {
+        this.sessionPool = sessionPool;
+        this.userSessionFactory = userSessionFactory;
+        this.oakProperties = oakProperties;
+    }
+
+    /**
+     * Run the callback in a session acquired for the given login, which may be null, and release the session afterwards.
+     */
+    public <T> T execute(String login, JcrSessionCallback<T> callback) throws RepositoryException {
+        Session session = acquire(login);
+        try {
+            return callback.doInSession(session);
+        } finally {
+            release(session);
+        }
+    }
+
+    /**
+     * Acquire a session for the given login, which may be null. It must be handed back to {@link #release(Session)}.
+     * @throws AccessDeniedException if per-user sessions are enabled and the login is null
+     */
+    public Session acquire(String login) throws RepositoryException {
+        if (oakProperties.getUserSessions().isEnabled()) {
+            if (login == null) {
+                throw new AccessDeniedException("No authenticated user to open a repository session for");
+            }
+            return userSessionFactory.login(login);
+        }
+        return sessionPool.borrow();
+    }
+
+    public void release(Session session) {
+        if (sessionPool.owns(session)) {
+            sessionPool.release(session);
+        } else {
+            SessionUtils.ungetSession(session);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.nextdms.dms.session;
+
+import io.nextdms.dms.SessionUtils;
+import io.nextdms.dms.config.OakProperties;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import org.apache.jackrabbit.api.security.authentication.token.TokenCredentials;
+import org.apache.jackrabbit.oak.spi.security.authentication.token.TokenConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens sessions bound to the identity of an authenticated user.
+ * <p>
+ * The first session of a user is created by impersonation from a pooled admin session, asking Oak to issue a
+ * login token at the same time. The token credentials are cached (LRU, with a TTL) and later sessions of the
+ * same user log in with them, which avoids a credential login on every request.
+ */
+@Component
+public class UserSessionFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserSessionFactory.class);
+
+    private final Repository repository;
+    private final JcrSessionPool sessionPool;
+    private final OakProperties.UserSessions properties;
+    private final Map<String, CachedToken> tokens;
+
+    public UserSessionFactory(Repository repository, JcrSessionPool sessionPool, OakProperties oakProperties) {
+        this.repository = repository;
+        this.sessionPool = sessionPool;
+        this.properties = oakProperties.getUserSessions();
+        this.tokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest) {
+                return size() > properties.getMaxCachedTokens();
+            }
+        };
+    }
+
+    /**
+     * Open a session for the given user, run the callback and log the session out afterwards.
+     */
+    public <T> T execute(String userId, JcrSessionCallback<T> callback) throws RepositoryException {
+        Session session = login(userId);
+        try {
+            return callback.doInSession(session);
+        } finally {
+            SessionUtils.ungetSession(session);
+        }
+    }
+
+    /**
+     * Open a session for the given user. The caller is responsible for logging it out.
+     */
+    public Session login(String userId) throws RepositoryException {
+        CachedToken cachedToken = getCachedToken(userId);
+        if (cachedToken != null) {
+            try {
+                return repository.login(cachedToken.credentials());
+            } catch (RepositoryException e) {
+                LOG.debug("Cached login token of user {} rejected, logging in again: {}", userId, e.getMessage());
+                evict(userId);
+            }
+        }
+        return impersonate(userId);
+    }
+
+    /**
+     * Drop the cached token of a user, e.g. after a logout or a change of its permissions.
+     */
+    public void evict(String userId) {
+        synchronized (tokens) {
+            tokens.remove(userId);
+        }
+    }
+
+    private Session impersonate(String userId) throws RepositoryException {
+        SimpleCredentials credentials = new SimpleCredentials(userId, new char[0]);
+        credentials.setAttribute(TokenConstants.TOKEN_ATTRIBUTE, "");
+        Session session = sessionPool.execute(serviceSession -> serviceSession.impersonate(credentials));
+        Object token = session.getAttribute(TokenConstants.TOKEN_ATTRIBUTE);
+        if (token instanceof String tokenValue && !tokenValue.isEmpty()) {
+            CachedToken cachedToken = new CachedToken(
+                new TokenCredentials(tokenValue),
+                System.currentTimeMillis() + properties.getTokenTtlMillis()
+            );
+            synchronized (tokens) {
+                tokens.put(userId, cachedToken);
+            }
+        } else {
+            LOG.debug("No login token issued for user {}, it will be impersonated again on the next request", userId);
+        }
+        return session;
+    }
+
+    private CachedToken getCachedToken(String userId) {
+        synchronized (tokens) {
+            CachedToken cachedToken = tokens.get(userId);
+            if (cachedToken != null && cachedToken.expiresAt() < System.currentTimeMillis()) {
+                tokens.remove(userId);
+                return null;
+            }
+            return cachedToken;
+        }
+    }
+
+    private record CachedToken(TokenCredentials credentials, long expiresAt) {}
+}
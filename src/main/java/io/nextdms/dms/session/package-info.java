@@ -0,0 +1,4 @@
+/**
+ * Pooling and lifecycle of the JCR sessions used by the explorer.
+ */
+package io.nextdms.dms.session;
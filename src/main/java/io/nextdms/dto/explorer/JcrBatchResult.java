@@ -0,0 +1,23 @@
+package io.nextdms.dto.explorer;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Outcome of a batch of write operations : either every operation was applied and saved at once, or nothing was saved.
+ * @param committed whether the batch was saved
+ * @param error reason why the save itself failed, when every operation was applied but the save was refused
+ * @param operations outcome of each operation, in the order of the batch
+ */
+public record JcrBatchResult(boolean committed, String error, List<OperationResult> operations) implements Serializable {
+    /**
+     * @param index position of the operation in the batch
+     * @param path path of the item after the operation, when it was applied
+     * @param error reason why the operation failed
+     */
+    public record OperationResult(int index, String path, String error) implements Serializable {
+        public boolean applied() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package io.nextdms.dto.explorer;
+
+import java.util.List;
+
+/**
+ * Path from the root to a node, as needed by the explorer tree.
+ *
+ * @param ancestors summaries from the root down to the node itself
+ * @param siblings summaries of the node's siblings (including the node), empty unless requested
+ */
+public record JcrBreadcrumb(List<JcrNodeSummary> ancestors, List<JcrNodeSummary> siblings) {}
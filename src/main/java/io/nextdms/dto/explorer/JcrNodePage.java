@@ -0,0 +1,15 @@
+package io.nextdms.dto.explorer;
+
+import java.util.List;
+
+/**
+ * One page of a child listing.
+ *
+ * @param content the children of this page
+ * @param nextCursor opaque cursor to fetch the following page, {@code null} on the last page
+ */
+public record JcrNodePage(List<JcrNode> content, String nextCursor) {
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
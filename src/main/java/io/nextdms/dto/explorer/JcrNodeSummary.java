@@ -0,0 +1,6 @@
+package io.nextdms.dto.explorer;
+
+/**
+ * Lightweight view of a node for tree widgets: no properties and no children, only whether children exist.
+ */
+public record JcrNodeSummary(String uuid, String name, String path, String primaryNodeType, boolean hasChildren) {}
@@ -0,0 +1,12 @@
+package io.nextdms.dto.explorer;
+
+import java.util.List;
+
+public record JcrNodeType(
+    String name,
+    boolean mixin,
+    boolean abstractType,
+    List<String> supertypes,
+    List<JcrPropertyDefinition> propertyDefinitions,
+    String icon
+) {}
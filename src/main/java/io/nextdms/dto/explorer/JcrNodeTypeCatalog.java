@@ -0,0 +1,9 @@
+package io.nextdms.dto.explorer;
+
+import java.util.List;
+
+/**
+ * Snapshot of the node types registered in the repository, with the icon associated to each of them.
+ * The version changes whenever the snapshot content changes and is used as the HTTP entity tag.
+ */
+public record JcrNodeTypeCatalog(String version, List<JcrNodeType> nodeTypes) {}
@@ -0,0 +1,12 @@
+package io.nextdms.dto.explorer;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Outcome of saving the properties of a node, only the properties whose value differed were written.
+ * @param path path of the node
+ * @param changed names of the properties written
+ * @param skipped names of the properties left untouched, unchanged or protected
+ */
+public record JcrPropertyChanges(String path, List<String> changed, List<String> skipped) implements Serializable {}
@@ -0,0 +1,10 @@
+package io.nextdms.dto.explorer;
+
+public record JcrPropertyDefinition(
+    String name,
+    String requiredType,
+    boolean multiple,
+    boolean mandatory,
+    boolean autoCreated,
+    boolean readOnly
+) {}
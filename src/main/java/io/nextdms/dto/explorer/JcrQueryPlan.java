@@ -0,0 +1,17 @@
+package io.nextdms.dto.explorer;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Plan chosen by the repository for a query, as returned by its {@code EXPLAIN MEASURE}.
+ *
+ * @param statement the query explained
+ * @param language language of the statement
+ * @param plan plan of each selector, with the index answering it
+ * @param indexes the index of each selector, {@code traverse} when none can answer it
+ * @param cost estimated cost of the query, summed over its selectors, {@code null} when not reported
+ * @param traversing whether a selector is read by traversing the repository
+ */
+public record JcrQueryPlan(String statement, String language, String plan, List<String> indexes, Double cost, boolean traversing)
+    implements Serializable {}
@@ -0,0 +1,66 @@
+package io.nextdms.dto.explorer;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Structured search, compiled on the server to a JCR-SQL2 query that the repository indexes can answer. Every criterion
+ * is optional; the criteria given must all match.
+ * @param path only nodes below this path, the whole workspace when missing
+ * @param nodeType primary or mixin type of the nodes, nt:base when missing
+ * @param predicates conditions on property values
+ * @param dateRanges conditions on date properties
+ * @param text full-text term, in the syntax of JCR-SQL2 CONTAINS
+ * @param sort orderings, applied in turn
+ * @param indexTag restricts the query to the indexes carrying this tag
+ */
+public record JcrSearchRequest(
+    String path,
+    String nodeType,
+    List<Predicate> predicates,
+    List<DateRange> dateRanges,
+    String text,
+    List<Sort> sort,
+    String indexTag
+) implements Serializable {
+    public enum Operator {
+        EQUALS,
+        NOT_EQUALS,
+        GREATER_THAN,
+        GREATER_OR_EQUAL,
+        LESS_THAN,
+        LESS_OR_EQUAL,
+        /**
+         * The value is a prefix of the property value.
+         */
+        STARTS_WITH,
+        /**
+         * The property is equal to one of the values.
+         */
+        IN,
+        EXISTS,
+        NOT_EXISTS,
+    }
+
+    /**
+     * @param property name of the property
+     * @param operator comparison applied to the property
+     * @param values operands of the comparison : none for EXISTS and NOT_EXISTS, any number for IN, one otherwise
+     * @param type property type of the values (LONG, DATE, BOOLEAN, ...), STRING when missing
+     */
+    public record Predicate(String property, Operator operator, List<String> values, String type) implements Serializable {}
+
+    /**
+     * @param property name of a date property
+     * @param from lower bound, inclusive
+     * @param to upper bound, exclusive
+     */
+    public record DateRange(String property, OffsetDateTime from, OffsetDateTime to) implements Serializable {}
+
+    /**
+     * @param property name of the property, or jcr:path and jcr:score
+     * @param descending whether the greatest values come first
+     */
+    public record Sort(String property, boolean descending) implements Serializable {}
+}
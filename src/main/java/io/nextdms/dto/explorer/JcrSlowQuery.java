@@ -0,0 +1,17 @@
+package io.nextdms.dto.explorer;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A query that took longer than the slow-query threshold.
+ *
+ * @param time when the query ended
+ * @param statement the query, bind variables unresolved
+ * @param language language of the statement
+ * @param rowsRead number of result rows read, including the rows skipped and counted
+ * @param durationMillis wall time of the execution and the reading of its rows
+ * @param plan plan of the query, {@code null} when it could not be explained
+ */
+public record JcrSlowQuery(Instant time, String statement, String language, long rowsRead, long durationMillis, JcrQueryPlan plan)
+    implements Serializable {}
@@ -1,139 +1,57 @@
 package io.nextdms.dto.explorer;
 
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.Date;
+import java.time.OffsetDateTime;
 
-public class JcrValue implements Serializable {
-
-    private Boolean booleanValue;
-    private Date dateValue;
-    private LocalDate localDateValue;
-    private LocalDateTime localDateTimeValue;
-    private LocalTime localTimeValue;
-    private BigDecimal decimalValue;
-    private Double doubleValue;
-    private Long longValue;
-    private String stringValue;
-    private Boolean readOnly;
-    private String propertyType;
-
-    public JcrValue() {}
-
-    public JcrValue(
-        Boolean booleanValue,
-        Date dateValue,
-        LocalDate localDateValue,
-        LocalDateTime localDateTimeValue,
-        LocalTime localTimeValue,
-        BigDecimal decimalValue,
-        Double doubleValue,
-        Long longValue,
-        String stringValue,
-        Boolean readOnly,
-        String propertyType
-    ) {
-        this.booleanValue = booleanValue;
-        this.dateValue = dateValue;
-        this.localDateValue = localDateValue;
-        this.localDateTimeValue = localDateTimeValue;
-        this.localTimeValue = localTimeValue;
-        this.decimalValue = decimalValue;
-        this.doubleValue = doubleValue;
-        this.longValue = longValue;
-        this.stringValue = stringValue;
-        this.readOnly = readOnly;
-        this.propertyType = propertyType;
-    }
-
-    public Boolean getBooleanValue() {
-        return booleanValue;
-    }
-
-    public void setBooleanValue(Boolean booleanValue) {
-        this.booleanValue = booleanValue;
-    }
-
-    public Boolean getReadOnly() {
-        return readOnly;
-    }
-
-    public void setReadOnly(Boolean readOnly) {
-        this.readOnly = readOnly;
-    }
-
-    public LocalDateTime getLocalDateTimeValue() {
-        return localDateTimeValue;
-    }
-
-    public void setLocalDateTimeValue(LocalDateTime localDateTimeValue) {
-        this.localDateTimeValue = localDateTimeValue;
-    }
-
-    public LocalDate getLocalDateValue() {
-        return localDateValue;
-    }
-
-    public void setLocalDateValue(LocalDate localDateValue) {
-        this.localDateValue = localDateValue;
+/**
+ * Value of a JCR property, one record per property type. The type is written in the {@code propertyType} field using
+ * the JCR type names ({@code String}, {@code Long}, {@code Date} ...).
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "propertyType")
+@JsonSubTypes(
+    {
+        @JsonSubTypes.Type(value = JcrValue.StringValue.class, name = "String"),
+        @JsonSubTypes.Type(value = JcrValue.BinaryValue.class, name = "Binary"),
+        @JsonSubTypes.Type(value = JcrValue.LongValue.class, name = "Long"),
+        @JsonSubTypes.Type(value = JcrValue.DoubleValue.class, name = "Double"),
+        @JsonSubTypes.Type(value = JcrValue.DateValue.class, name = "Date"),
+        @JsonSubTypes.Type(value = JcrValue.BooleanValue.class, name = "Boolean"),
+        @JsonSubTypes.Type(value = JcrValue.NameValue.class, name = "Name"),
+        @JsonSubTypes.Type(value = JcrValue.PathValue.class, name = "Path"),
+        @JsonSubTypes.Type(value = JcrValue.ReferenceValue.class, name = "Reference"),
+        @JsonSubTypes.Type(value = JcrValue.WeakReferenceValue.class, name = "WeakReference"),
+        @JsonSubTypes.Type(value = JcrValue.UriValue.class, name = "URI"),
+        @JsonSubTypes.Type(value = JcrValue.DecimalValue.class, name = "Decimal"),
     }
+)
+public sealed interface JcrValue extends Serializable {
+    record StringValue(String value) implements JcrValue {}
 
-    public Date getDateValue() {
-        return dateValue;
-    }
+    /**
+     * Descriptor of a binary value, its content is only read from the download URL.
+     */
+    record BinaryValue(long size, String contentIdentity, String mimeType, String downloadUrl) implements JcrValue {}
 
-    public void setDateValue(Date dateValue) {
-        this.dateValue = dateValue;
-    }
-
-    public LocalTime getLocalTimeValue() {
-        return localTimeValue;
-    }
-
-    public void setLocalTimeValue(LocalTime localTimeValue) {
-        this.localTimeValue = localTimeValue;
-    }
-
-    public BigDecimal getDecimalValue() {
-        return decimalValue;
-    }
+    record LongValue(long value) implements JcrValue {}
 
-    public void setDecimalValue(BigDecimal decimalValue) {
-        this.decimalValue = decimalValue;
-    }
+    record DoubleValue(double value) implements JcrValue {}
 
-    public Double getDoubleValue() {
-        return doubleValue;
-    }
+    record DateValue(OffsetDateTime value) implements JcrValue {}
 
-    public void setDoubleValue(Double doubleValue) {
-        this.doubleValue = doubleValue;
-    }
+    record BooleanValue(boolean value) implements JcrValue {}
 
-    public String getStringValue() {
-        return stringValue;
-    }
+    record NameValue(String value) implements JcrValue {}
 
-    public void setStringValue(String stringValue) {
-        this.stringValue = stringValue;
-    }
+    record PathValue(String value) implements JcrValue {}
 
-    public Long getLongValue() {
-        return longValue;
-    }
+    record ReferenceValue(String value) implements JcrValue {}
 
-    public void setLongValue(Long longValue) {
-        this.longValue = longValue;
-    }
+    record WeakReferenceValue(String value) implements JcrValue {}
 
-    public String getPropertyType() {
-        return propertyType;
-    }
+    record UriValue(String value) implements JcrValue {}
 
-    public void setPropertyType(String propertyType) {
-        this.propertyType = propertyType;
-    }
+    record DecimalValue(BigDecimal value) implements JcrValue {}
 }
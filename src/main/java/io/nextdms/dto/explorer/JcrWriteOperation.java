@@ -0,0 +1,47 @@
+package io.nextdms.dto.explorer;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One change of a batch applied in a single session save. The kind of change is written in the {@code op} field.
+ * Only transient operations are offered : a workspace copy is persisted at once and cannot be part of a batch.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "op")
+@JsonSubTypes(
+    {
+        @JsonSubTypes.Type(value = JcrWriteOperation.AddNode.class, name = "addNode"),
+        @JsonSubTypes.Type(value = JcrWriteOperation.AddMixin.class, name = "addMixin"),
+        @JsonSubTypes.Type(value = JcrWriteOperation.RemoveMixin.class, name = "removeMixin"),
+        @JsonSubTypes.Type(value = JcrWriteOperation.Move.class, name = "move"),
+        @JsonSubTypes.Type(value = JcrWriteOperation.Rename.class, name = "rename"),
+        @JsonSubTypes.Type(value = JcrWriteOperation.Delete.class, name = "delete"),
+        @JsonSubTypes.Type(value = JcrWriteOperation.SetProperty.class, name = "setProperty"),
+        @JsonSubTypes.Type(value = JcrWriteOperation.DeleteProperty.class, name = "deleteProperty"),
+    }
+)
+public sealed interface JcrWriteOperation extends Serializable {
+    /**
+     * Add the node {@code name} under {@code path}, the primary type is inferred from the parent when missing.
+     */
+    record AddNode(String path, String name, String primaryType, List<String> mixinTypes) implements JcrWriteOperation {}
+
+    record AddMixin(String path, String mixinType) implements JcrWriteOperation {}
+
+    record RemoveMixin(String path, String mixinType) implements JcrWriteOperation {}
+
+    /**
+     * Move the node at {@code sourcePath} under the node at {@code destinationPath}, keeping its name.
+     */
+    record Move(String sourcePath, String destinationPath) implements JcrWriteOperation {}
+
+    record Rename(String path, String newName) implements JcrWriteOperation {}
+
+    record Delete(String path) implements JcrWriteOperation {}
+
+    record SetProperty(String path, JcrProperty property) implements JcrWriteOperation {}
+
+    record DeleteProperty(String path, String name) implements JcrWriteOperation {}
+}
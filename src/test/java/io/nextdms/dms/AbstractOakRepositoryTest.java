@@ -0,0 +1,52 @@
+package io.nextdms.dms;
+
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import org.apache.jackrabbit.api.JackrabbitRepository;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+
+/**
+ * Base class for the tests run against an in-memory Oak repository.
+ * <p>
+ * A fresh repository and an admin session are created before each test, and the repository is shut down after it so
+ * that the in-memory instances and their threads do not pile up across the suite.
+ */
+public abstract class AbstractOakRepositoryTest {
+
+    protected JackrabbitRepository repository;
+    protected Session session;
+
+    @BeforeEach
+    void startRepository() throws RepositoryException {
+        repository = createRepository(configure(new Jcr(new Oak())));
+        session = login(repository);
+    }
+
+    @AfterEach
+    void shutdownRepository() {
+        if (session != null && session.isLive()) {
+            session.logout();
+        }
+        repository.shutdown();
+    }
+
+    /**
+     * Hook to add initializers to the repository, e.g. the {@link DmsRepositoryInitializer}.
+     */
+    protected Jcr configure(Jcr jcr) {
+        return jcr;
+    }
+
+    public static JackrabbitRepository createRepository(Jcr jcr) {
+        return (JackrabbitRepository) jcr.createRepository();
+    }
+
+    public static Session login(Repository repository) throws RepositoryException {
+        return repository.login(new SimpleCredentials("admin", "admin".toCharArray()));
+    }
+}
@@ -0,0 +1,224 @@
+package io.nextdms.dms.bulk.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.bulk.BulkItem;
+import io.nextdms.dms.bulk.BulkJob;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import io.nextdms.dms.explorer.cache.NodeReadCache;
+import io.nextdms.dms.explorer.cache.NodeSummaryCache;
+import io.nextdms.dms.explorer.cache.NodeTypeCatalogCache;
+import io.nextdms.dms.session.JcrSessionPool;
+import io.nextdms.dms.session.JcrSessionProvider;
+import io.nextdms.dms.session.UserSessionFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.ReferentialIntegrityException;
+import javax.jcr.RepositoryException;
+import org.apache.jackrabbit.api.JackrabbitValue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the {@link BulkJobService} against an in-memory Oak repository.
+ */
+class BulkJobServiceTest extends AbstractOakRepositoryTest {
+
+    private static final int NODES = 10;
+
+    @TempDir
+    Path directory;
+
+    private OakProperties oakProperties;
+    private JcrSessionProvider sessionProvider;
+    private NodeCacheInvalidator nodeCacheInvalidator;
+    private ObjectMapper objectMapper;
+    private final List<BulkJobService> services = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        oakProperties = new OakProperties();
+        oakProperties.getBulkJobs().setDirectory(directory.toString());
+        oakProperties.getBulkJobs().setChunkSize(3);
+        oakProperties.getBulkJobs().setThrottleMillis(0);
+        JcrSessionPool sessionPool = new JcrSessionPool(repository, oakProperties, new SimpleMeterRegistry());
+        UserSessionFactory userSessionFactory = new UserSessionFactory(repository, sessionPool, oakProperties);
+        sessionProvider = new JcrSessionProvider(sessionPool, userSessionFactory, oakProperties);
+        nodeCacheInvalidator = new NodeCacheInvalidator(
+            repository,
+            oakProperties,
+            new NodeReadCache(oakProperties, new SimpleMeterRegistry()),
+            new NodeSummaryCache(oakProperties),
+            new NodeTypeCatalogCache(sessionPool)
+        );
+        objectMapper = new ObjectMapper();
+        Node source = session.getRootNode().addNode("source", "nt:unstructured");
+        for (int i = 0; i < NODES; i++) {
+            source.addNode("folder" + i, "nt:unstructured");
+        }
+        session.getRootNode().addNode("target", "nt:unstructured");
+        session.save();
+    }
+
+    @AfterEach
+    void teardown() throws InterruptedException {
+        for (BulkJobService service : services) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testMovesInChunks() throws Exception {
+        BulkJobService bulkJobService = newBulkJobService();
+        List<BulkItem> items = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            items.add(new BulkItem("/source/folder" + i, "/target"));
+        }
+        items.add(new BulkItem("/source/missing", "/target"));
+
+        BulkJob job = awaitFinished(bulkJobService, bulkJobService.submit("user", BulkJob.Operation.MOVE, items).id());
+
+        assertThat(job.status()).isEqualTo(BulkJob.Status.COMPLETED);
+        assertThat(job.processed()).isEqualTo(NODES + 1);
+        assertThat(job.failed()).isEqualTo(1);
+        assertThat(job.errors()).singleElement().asString().startsWith("/source/missing");
+        session.refresh(false);
+        assertThat(session.getNode("/source").getNodes().getSize()).isZero();
+        assertThat(session.getNode("/target").getNodes().getSize()).isEqualTo(NODES);
+    }
+
+    @Test
+    void testResumesUnfinishedJobAfterRestart() throws Exception {
+        List<BulkItem> items = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            items.add(new BulkItem("/source/folder" + i, "/target"));
+        }
+        // the previous run saved the first chunk and moved part of the second one before stopping
+        for (int i = 0; i < 5; i++) {
+            session.move("/source/folder" + i, "/target/folder" + i);
+        }
+        session.save();
+        long now = System.currentTimeMillis();
+        BulkJob job = new BulkJob("job", "user", BulkJob.Operation.MOVE, BulkJob.Status.RUNNING, NODES, 3, 0, 0, List.of(), now, now);
+        objectMapper.writeValue(directory.resolve("job.items.json").toFile(), items);
+        objectMapper.writeValue(directory.resolve("job.json").toFile(), job);
+
+        BulkJob resumed = awaitFinished(newBulkJobService(), "job");
+
+        assertThat(resumed.status()).isEqualTo(BulkJob.Status.COMPLETED);
+        assertThat(resumed.failed()).isZero();
+        session.refresh(false);
+        assertThat(session.getNode("/target").getNodes().getSize()).isEqualTo(NODES);
+    }
+
+    @Test
+    void testCopiesSubtreeInChunksReusingBinaries() throws Exception {
+        Node template = session.getRootNode().addNode("template", "nt:folder");
+        for (int i = 0; i < 4; i++) {
+            Node folder = template.addNode("folder" + i, "nt:folder");
+            for (int j = 0; j < 5; j++) {
+                Node content = folder.addNode("file" + j + ".txt", "nt:file").addNode("jcr:content", "nt:resource");
+                content.setProperty("jcr:data", session.getValueFactory().createBinary(new ByteArrayInputStream(new byte[] { (byte) j })));
+            }
+        }
+        session.save();
+        BulkJobService bulkJobService = newBulkJobService();
+
+        String id = bulkJobService.submit("user", BulkJob.Operation.COPY, List.of(new BulkItem("/template", "/target"))).id();
+        BulkJob job = awaitFinished(bulkJobService, id);
+
+        assertThat(job.status()).isEqualTo(BulkJob.Status.COMPLETED);
+        assertThat(job.failed()).isZero();
+        assertThat(job.nodes()).isEqualTo(1 + 4 + 4 * 5 * 2);
+        session.refresh(false);
+        List<String> names = new ArrayList<>();
+        for (NodeIterator nodes = session.getNode("/target/template").getNodes(); nodes.hasNext();) {
+            names.add(nodes.nextNode().getName());
+        }
+        assertThat(names).containsExactlyInAnyOrder("folder0", "folder1", "folder2", "folder3");
+        Property source = session.getProperty("/template/folder3/file4.txt/jcr:content/jcr:data");
+        Property copy = session.getProperty("/target/template/folder3/file4.txt/jcr:content/jcr:data");
+        assertThat(((JackrabbitValue) copy.getValue()).getContentIdentity()).isEqualTo(
+            ((JackrabbitValue) source.getValue()).getContentIdentity()
+        );
+    }
+
+    @Test
+    void testDetachesThenDeletesSubtreeInBatches() throws Exception {
+        Node deep = session.getNode("/source/folder0");
+        for (int i = 0; i < 3; i++) {
+            deep = deep.addNode("level" + i, "nt:unstructured");
+            for (int j = 0; j < 4; j++) {
+                deep.addNode("leaf" + j, "nt:unstructured");
+            }
+        }
+        session.save();
+        oakProperties.getBulkJobs().setThrottleMillis(20);
+        BulkJobService bulkJobService = newBulkJobService();
+
+        BulkJob job = bulkJobService.submitDelete("user", List.of("/source/folder0", "/source/folder1"));
+        session.refresh(false);
+        assertThat(session.nodeExists("/source/folder0")).isFalse();
+        assertThatThrownBy(() -> bulkJobService.cancel("user", job.id())).isInstanceOf(RepositoryException.class);
+
+        BulkJob finished = awaitFinished(bulkJobService, job.id());
+        assertThat(finished.status()).isEqualTo(BulkJob.Status.COMPLETED);
+        assertThat(finished.processed()).isEqualTo(2);
+        session.refresh(false);
+        assertThat(session.getNode(BulkJobService.TRASH_PATH).hasNodes()).isFalse();
+        assertThat(session.getNode("/source").getNodes().getSize()).isEqualTo(NODES - 2);
+    }
+
+    @Test
+    void testRefusesToDeleteNodesReferencedFromOutside() throws Exception {
+        Node referenced = session.getNode("/source/folder0").addNode("referenced", "nt:unstructured");
+        referenced.addMixin("mix:referenceable");
+        session.save();
+        session.getNode("/target").setProperty("link", referenced);
+        session.getNode("/source/folder1").setProperty("link", referenced);
+        session.save();
+        BulkJobService bulkJobService = newBulkJobService();
+
+        assertThatThrownBy(() -> bulkJobService.submitDelete("user", List.of("/source/folder0")))
+            .isInstanceOf(ReferentialIntegrityException.class);
+        session.refresh(false);
+        assertThat(session.nodeExists("/source/folder0/referenced")).isTrue();
+        assertThat(bulkJobService.list("user")).isEmpty();
+
+        session.getProperty("/target/link").remove();
+        session.save();
+        BulkJob job = bulkJobService.submitDelete("user", List.of("/source/folder0", "/source/folder1"));
+        assertThat(awaitFinished(bulkJobService, job.id()).failed()).isZero();
+        session.refresh(false);
+        assertThat(session.nodeExists("/source/folder0")).isFalse();
+    }
+
+    private BulkJobService newBulkJobService() throws Exception {
+        BulkJobService bulkJobService = new BulkJobService(oakProperties, objectMapper, sessionProvider, nodeCacheInvalidator);
+        bulkJobService.recover();
+        services.add(bulkJobService);
+        return bulkJobService;
+    }
+
+    private static BulkJob awaitFinished(BulkJobService bulkJobService, String id) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        BulkJob job = bulkJobService.get("user", id);
+        while (!job.hasFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            job = bulkJobService.get("user", id);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,56 @@
+package io.nextdms.dms.content.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.content.BinaryContent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link ContentService} against an in-memory Oak repository.
+ */
+class ContentServiceTest extends AbstractOakRepositoryTest {
+
+    private final ContentService contentService = new ContentService();
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        Node file = session.getRootNode().addNode("report.txt", "nt:file");
+        Node resource = file.addNode("jcr:content", "nt:resource");
+        resource.setProperty("jcr:mimeType", "text/plain");
+        resource.setProperty("jcr:lastModified", Calendar.getInstance());
+        resource.setProperty(
+            "jcr:data",
+            session.getValueFactory().createBinary(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8)))
+        );
+        session.save();
+    }
+
+    @Test
+    void testResolvesFileContent() throws Exception {
+        BinaryContent content = contentService.getBinary(session, "/report.txt", null, -1);
+
+        assertThat(content.size()).isEqualTo(10);
+        assertThat(content.mimeType()).isEqualTo("text/plain");
+        assertThat(content.fileName()).isEqualTo("report.txt");
+        assertThat(content.eTag()).isNotBlank();
+        assertThat(contentService.getBinary(session, "/report.txt/jcr:content", "jcr:data", -1).eTag()).isEqualTo(content.eTag());
+    }
+
+    @Test
+    void testWritesRange() throws Exception {
+        BinaryContent content = contentService.getBinary(session, "/report.txt", null, -1);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        contentService.write(content, 3, 4, outputStream);
+
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo("3456");
+    }
+}
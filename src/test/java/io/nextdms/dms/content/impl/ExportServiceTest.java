@@ -0,0 +1,73 @@
+package io.nextdms.dms.content.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link ExportService} against an in-memory Oak repository.
+ */
+class ExportServiceTest extends AbstractOakRepositoryTest {
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        Node docs = session.getRootNode().addNode("docs", "nt:folder");
+        addFile(docs, "readme.txt", "read me");
+        addFile(docs.addNode("reports", "nt:folder"), "q1.txt", "first quarter");
+        session.save();
+        exportService = new ExportService(new ObjectMapper().findAndRegisterModules());
+    }
+
+    @Test
+    void testExportsFolderWithManifest() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.exportZip(session, "/docs", true, outputStream);
+
+        List<String> names = new ArrayList<>();
+        String manifest = null;
+        String report = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                if (entry.getName().equals(ExportService.MANIFEST)) {
+                    manifest = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                } else if (entry.getName().equals("docs/reports/q1.txt")) {
+                    report = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        assertThat(names).containsExactlyInAnyOrder(
+            ExportService.MANIFEST,
+            "docs/",
+            "docs/readme.txt",
+            "docs/reports/",
+            "docs/reports/q1.txt"
+        );
+        assertThat(names.get(0)).isEqualTo(ExportService.MANIFEST);
+        assertThat(names.indexOf("docs/reports/")).isLessThan(names.indexOf("docs/reports/q1.txt"));
+        assertThat(report).isEqualTo("first quarter");
+        assertThat(manifest.lines()).hasSize(6).anyMatch(line -> line.contains("\"path\":\"/docs/reports/q1.txt/jcr:content\""));
+    }
+
+    private void addFile(Node folder, String name, String text) throws RepositoryException {
+        Node content = folder.addNode(name, "nt:file").addNode("jcr:content", "nt:resource");
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        content.setProperty("jcr:data", session.getValueFactory().createBinary(new ByteArrayInputStream(bytes)));
+        content.setProperty("jcr:mimeType", "text/plain");
+    }
+}
@@ -0,0 +1,163 @@
+package io.nextdms.dms.content.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.config.DmsRepositoryInitializer;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.content.ImportReport;
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import io.nextdms.dms.explorer.cache.NodeReadCache;
+import io.nextdms.dms.explorer.cache.NodeSummaryCache;
+import io.nextdms.dms.explorer.cache.NodeTypeCatalogCache;
+import io.nextdms.dms.session.JcrSessionPool;
+import io.nextdms.dms.session.JcrSessionProvider;
+import io.nextdms.dms.session.UserSessionFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the {@link ImportService} against an in-memory Oak repository.
+ */
+class ImportServiceTest extends AbstractOakRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private OakProperties oakProperties;
+    private ImportService importService;
+
+    @Override
+    protected Jcr configure(Jcr jcr) {
+        return jcr.with(new DmsRepositoryInitializer());
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        oakProperties = new OakProperties();
+        oakProperties.getImports().setBaseDirectory(directory.toString());
+        oakProperties.getImports().setBatchCount(2);
+        JcrSessionPool sessionPool = new JcrSessionPool(repository, oakProperties, new SimpleMeterRegistry());
+        UserSessionFactory userSessionFactory = new UserSessionFactory(repository, sessionPool, oakProperties);
+        JcrSessionProvider sessionProvider = new JcrSessionProvider(sessionPool, userSessionFactory, oakProperties);
+        NodeCacheInvalidator nodeCacheInvalidator = new NodeCacheInvalidator(
+            repository,
+            oakProperties,
+            new NodeReadCache(oakProperties, new SimpleMeterRegistry()),
+            new NodeSummaryCache(oakProperties),
+            new NodeTypeCatalogCache(sessionPool)
+        );
+        importService = new ImportService(oakProperties, sessionProvider, nodeCacheInvalidator);
+        session.getRootNode().addNode("target", "nt:folder");
+        session.save();
+    }
+
+    @AfterEach
+    void teardown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void testImportsZipArchive() throws Exception {
+        Path zipFile = directory.resolve("archive.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            zip.putNextEntry(new ZipEntry("docs/"));
+            zip.putNextEntry(new ZipEntry("docs/a.txt"));
+            zip.write("alpha".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("docs/b.txt"));
+            zip.write("beta".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("docs/nested/c.txt"));
+            zip.write("gamma".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("../escape.txt"));
+            zip.write("delta".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("root.txt"));
+            zip.write("epsilon".getBytes(StandardCharsets.UTF_8));
+        }
+
+        ImportReport report = importService.importZip("user", "/target", zipFile);
+
+        assertThat(report.folders()).isEqualTo(2);
+        assertThat(report.files()).isEqualTo(5);
+        assertThat(report.failed()).isZero();
+        assertThat(report.bytes()).isEqualTo(26);
+        session.refresh(false);
+        assertThat(content("/target/docs/a.txt")).isEqualTo("alpha");
+        assertThat(content("/target/docs/nested/c.txt")).isEqualTo("gamma");
+        assertThat(content("/target/escape.txt")).isEqualTo("delta");
+        assertThat(session.getNode("/target/docs/a.txt/jcr:content").getProperty("jcr:mimeType").getString()).isEqualTo("text/plain");
+        assertThat(session.nodeExists("/escape.txt")).isFalse();
+        assertThat(session.getNode("/target/docs/a.txt/jcr:content").getProperty("dms:sha256").getString())
+            .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("alpha".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void testRejectsArchivesWithTooLargeEntries() throws Exception {
+        Path zipFile = directory.resolve("archive.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+            zip.putNextEntry(new ZipEntry("a.txt"));
+            zip.write("alpha".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.write("beta".getBytes(StandardCharsets.UTF_8));
+        }
+
+        oakProperties.getImports().setMaxEntryLength(4);
+        assertThatThrownBy(() -> importService.importZip("user", "/target", zipFile)).isInstanceOf(RepositoryException.class);
+        oakProperties.getImports().setMaxEntryLength(5);
+        oakProperties.getImports().setMaxArchiveLength(8);
+        assertThatThrownBy(() -> importService.importZip("user", "/target", zipFile)).isInstanceOf(RepositoryException.class);
+        session.refresh(false);
+        assertThat(session.getNode("/target").hasNodes()).isFalse();
+
+        oakProperties.getImports().setMaxArchiveLength(9);
+        assertThat(importService.importZip("user", "/target", zipFile).files()).isEqualTo(2);
+    }
+
+    @Test
+    void testImportsServerDirectoryAndReplacesFiles() throws Exception {
+        Path tree = Files.createDirectories(directory.resolve("tree/sub"));
+        Files.writeString(directory.resolve("tree/one.txt"), "one");
+        Files.writeString(tree.resolve("two.txt"), "two");
+        Files.writeString(tree.resolve("three.txt"), "three");
+
+        ImportReport report = importService.importDirectory("user", "/target", "tree");
+
+        assertThat(report.folders()).isEqualTo(1);
+        assertThat(report.files()).isEqualTo(3);
+        session.refresh(false);
+        assertThat(content("/target/sub/three.txt")).isEqualTo("three");
+
+        Files.writeString(directory.resolve("tree/one.txt"), "uno");
+        report = importService.importDirectory("user", "/target", "tree");
+
+        assertThat(report.folders()).isZero();
+        assertThat(report.files()).isEqualTo(3);
+        session.refresh(false);
+        assertThat(content("/target/one.txt")).isEqualTo("uno");
+    }
+
+    @Test
+    void testRejectsDirectoryOutsideOfBaseDirectory() {
+        assertThatThrownBy(() -> importService.importDirectory("user", "/target", "../")).isInstanceOf(RepositoryException.class);
+    }
+
+    private String content(String path) throws Exception {
+        Node content = session.getNode(path + "/jcr:content");
+        try (var inputStream = content.getProperty("jcr:data").getBinary().getStream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package io.nextdms.dms.content.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.config.DmsRepositoryInitializer;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.content.BinaryDeduplicator;
+import io.nextdms.dms.content.Upload;
+import io.nextdms.dms.content.UploadConflictException;
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import io.nextdms.dms.explorer.cache.NodeReadCache;
+import io.nextdms.dms.explorer.cache.NodeSummaryCache;
+import io.nextdms.dms.explorer.cache.NodeTypeCatalogCache;
+import io.nextdms.dms.session.JcrSessionPool;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test class for the {@link UploadService} against an in-memory Oak repository.
+ */
+class UploadServiceTest extends AbstractOakRepositoryTest {
+
+    private static final byte[] CONTENT = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path stagingDirectory;
+
+    private OakProperties oakProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private NodeCacheInvalidator nodeCacheInvalidator;
+
+    @Override
+    protected Jcr configure(Jcr jcr) {
+        return jcr.with(new DmsRepositoryInitializer());
+    }
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        oakProperties = new OakProperties();
+        oakProperties.getUploads().setStagingDirectory(stagingDirectory.toString());
+        meterRegistry = new SimpleMeterRegistry();
+        JcrSessionPool sessionPool = new JcrSessionPool(repository, oakProperties, meterRegistry);
+        nodeCacheInvalidator = new NodeCacheInvalidator(
+            repository,
+            oakProperties,
+            new NodeReadCache(oakProperties, new SimpleMeterRegistry()),
+            new NodeSummaryCache(oakProperties),
+            new NodeTypeCatalogCache(sessionPool)
+        );
+        session.getRootNode().addNode("docs", "nt:folder");
+        session.save();
+    }
+
+    @Test
+    void testResumesAfterRestart() throws Exception {
+        UploadService uploadService = newUploadService();
+        Upload upload = uploadService.create("user", "/docs", null, "fox.txt", "text/plain", CONTENT.length, null);
+        uploadService.append("user", upload.id(), 0, chunk(0, 10));
+
+        UploadService restarted = newUploadService();
+        assertThat(restarted.get("user", upload.id()).offset()).isEqualTo(10);
+        restarted.append("user", upload.id(), 10, chunk(10, CONTENT.length));
+        Upload finished = restarted.finish(session, "user", upload.id());
+
+        assertThat(finished.sha256()).isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT)));
+        try (InputStream stored = session.getNode("/docs/fox.txt/jcr:content").getProperty("jcr:data").getBinary().getStream()) {
+            assertThat(stored.readAllBytes()).isEqualTo(CONTENT);
+        }
+        assertThat(stagingDirectory).isEmptyDirectory();
+    }
+
+    @Test
+    void testRejectsChunkAtWrongOffset() throws Exception {
+        UploadService uploadService = newUploadService();
+        Upload upload = uploadService.create("user", "/docs", null, "fox.txt", null, CONTENT.length, null);
+        uploadService.append("user", upload.id(), 0, chunk(0, 10));
+
+        assertThatThrownBy(() -> uploadService.append("user", upload.id(), 5, chunk(5, 10)))
+            .isInstanceOfSatisfying(UploadConflictException.class, e -> assertThat(e.getOffset()).isEqualTo(10));
+        assertThatThrownBy(() -> uploadService.finish(session, "user", upload.id())).isInstanceOf(UploadConflictException.class);
+        assertThatThrownBy(() -> uploadService.get("other", upload.id())).isInstanceOf(RepositoryException.class);
+    }
+
+    @Test
+    void testReusesBinaryWithSameSha256() throws Exception {
+        UploadService uploadService = newUploadService();
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+        assertThat(uploadService.reuse(session, "user", "/docs", null, "fox.txt", null, CONTENT.length, sha256)).isNull();
+
+        Upload upload = uploadService.create("user", "/docs", null, "fox.txt", null, CONTENT.length, sha256);
+        uploadService.append("user", upload.id(), 0, chunk(0, CONTENT.length));
+        uploadService.finish(session, "user", upload.id());
+        assertThat(session.getNode("/docs/fox.txt/jcr:content").getProperty("dms:sha256").getString()).isEqualTo(sha256);
+
+        Upload reused = uploadService.reuse(session, "user", "/docs", null, "copy.txt", null, CONTENT.length, sha256);
+        assertThat(reused.hasAllBytes()).isTrue();
+        try (InputStream stored = session.getNode("/docs/copy.txt/jcr:content").getProperty("jcr:data").getBinary().getStream()) {
+            assertThat(stored.readAllBytes()).isEqualTo(CONTENT);
+        }
+        assertThat(meterRegistry.counter("nextdms.uploads.dedup.hits").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("nextdms.uploads.dedup.saved").count()).isEqualTo(CONTENT.length);
+    }
+
+    @Test
+    void testDoesNotReuseBinaryWhoseContentChanged() throws Exception {
+        UploadService uploadService = newUploadService();
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+        Upload upload = uploadService.create("user", "/docs", null, "fox.txt", null, CONTENT.length, sha256);
+        uploadService.append("user", upload.id(), 0, chunk(0, CONTENT.length));
+        uploadService.finish(session, "user", upload.id());
+
+        // the binary no longer has the content identity the hash was recorded for
+        Node content = session.getNode("/docs/fox.txt/jcr:content");
+        content.setProperty("dms:contentIdentity", "replaced");
+        session.save();
+        assertThat(uploadService.reuse(session, "user", "/docs", null, "copy.txt", null, CONTENT.length, sha256)).isNull();
+
+        // rewritten the way every writer of jcr:data does, the hash is gone
+        byte[] changed = CONTENT.clone();
+        changed[0] = 't';
+        content.setProperty("jcr:data", session.getValueFactory().createBinary(new ByteArrayInputStream(changed)));
+        BinaryDeduplicator.clearHash(content, "jcr:data");
+        session.save();
+        assertThat(content.hasProperty("dms:sha256")).isFalse();
+        assertThat(content.hasProperty("dms:contentIdentity")).isFalse();
+        assertThat(content.isNodeType("dms:hashed")).isFalse();
+        assertThat(uploadService.reuse(session, "user", "/docs", null, "copy.txt", null, CONTENT.length, sha256)).isNull();
+    }
+
+    @Test
+    void testRejectsContentNotMatchingAnnouncedSha256() throws Exception {
+        UploadService uploadService = newUploadService();
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(new byte[] { 1 }));
+        Upload upload = uploadService.create("user", "/docs", null, "fox.txt", null, CONTENT.length, sha256);
+        uploadService.append("user", upload.id(), 0, chunk(0, CONTENT.length));
+
+        assertThatThrownBy(() -> uploadService.finish(session, "user", upload.id())).isInstanceOf(RepositoryException.class);
+        assertThat(session.nodeExists("/docs/fox.txt")).isFalse();
+        assertThat(stagingDirectory).isEmptyDirectory();
+    }
+
+    @Test
+    void testRefusesToCancelWhileChunkIsReceived() throws Exception {
+        UploadService uploadService = newUploadService();
+        Upload upload = uploadService.create("user", "/docs", null, "fox.txt", null, CONTENT.length, null);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slowChunk = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return -1;
+            }
+        };
+        CompletableFuture<Upload> append = CompletableFuture.supplyAsync(() -> {
+            try {
+                return uploadService.append("user", upload.id(), 0, slowChunk);
+            } catch (RepositoryException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        reading.await();
+
+        assertThatThrownBy(() -> uploadService.cancel("user", upload.id())).isInstanceOf(UploadConflictException.class);
+        release.countDown();
+        append.get();
+        uploadService.cancel("user", upload.id());
+        assertThat(stagingDirectory).isEmptyDirectory();
+    }
+
+    private UploadService newUploadService() throws IOException {
+        UploadService uploadService = new UploadService(
+            oakProperties,
+            new ObjectMapper(),
+            new BinaryDeduplicator(meterRegistry),
+            nodeCacheInvalidator
+        );
+        uploadService.recover();
+        return uploadService;
+    }
+
+    private static InputStream chunk(int from, int to) {
+        return new ByteArrayInputStream(CONTENT, from, to - from);
+    }
+}
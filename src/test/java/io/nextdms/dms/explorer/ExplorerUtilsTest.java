@@ -0,0 +1,58 @@
+package io.nextdms.dms.explorer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.nodetype.PropertyDefinition;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link ExplorerUtils} utility class.
+ */
+class ExplorerUtilsTest {
+
+    @Test
+    void testProjectionFromRequest() {
+        assertThat(PropertyProjection.of(null).isAll()).isTrue();
+        assertThat(PropertyProjection.of(List.of("*")).isAll()).isTrue();
+        assertThat(PropertyProjection.of(List.of()).isNone()).isTrue();
+        assertThat(PropertyProjection.of(List.of(" ")).isNone()).isTrue();
+        assertThat(PropertyProjection.of(List.of("jcr:title", " jcr:created ")).names()).containsOnly("jcr:title", "jcr:created");
+    }
+
+    @Test
+    void testNoPropertiesRequestedNeverIteratesProperties() throws RepositoryException {
+        Node node = mock(Node.class);
+
+        assertThat(ExplorerUtils.getProperties(node, PropertyProjection.NONE)).isEmpty();
+
+        verify(node, never()).getProperties();
+    }
+
+    @Test
+    void testNamedProjectionReadsOnlyRequestedProperties() throws RepositoryException {
+        Node node = mock(Node.class);
+        Property title = mock(Property.class);
+        PropertyDefinition definition = mock(PropertyDefinition.class);
+        when(title.getName()).thenReturn("jcr:title");
+        when(title.getType()).thenReturn(PropertyType.STRING);
+        when(title.getDefinition()).thenReturn(definition);
+        when(title.getString()).thenReturn("Invoices");
+        when(node.hasProperty("jcr:title")).thenReturn(true);
+        when(node.getProperty("jcr:title")).thenReturn(title);
+
+        final var properties = ExplorerUtils.getProperties(node, PropertyProjection.of(Arrays.asList("jcr:title", "jcr:missing")));
+
+        assertThat(properties).containsOnlyKeys("jcr:title");
+        verify(node, never()).getProperties();
+    }
+}
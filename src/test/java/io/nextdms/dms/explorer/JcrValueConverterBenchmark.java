@@ -0,0 +1,150 @@
+package io.nextdms.dms.explorer;
+
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.config.DmsRepositoryInitializer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.ValueFormatException;
+import org.apache.jackrabbit.api.JackrabbitRepository;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the conversion of the properties of a typical document node by the {@link JcrValueConverter} with the
+ * former conversion, which called every typed getter of each single-valued property.
+ * <p>
+ * Not part of the unit tests, run from the IDE or with
+ * {@code java -cp target/test-classes:<test classpath> io.nextdms.dms.explorer.JcrValueConverterBenchmark}.
+ * The gc profiler reports the allocation rate next to the latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JcrValueConverterBenchmark {
+
+    private JackrabbitRepository repository;
+    private Session session;
+    private List<Property> properties;
+
+    @Setup(Level.Trial)
+    public void setup() throws RepositoryException {
+        repository = AbstractOakRepositoryTest.createRepository(new Jcr(new Oak()));
+        session = AbstractOakRepositoryTest.login(repository);
+        session.getWorkspace().getNamespaceRegistry().registerNamespace("dms", DmsRepositoryInitializer.DMS_NAMESPACE);
+        Node node = session.getRootNode().addNode("document", "nt:unstructured");
+        node.addMixin("mix:title");
+        node.addMixin("mix:lastModified");
+        node.setProperty("jcr:title", "Invoice 2024-0042");
+        node.setProperty("jcr:description", "Quarterly maintenance invoice for the Lyon office");
+        node.setProperty("dms:customer", "ACME Industries");
+        node.setProperty("dms:amount", new BigDecimal("1249.90"));
+        node.setProperty("dms:pages", 4L);
+        node.setProperty("dms:score", 0.87d);
+        node.setProperty("dms:archived", false);
+        node.setProperty("dms:dueDate", Calendar.getInstance());
+        node.setProperty("dms:tags", new String[] { "invoice", "2024", "lyon", "maintenance" });
+        node.setProperty("dms:category", "dms:invoice", PropertyType.NAME);
+        session.save();
+        properties = new ArrayList<>();
+        PropertyIterator iterator = node.getProperties();
+        while (iterator.hasNext()) {
+            properties.add(iterator.nextProperty());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        session.logout();
+        repository.shutdown();
+    }
+
+    @Benchmark
+    public void typeDispatched(Blackhole blackhole) throws RepositoryException {
+        for (Property property : properties) {
+            blackhole.consume(JcrValueConverter.toJcrValues(property));
+        }
+    }
+
+    @Benchmark
+    public void everyGetter(Blackhole blackhole) throws RepositoryException {
+        for (Property property : properties) {
+            if (property.isMultiple()) {
+                for (var value : property.getValues()) {
+                    blackhole.consume(JcrValueConverter.toJcrValue(value, value.getType()));
+                }
+            } else {
+                blackhole.consume(everyGetter(property));
+            }
+        }
+    }
+
+    /**
+     * Former conversion : every getter is tried and the result kept in a wide, mostly empty, value.
+     */
+    private static Object[] everyGetter(Property property) throws RepositoryException {
+        Object[] fields = new Object[11];
+        try {
+            fields[0] = property.getBoolean();
+        } catch (ValueFormatException e) {
+            fields[0] = null;
+        }
+        try {
+            Calendar calendar = property.getDate();
+            fields[1] = calendar.getTime();
+            fields[2] = calendar.toInstant();
+        } catch (ValueFormatException e) {
+            fields[1] = null;
+        }
+        try {
+            fields[5] = property.getDecimal();
+        } catch (ValueFormatException e) {
+            fields[5] = null;
+        }
+        try {
+            fields[6] = property.getDouble();
+        } catch (ValueFormatException e) {
+            fields[6] = null;
+        }
+        try {
+            fields[7] = property.getLong();
+        } catch (ValueFormatException e) {
+            fields[7] = null;
+        }
+        fields[8] = property.getString();
+        fields[9] = Boolean.TRUE;
+        fields[10] = PropertyType.nameFromValue(property.getType());
+        return fields;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JcrValueConverterBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
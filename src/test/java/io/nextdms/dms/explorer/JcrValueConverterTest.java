@@ -0,0 +1,103 @@
+package io.nextdms.dms.explorer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dto.explorer.JcrProperty;
+import io.nextdms.dto.explorer.JcrValue;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import org.apache.jackrabbit.api.JackrabbitRepository;
+import org.apache.jackrabbit.oak.Oak;
+import org.apache.jackrabbit.oak.jcr.Jcr;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link JcrValueConverter}.
+ */
+class JcrValueConverterTest {
+
+    @Test
+    void testReadsOnlyTheGetterOfThePropertyType() throws RepositoryException {
+        Property property = mock(Property.class);
+        when(property.getType()).thenReturn(PropertyType.LONG);
+        when(property.getLong()).thenReturn(42L);
+
+        assertThat(JcrValueConverter.toJcrValues(property)).containsExactly(new JcrValue.LongValue(42L));
+        verify(property, never()).getString();
+        verify(property, never()).getDate();
+        verify(property, never()).getValue();
+    }
+
+    @Test
+    void testDescribesBinaryWithoutReadingIt() throws RepositoryException {
+        Node node = mock(Node.class);
+        Property mimeType = mock(Property.class);
+        Property data = mock(Property.class);
+        when(node.getPath()).thenReturn("/docs/report.pdf/jcr:content");
+        when(node.hasProperty("jcr:mimeType")).thenReturn(true);
+        when(node.getProperty("jcr:mimeType")).thenReturn(mimeType);
+        when(mimeType.getString()).thenReturn("application/pdf");
+        when(data.getType()).thenReturn(PropertyType.BINARY);
+        when(data.getName()).thenReturn("jcr:data");
+        when(data.getParent()).thenReturn(node);
+        when(data.getLength()).thenReturn(1024L);
+        when(data.getValue()).thenReturn(mock(Value.class));
+
+        assertThat(JcrValueConverter.toJcrValues(data)).containsExactly(
+            new JcrValue.BinaryValue(
+                1024L,
+                null,
+                "application/pdf",
+                "/api/content/files/download?path=%2Fdocs%2Freport.pdf%2Fjcr%3Acontent&property=jcr%3Adata"
+            )
+        );
+        verify(data, never()).getString();
+        verify(data, never()).getBinary();
+        verify(data, never()).getStream();
+    }
+
+    @Test
+    void testRoundTripsEveryType() throws RepositoryException {
+        JackrabbitRepository repository = AbstractOakRepositoryTest.createRepository(new Jcr(new Oak()));
+        Session session = AbstractOakRepositoryTest.login(repository);
+        try {
+            Node node = session.getRootNode().addNode("values", "nt:unstructured");
+            JcrValue[] values = {
+                new JcrValue.StringValue("invoice"),
+                new JcrValue.LongValue(7),
+                new JcrValue.DoubleValue(1.5),
+                new JcrValue.BooleanValue(true),
+                new JcrValue.DecimalValue(new BigDecimal("12.50")),
+                new JcrValue.DateValue(OffsetDateTime.of(2024, 3, 1, 10, 30, 0, 0, ZoneOffset.ofHours(2))),
+                new JcrValue.NameValue("nt:file"),
+                new JcrValue.PathValue("/values"),
+                new JcrValue.UriValue("https://nextdms.io"),
+            };
+            for (int i = 0; i < values.length; i++) {
+                ExplorerUtils.setNodeProperty(node, "p" + i, new JcrProperty("p" + i, 0, false, false, new JcrValue[] { values[i] }));
+            }
+            ExplorerUtils.setNodeProperty(node, "tags", new JcrProperty("tags", 0, true, false, new JcrValue[] { values[0], values[0] }));
+            session.save();
+
+            for (int i = 0; i < values.length; i++) {
+                assertThat(ExplorerUtils.toJcrProperty(node.getProperty("p" + i)).values()).containsExactly(values[i]);
+            }
+            assertThat(ExplorerUtils.toJcrProperty(node.getProperty("tags")).values()).containsExactly(values[0], values[0]);
+        } finally {
+            session.logout();
+            repository.shutdown();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.nextdms.dms.explorer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.PropertyProjection;
+import io.nextdms.dms.session.JcrSessionPool;
+import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrValue;
+import java.time.Duration;
+import java.util.Set;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link NodeReadCache} and its {@link NodeCacheInvalidator} against an in-memory Oak repository.
+ */
+class NodeCacheInvalidatorTest extends AbstractOakRepositoryTest {
+
+    private NodeReadCache nodeReadCache;
+    private NodeCacheInvalidator nodeCacheInvalidator;
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        session.getRootNode().addNode("folder", "nt:unstructured").setProperty("title", "first");
+        session.save();
+        OakProperties oakProperties = new OakProperties();
+        nodeReadCache = new NodeReadCache(oakProperties, new SimpleMeterRegistry());
+        nodeCacheInvalidator = new NodeCacheInvalidator(
+            repository,
+            oakProperties,
+            nodeReadCache,
+            new NodeSummaryCache(oakProperties),
+            new NodeTypeCatalogCache(new JcrSessionPool(repository, oakProperties, new SimpleMeterRegistry()))
+        );
+        nodeCacheInvalidator.register();
+    }
+
+    @AfterEach
+    void teardown() {
+        nodeCacheInvalidator.unregister();
+    }
+
+    @Test
+    void testServesProjectionFromCachedNode() throws RepositoryException {
+        Node folder = session.getNode("/folder");
+        JcrNode full = nodeReadCache.convert(folder, PropertyProjection.ALL);
+
+        assertThat(nodeReadCache.convert(folder, PropertyProjection.ALL)).isSameAs(full);
+        assertThat(nodeReadCache.convert(folder, PropertyProjection.of(Set.of("title"))).properties()).containsOnlyKeys("title");
+    }
+
+    @Test
+    void testPropertyChangeEvictsNode() throws RepositoryException {
+        Node folder = session.getNode("/folder");
+        nodeReadCache.convert(folder, PropertyProjection.ALL);
+
+        folder.setProperty("title", "second");
+        session.save();
+
+        await()
+            .atMost(Duration.ofSeconds(10))
+            .until(() -> "second".equals(titleOf(nodeReadCache.convert(session.getNode("/folder"), PropertyProjection.ALL))));
+    }
+
+    @Test
+    void testRemovalEvictsSubtree() throws RepositoryException {
+        Node child = session.getNode("/folder").addNode("child", "nt:unstructured");
+        child.setProperty("title", "child");
+        session.save();
+        nodeReadCache.convert(session.getNode("/folder/child"), PropertyProjection.ALL);
+
+        session.getNode("/folder").remove();
+        session.save();
+        session.getRootNode().addNode("folder", "nt:unstructured").addNode("child", "nt:unstructured").setProperty("title", "new");
+        session.save();
+
+        await()
+            .atMost(Duration.ofSeconds(10))
+            .until(() -> "new".equals(titleOf(nodeReadCache.convert(session.getNode("/folder/child"), PropertyProjection.ALL))));
+    }
+
+    private static String titleOf(JcrNode node) {
+        return ((JcrValue.StringValue) node.properties().get("title").values()[0]).value();
+    }
+}
@@ -0,0 +1,95 @@
+package io.nextdms.dms.explorer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.impl.ExplorerWriteService;
+import io.nextdms.dms.session.JcrSessionPool;
+import io.nextdms.dto.explorer.JcrNodeType;
+import io.nextdms.dto.explorer.JcrNodeTypeCatalog;
+import java.io.StringReader;
+import java.time.Duration;
+import javax.jcr.Session;
+import org.apache.jackrabbit.commons.cnd.CndImporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link NodeTypeCatalogCache} against an in-memory Oak repository.
+ */
+class NodeTypeCatalogCacheTest extends AbstractOakRepositoryTest {
+
+    private JcrSessionPool sessionPool;
+    private NodeTypeCatalogCache nodeTypeCatalogCache;
+    private NodeCacheInvalidator nodeCacheInvalidator;
+
+    @BeforeEach
+    void setup() throws Exception {
+        OakProperties oakProperties = new OakProperties();
+        sessionPool = new JcrSessionPool(repository, oakProperties, new SimpleMeterRegistry());
+        nodeTypeCatalogCache = new NodeTypeCatalogCache(sessionPool);
+        nodeCacheInvalidator = new NodeCacheInvalidator(
+            repository,
+            oakProperties,
+            new NodeReadCache(oakProperties, new SimpleMeterRegistry()),
+            new NodeSummaryCache(oakProperties),
+            nodeTypeCatalogCache
+        );
+        nodeCacheInvalidator.register();
+    }
+
+    @AfterEach
+    void teardown() {
+        nodeCacheInvalidator.unregister();
+        sessionPool.close();
+    }
+
+    @Test
+    void testCatalogIsBuiltOnce() throws Exception {
+        JcrNodeTypeCatalog catalog = nodeTypeCatalogCache.get();
+
+        assertThat(nodeTypeCatalogCache.get()).isSameAs(catalog);
+        assertThat(catalog.nodeTypes()).extracting(JcrNodeType::name).contains("nt:file", "mix:versionable");
+        assertThat(catalog.nodeTypes())
+            .filteredOn(nodeType -> nodeType.name().equals("nt:file"))
+            .singleElement()
+            .satisfies(nodeType -> assertThat(nodeType.supertypes()).contains("nt:hierarchyNode"));
+    }
+
+    @Test
+    void testRegistrationAndIconChangeRebuildCatalog() throws Exception {
+        ExplorerWriteService explorerWriteService = new ExplorerWriteService(nodeTypeCatalogCache, nodeCacheInvalidator);
+        JcrNodeTypeCatalog before = nodeTypeCatalogCache.get();
+
+        explorerWriteService.addNodeTypes(session, "<dms = 'http://nextdms.io/dms/1.0'>\n[dms:invoice] > nt:unstructured\n - dms:amount (DECIMAL)");
+        JcrNodeTypeCatalog registered = nodeTypeCatalogCache.get();
+        explorerWriteService.changeNodeTypeIconAssociation(session, "dms:invoice", "/icons/invoice.svg");
+        JcrNodeTypeCatalog withIcon = nodeTypeCatalogCache.get();
+
+        assertThat(registered.version()).isNotEqualTo(before.version());
+        assertThat(registered.nodeTypes()).extracting(JcrNodeType::name).contains("dms:invoice");
+        assertThat(withIcon.version()).isNotEqualTo(registered.version());
+        assertThat(withIcon.nodeTypes())
+            .filteredOn(nodeType -> nodeType.name().equals("dms:invoice"))
+            .singleElement()
+            .satisfies(nodeType -> assertThat(nodeType.icon()).isEqualTo("/icons/invoice.svg"));
+    }
+
+    @Test
+    void testRegistrationElsewhereInvalidatesCatalog() throws Exception {
+        nodeTypeCatalogCache.get();
+        Session other = login(repository);
+        try {
+            CndImporter.registerNodeTypes(new StringReader("<dms = 'http://nextdms.io/dms/1.0'>\n[dms:contract] > nt:unstructured"), other);
+        } finally {
+            other.logout();
+        }
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> nodeTypeCatalogCache.getIfPresent() == null);
+        assertThat(nodeTypeCatalogCache.get().nodeTypes()).extracting(JcrNodeType::name).contains("dms:contract");
+    }
+}
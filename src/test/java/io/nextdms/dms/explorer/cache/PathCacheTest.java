@@ -0,0 +1,62 @@
+package io.nextdms.dms.explorer.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link PathCache}.
+ */
+class PathCacheTest {
+
+    private PathCache<String> pathCache;
+
+    @BeforeEach
+    void setup() {
+        pathCache = new PathCache<>(Caffeine.newBuilder().build());
+    }
+
+    @Test
+    void testKeepsReadWhenAnotherPathIsInvalidated() {
+        long generation = pathCache.generation();
+        pathCache.invalidate("/other");
+        pathCache.invalidateTree("/folder/child");
+
+        pathCache.put("admin", "/folder", "folder", generation);
+
+        assertThat(pathCache.get("admin", "/folder")).isEqualTo("folder");
+    }
+
+    @Test
+    void testDropsReadWhenItsPathIsInvalidated() {
+        long generation = pathCache.generation();
+        pathCache.invalidate("/folder");
+        pathCache.put("admin", "/folder", "folder", generation);
+
+        generation = pathCache.generation();
+        pathCache.invalidateTree("/folder");
+        pathCache.put("admin", "/folder/child", "child", generation);
+
+        generation = pathCache.generation();
+        pathCache.invalidateAll();
+        pathCache.put("admin", "/other", "other", generation);
+
+        assertThat(pathCache.get("admin", "/folder")).isNull();
+        assertThat(pathCache.get("admin", "/folder/child")).isNull();
+        assertThat(pathCache.get("admin", "/other")).isNull();
+    }
+
+    @Test
+    void testDropsReadOlderThanTheLog() {
+        long generation = pathCache.generation();
+        for (int i = 0; i < 2000; i++) {
+            pathCache.invalidate("/other" + i);
+        }
+
+        pathCache.put("admin", "/folder", "folder", generation);
+
+        assertThat(pathCache.get("admin", "/folder")).isNull();
+    }
+}
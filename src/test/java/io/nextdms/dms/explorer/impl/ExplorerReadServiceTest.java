@@ -0,0 +1,130 @@
+package io.nextdms.dms.explorer.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.PropertyProjection;
+import io.nextdms.dms.explorer.cache.NodeReadCache;
+import io.nextdms.dms.explorer.cache.NodeSummaryCache;
+import io.nextdms.dms.explorer.cache.NodeTypeCatalogCache;
+import io.nextdms.dms.explorer.query.CountMode;
+import io.nextdms.dms.explorer.query.QueryMonitor;
+import io.nextdms.dms.session.JcrSessionPool;
+import io.nextdms.dto.explorer.JcrBreadcrumb;
+import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrNodePage;
+import io.nextdms.dto.explorer.JcrNodeSummary;
+import java.util.ArrayList;
+import java.util.List;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Test class for the {@link ExplorerReadService} against an in-memory Oak repository.
+ */
+class ExplorerReadServiceTest extends AbstractOakRepositoryTest {
+
+    private ExplorerReadService explorerReadService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        Node folder = session.getRootNode().addNode("folder", "nt:unstructured");
+        for (int i = 0; i < 10; i++) {
+            folder.addNode("child" + i, "nt:unstructured").setProperty("index", i);
+        }
+        session.save();
+        OakProperties oakProperties = new OakProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        explorerReadService = new ExplorerReadService(
+            new NodeSummaryCache(oakProperties),
+            new NodeReadCache(oakProperties, meterRegistry),
+            new NodeTypeCatalogCache(new JcrSessionPool(repository, oakProperties, meterRegistry)),
+            new QueryMonitor(oakProperties, meterRegistry),
+            oakProperties
+        );
+    }
+
+    @Test
+    void testPagesThroughAllChildren() throws RepositoryException {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            JcrNodePage page = explorerReadService.getNodePage(session, "/folder", null, cursor, 3, PropertyProjection.NONE);
+            page.content().forEach(child -> names.add(child.name()));
+            assertThat(page.content()).allMatch(child -> child.properties().isEmpty());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(names).containsExactly(
+            "child0",
+            "child1",
+            "child2",
+            "child3",
+            "child4",
+            "child5",
+            "child6",
+            "child7",
+            "child8",
+            "child9"
+        );
+    }
+
+    @Test
+    void testResumesAfterLastChildWhenEarlierChildrenAreRemoved() throws RepositoryException {
+        JcrNodePage first = explorerReadService.getNodePage(session, "/folder", null, null, 4, PropertyProjection.NONE);
+        session.getNode("/folder/child0").remove();
+        session.getNode("/folder/child1").remove();
+        session.save();
+
+        JcrNodePage second = explorerReadService.getNodePage(session, "/folder", null, first.nextCursor(), 4, PropertyProjection.NONE);
+
+        assertThat(second.content()).extracting(JcrNode::name).containsExactly("child4", "child5", "child6", "child7");
+    }
+
+    @Test
+    void testLastPageHasNoCursor() throws RepositoryException {
+        JcrNodePage page = explorerReadService.getNodePage(session, "/folder", null, null, 10, PropertyProjection.NONE);
+
+        assertThat(page.content()).hasSize(10);
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void testRejectsMalformedCursor() {
+        assertThatThrownBy(() ->
+            explorerReadService.getNodePage(session, "/folder", null, "bm90LWEtY3Vyc29y", 3, PropertyProjection.NONE)
+        ).isInstanceOf(RepositoryException.class);
+    }
+
+    @Test
+    void testSearchesBindText() throws RepositoryException {
+        explorerReadService.sqlSearch(session, "first", "/folder", PageRequest.of(0, 5), PropertyProjection.NONE, CountMode.EXACT);
+        explorerReadService.sqlSearch(session, "it's", "/folder", PageRequest.of(0, 5), PropertyProjection.NONE, CountMode.EXACT);
+        explorerReadService.xpathSearch(session, "\"a b\" -c", "/folder", PageRequest.of(1, 5), PropertyProjection.NONE, CountMode.NONE);
+
+        // the three searches share one statement, their text being bound to it
+        assertThat(meterRegistry.get("nextdms.explorer.queries.execution").timers()).hasSize(1);
+        assertThat(meterRegistry.get("nextdms.explorer.queries.execution").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void testBreadcrumbListsAncestorsAndSiblings() throws RepositoryException {
+        session.getNode("/folder/child3").addNode("leaf", "nt:unstructured");
+        session.save();
+
+        JcrBreadcrumb breadcrumb = explorerReadService.getBreadcrumb(session, "/folder/child3/leaf", null, true, 5);
+
+        assertThat(breadcrumb.ancestors())
+            .extracting(JcrNodeSummary::path)
+            .containsExactly("/", "/folder", "/folder/child3", "/folder/child3/leaf");
+        assertThat(breadcrumb.ancestors()).extracting(JcrNodeSummary::hasChildren).containsExactly(true, true, true, false);
+        assertThat(breadcrumb.siblings()).extracting(JcrNodeSummary::name).containsExactly("leaf");
+    }
+}
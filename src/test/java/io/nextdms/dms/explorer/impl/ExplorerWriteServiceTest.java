@@ -0,0 +1,153 @@
+package io.nextdms.dms.explorer.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.ExplorerUtils;
+import io.nextdms.dms.explorer.PropertyProjection;
+import io.nextdms.dms.explorer.cache.NodeCacheInvalidator;
+import io.nextdms.dms.explorer.cache.NodeReadCache;
+import io.nextdms.dms.explorer.cache.NodeSummaryCache;
+import io.nextdms.dms.explorer.cache.NodeTypeCatalogCache;
+import io.nextdms.dms.session.JcrSessionPool;
+import io.nextdms.dto.explorer.JcrBatchResult;
+import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrProperty;
+import io.nextdms.dto.explorer.JcrPropertyChanges;
+import io.nextdms.dto.explorer.JcrValue;
+import io.nextdms.dto.explorer.JcrWriteOperation;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.jcr.Node;
+import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link ExplorerWriteService} against an in-memory Oak repository.
+ */
+class ExplorerWriteServiceTest extends AbstractOakRepositoryTest {
+
+    private NodeReadCache nodeReadCache;
+    private ExplorerWriteService explorerWriteService;
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        session.getRootNode().addNode("folder", "nt:unstructured").addNode("doc", "nt:unstructured");
+        session.getRootNode().addNode("archive", "nt:unstructured");
+        session.save();
+        OakProperties oakProperties = new OakProperties();
+        NodeTypeCatalogCache nodeTypeCatalogCache = new NodeTypeCatalogCache(
+            new JcrSessionPool(repository, oakProperties, new SimpleMeterRegistry())
+        );
+        nodeReadCache = new NodeReadCache(oakProperties, new SimpleMeterRegistry());
+        // not registered as a listener, only the evictions done by the service itself reach the caches
+        NodeCacheInvalidator nodeCacheInvalidator = new NodeCacheInvalidator(
+            repository,
+            oakProperties,
+            nodeReadCache,
+            new NodeSummaryCache(oakProperties),
+            nodeTypeCatalogCache
+        );
+        explorerWriteService = new ExplorerWriteService(nodeTypeCatalogCache, nodeCacheInvalidator);
+    }
+
+    @Test
+    void testAppliesBatchInOneSave() throws RepositoryException {
+        JcrBatchResult result = explorerWriteService.applyBatch(
+            session,
+            List.of(
+                new JcrWriteOperation.SetProperty("/folder/doc", title("Quarterly report")),
+                new JcrWriteOperation.AddMixin("/folder/doc", "mix:referenceable"),
+                new JcrWriteOperation.AddNode("/folder", "notes", "nt:unstructured", null),
+                new JcrWriteOperation.Move("/folder/doc", "/archive")
+            )
+        );
+
+        assertThat(result.committed()).isTrue();
+        assertThat(result.operations()).extracting(JcrBatchResult.OperationResult::path)
+            .containsExactly("/folder/doc/title", "/folder/doc", "/folder/notes", "/archive/doc");
+        assertThat(session.hasPendingChanges()).isFalse();
+        assertThat(session.getNode("/archive/doc").getProperty("title").getString()).isEqualTo("Quarterly report");
+        assertThat(session.getNode("/archive/doc").isNodeType("mix:referenceable")).isTrue();
+        assertThat(session.nodeExists("/folder/notes")).isTrue();
+    }
+
+    @Test
+    void testDiscardsBatchWhenAnOperationFails() throws RepositoryException {
+        JcrBatchResult result = explorerWriteService.applyBatch(
+            session,
+            List.of(
+                new JcrWriteOperation.SetProperty("/folder/doc", title("Quarterly report")),
+                new JcrWriteOperation.Delete("/folder/missing"),
+                new JcrWriteOperation.AddMixin("/folder/doc", "mix:unknown")
+            )
+        );
+
+        assertThat(result.committed()).isFalse();
+        assertThat(result.operations()).extracting(JcrBatchResult.OperationResult::applied).containsExactly(true, false, false);
+        assertThat(session.hasPendingChanges()).isFalse();
+        assertThat(session.getNode("/folder/doc").hasProperty("title")).isFalse();
+    }
+
+    @Test
+    void testSavesOnlyChangedProperties() throws RepositoryException {
+        Node doc = session.getNode("/folder/doc");
+        doc.setProperty("title", "Quarterly report");
+        doc.setProperty("pages", 12L);
+        session.save();
+        Map<String, JcrProperty> properties = new LinkedHashMap<>();
+        for (PropertyIterator iterator = doc.getProperties(); iterator.hasNext();) {
+            JcrProperty property = ExplorerUtils.toJcrProperty(iterator.nextProperty());
+            properties.put(property.name(), property);
+        }
+        properties.put("pages", new JcrProperty("pages", PropertyType.LONG, false, false, new JcrValue[] { new JcrValue.LongValue(13) }));
+
+        JcrPropertyChanges changes = explorerWriteService.saveProperties(
+            session,
+            "/folder/doc",
+            new JcrNode(null, "doc", "/folder/doc", null, null, properties)
+        );
+
+        assertThat(changes.changed()).containsExactly("pages");
+        assertThat(changes.skipped()).contains("title", "jcr:primaryType");
+        assertThat(session.getNode("/folder/doc").getProperty("pages").getLong()).isEqualTo(13);
+    }
+
+    @Test
+    void testCutAndPasteMovesNodeWithoutSiblingIndex() throws RepositoryException {
+        session.getNode("/folder/doc").addNode("child", "nt:unstructured");
+        session.getNode("/folder/doc").addMixin("mix:referenceable");
+        session.save();
+        String docIdentifier = session.getNode("/folder/doc").getIdentifier();
+
+        explorerWriteService.cutAndPasteNode(session, "/folder/doc[1]", "/archive");
+
+        assertThat(session.nodeExists("/folder/doc")).isFalse();
+        assertThat(session.getNode("/archive/doc").getIdentifier()).isEqualTo(docIdentifier);
+        assertThat(session.nodeExists("/archive/doc/child")).isTrue();
+    }
+
+    @Test
+    void testEvictsSavedNodesAtOnce() throws RepositoryException {
+        nodeReadCache.convert(session.getNode("/folder/doc"), PropertyProjection.ALL);
+        nodeReadCache.convert(session.getNode("/archive"), PropertyProjection.ALL);
+
+        explorerWriteService.saveProperty(session, "/folder/doc", "title", title("Quarterly report"));
+        JcrNode saved = nodeReadCache.convert(session.getNode("/folder/doc"), PropertyProjection.ALL);
+        explorerWriteService.applyBatch(session, List.of(new JcrWriteOperation.SetProperty("/archive", title("Archive"))));
+        JcrNode batched = nodeReadCache.convert(session.getNode("/archive"), PropertyProjection.ALL);
+
+        assertThat(saved.properties()).containsKey("title");
+        assertThat(batched.properties()).containsKey("title");
+    }
+
+    private static JcrProperty title(String title) {
+        return new JcrProperty("title", PropertyType.STRING, false, false, new JcrValue[] { new JcrValue.StringValue(title) });
+    }
+}
@@ -0,0 +1,322 @@
+package io.nextdms.dms.explorer.query.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.AbstractOakRepositoryTest;
+import io.nextdms.dms.config.OakProperties;
+import io.nextdms.dms.explorer.PropertyProjection;
+import io.nextdms.dms.explorer.query.CountMode;
+import io.nextdms.dms.explorer.query.QueryMonitor;
+import io.nextdms.dms.explorer.query.SearchPage;
+import io.nextdms.dms.explorer.query.SearchRequestCompiler;
+import io.nextdms.dto.explorer.JcrNode;
+import io.nextdms.dto.explorer.JcrNodePage;
+import io.nextdms.dto.explorer.JcrQueryPlan;
+import io.nextdms.dto.explorer.JcrSearchRequest;
+import io.nextdms.dto.explorer.JcrSlowQuery;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.query.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Test class for the {@link QueryService} against an in-memory Oak repository.
+ */
+class QueryServiceTest extends AbstractOakRepositoryTest {
+
+    private static final String QUERY = "SELECT * FROM [nt:unstructured] AS s WHERE ISCHILDNODE(s, '/folder')";
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private OakProperties oakProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private QueryMonitor queryMonitor;
+    private QueryService queryService;
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        Node folder = session.getRootNode().addNode("folder", "nt:unstructured");
+        for (int i = 0; i < 10; i++) {
+            Node child = folder.addNode("child" + i, "nt:unstructured");
+            child.setProperty("rank", i % 3);
+            child.setProperty("title", (i < 5 ? "draft_" : "final ") + i);
+            child.setProperty("created", GregorianCalendar.from(START.plusDays(i).toZonedDateTime()));
+        }
+        session.save();
+        oakProperties = new OakProperties();
+        oakProperties.getQueries().setCountLimit(2);
+        meterRegistry = new SimpleMeterRegistry();
+        queryMonitor = new QueryMonitor(oakProperties, meterRegistry);
+        queryService = new QueryService(oakProperties, queryMonitor);
+    }
+
+    @Test
+    void testCountsExactly() throws RepositoryException {
+        SearchPage<JcrNode> page = queryService.search(
+            session,
+            QUERY + " ORDER BY PATH(s)",
+            Query.JCR_SQL2,
+            PageRequest.of(1, 3),
+            PropertyProjection.NONE,
+            CountMode.EXACT
+        );
+
+        assertThat(page.getContent()).extracting(JcrNode::name).containsExactly("child3", "child4", "child5");
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(page.isTotalExact()).isTrue();
+    }
+
+    @Test
+    void testEstimatedCountIsBoundedLowerBound() throws RepositoryException {
+        SearchPage<JcrNode> page = queryService.search(
+            session,
+            QUERY,
+            Query.JCR_SQL2,
+            PageRequest.of(0, 3),
+            PropertyProjection.NONE,
+            CountMode.ESTIMATE
+        );
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.isTotalExact()).isFalse();
+
+        page = queryService.search(session, QUERY, Query.JCR_SQL2, PageRequest.of(3, 3), PropertyProjection.NONE, CountMode.ESTIMATE);
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(page.isTotalExact()).isTrue();
+    }
+
+    @Test
+    void testUncountedPageOnlyTellsWhetherNextPageExists() throws RepositoryException {
+        SearchPage<JcrNode> page = queryService.search(
+            session,
+            QUERY,
+            Query.JCR_SQL2,
+            PageRequest.of(2, 3),
+            PropertyProjection.NONE,
+            CountMode.NONE
+        );
+
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.hasNext()).isTrue();
+
+        page = queryService.search(session, QUERY, Query.JCR_SQL2, PageRequest.of(3, 3), PropertyProjection.NONE, CountMode.NONE);
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void testLogsRowsReadRatherThanTotal() throws RepositoryException {
+        oakProperties.getQueries().setSlowThresholdMillis(0);
+        SearchPage<JcrNode> page = queryService.search(
+            session,
+            QUERY,
+            Query.JCR_SQL2,
+            PageRequest.of(1, 3),
+            PropertyProjection.NONE,
+            CountMode.ESTIMATE
+        );
+
+        assertThat(page.getTotalElements()).isEqualTo(8);
+        assertThat(queryMonitor.getSlowQueries().get(0).rowsRead()).isEqualTo(6);
+    }
+
+    @Test
+    void testPagesByKeysetOnPropertyWithTies() throws RepositoryException {
+        List<String> names = new ArrayList<>();
+        List<Long> ranks = new ArrayList<>();
+        String cursor = null;
+        do {
+            JcrNodePage page = queryService.searchPage(session, QUERY + " ORDER BY s.[rank] DESC", cursor, 4, PropertyProjection.ALL);
+            for (JcrNode node : page.content()) {
+                names.add(node.name());
+                ranks.add(session.getNode(node.path()).getProperty("rank").getLong());
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(names).containsExactly(
+            "child2",
+            "child5",
+            "child8",
+            "child1",
+            "child4",
+            "child7",
+            "child0",
+            "child3",
+            "child6",
+            "child9"
+        );
+        assertThat(ranks).isSortedAccordingTo((a, b) -> Long.compare(b, a));
+    }
+
+    @Test
+    void testPagesByKeysetOnPath() throws RepositoryException {
+        JcrNodePage first = queryService.searchPage(session, QUERY, null, 6, PropertyProjection.NONE);
+        JcrNodePage second = queryService.searchPage(session, QUERY, first.nextCursor(), 6, PropertyProjection.NONE);
+
+        assertThat(first.content()).extracting(JcrNode::name).containsExactly("child0", "child1", "child2", "child3", "child4", "child5");
+        assertThat(second.content()).extracting(JcrNode::name).containsExactly("child6", "child7", "child8", "child9");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void testStreamedSearchFailsBeforeStreamingInvalidQueries() throws Exception {
+        assertThatThrownBy(() ->
+            queryService.streamSearch(session, "SELECT * FROM", Query.JCR_SQL2, null, PropertyProjection.NONE)
+        ).isInstanceOf(RepositoryException.class);
+
+        List<String> names = new ArrayList<>();
+        queryService.streamSearch(session, QUERY, Query.JCR_SQL2, null, PropertyProjection.NONE).forEach(node -> names.add(node.name()));
+        assertThat(names).hasSize(10);
+    }
+
+    @Test
+    void testKeysetRejectsJoinsAndMalformedCursors() {
+        assertThatThrownBy(() ->
+            queryService.searchPage(
+                session,
+                "SELECT * FROM [nt:unstructured] AS a INNER JOIN [nt:unstructured] AS b ON ISCHILDNODE(b, a)",
+                null,
+                3,
+                PropertyProjection.NONE
+            )
+        ).isInstanceOf(RepositoryException.class);
+        assertThatThrownBy(() -> queryService.searchPage(session, QUERY, "bm90LWEtY3Vyc29y", 3, PropertyProjection.NONE)).isInstanceOf(
+            RepositoryException.class
+        );
+    }
+
+    @Test
+    void testSearchesByStructuredRequest() throws RepositoryException {
+        JcrSearchRequest request = new JcrSearchRequest(
+            "/folder",
+            "nt:unstructured",
+            List.of(
+                new JcrSearchRequest.Predicate("rank", JcrSearchRequest.Operator.IN, List.of("1", "2"), "long"),
+                new JcrSearchRequest.Predicate("title", JcrSearchRequest.Operator.STARTS_WITH, List.of("draft_"), null)
+            ),
+            List.of(new JcrSearchRequest.DateRange("created", START.plusDays(1), START.plusDays(4))),
+            null,
+            List.of(new JcrSearchRequest.Sort("rank", true), new JcrSearchRequest.Sort("jcr:path", false)),
+            null
+        );
+
+        SearchPage<JcrNode> page = queryService.search(session, request, PageRequest.of(0, 10), PropertyProjection.NONE, CountMode.EXACT);
+
+        assertThat(page.getContent()).extracting(JcrNode::name).containsExactly("child2", "child1");
+        assertThat(page.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void testCompilesIndexFriendlyStatement() throws RepositoryException {
+        JcrSearchRequest request = new JcrSearchRequest(
+            "/it's",
+            "dms:document",
+            List.of(new JcrSearchRequest.Predicate("dms:status", JcrSearchRequest.Operator.EQUALS, List.of("draft"), null)),
+            null,
+            "report",
+            List.of(new JcrSearchRequest.Sort("jcr:score", true)),
+            "dms"
+        );
+
+        SearchRequestCompiler.CompiledQuery compiled = SearchRequestCompiler.compile(request, SearchRequestCompiler.Traversal.FAIL);
+
+        assertThat(compiled.statement()).isEqualTo(
+            "SELECT * FROM [dms:document] AS s WHERE ISDESCENDANTNODE(s, '/it''s') AND s.[dms:status] = $v0" +
+            " AND CONTAINS(s.*, $text) ORDER BY SCORE(s) DESC OPTION(TRAVERSAL FAIL, INDEX TAG [dms])"
+        );
+        assertThat(compiled.bindings()).extracting(SearchRequestCompiler.Binding::value).containsExactly("draft", "report");
+        assertThatThrownBy(() ->
+            SearchRequestCompiler.compile(
+                new JcrSearchRequest(null, "nt:base] AS s UNION SELECT * FROM [nt:base", null, null, null, null, null),
+                SearchRequestCompiler.Traversal.FAIL
+            )
+        ).isInstanceOf(RepositoryException.class);
+    }
+
+    @Test
+    void testRefusesTraversingStructuredSearch() throws RepositoryException {
+        JcrSearchRequest request = new JcrSearchRequest(
+            "/folder",
+            null,
+            List.of(new JcrSearchRequest.Predicate("rank", JcrSearchRequest.Operator.EQUALS, List.of("1"), "Long")),
+            null,
+            null,
+            null,
+            null
+        );
+
+        assertThatThrownBy(() ->
+            queryService.search(session, request, PageRequest.of(0, 10), PropertyProjection.NONE, CountMode.EXACT)
+        ).isInstanceOf(RepositoryException.class);
+
+        oakProperties.getQueries().setTraversal(SearchRequestCompiler.Traversal.WARN);
+        SearchPage<JcrNode> page = queryService.search(session, request, PageRequest.of(0, 10), PropertyProjection.NONE, CountMode.EXACT);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void testExplainsPlanIndexAndCost() throws RepositoryException {
+        JcrQueryPlan plan = queryService.explain(session, QUERY, Query.JCR_SQL2);
+
+        assertThat(plan.indexes()).containsExactly("nodeType");
+        assertThat(plan.cost()).isNotNull().isPositive();
+        assertThat(plan.traversing()).isFalse();
+
+        JcrQueryPlan xpathPlan = queryService.explain(session, "/jcr:root/folder/element(*, nt:unstructured)[@rank = 1]", Query.XPATH);
+        assertThat(xpathPlan.indexes()).containsExactly("nodeType");
+
+        JcrQueryPlan traversingPlan = queryService.explain(
+            session,
+            new JcrSearchRequest(
+                "/folder",
+                null,
+                List.of(new JcrSearchRequest.Predicate("rank", JcrSearchRequest.Operator.EQUALS, List.of("1"), "Long")),
+                null,
+                null,
+                null,
+                null
+            )
+        );
+        assertThat(traversingPlan.indexes()).containsExactly("traverse");
+        assertThat(traversingPlan.traversing()).isTrue();
+    }
+
+    @Test
+    void testLogsSlowQueriesInBoundedRingAndTimesThemByShape() throws RepositoryException {
+        oakProperties.getQueries().setSlowThresholdMillis(0);
+        oakProperties.getQueries().setSlowLogSize(2);
+        for (int rank = 0; rank < 3; rank++) {
+            queryService.search(session, QUERY + " AND s.[rank] = " + rank, Query.JCR_SQL2, PageRequest.of(0, 2));
+        }
+
+        assertThat(queryMonitor.getSlowQueries())
+            .extracting(JcrSlowQuery::statement)
+            .containsExactly(QUERY + " AND s.[rank] = 2", QUERY + " AND s.[rank] = 1");
+        assertThat(queryMonitor.getSlowQueries().get(0).rowsRead()).isEqualTo(3);
+        assertThat(queryMonitor.getSlowQueries().get(0).plan().indexes()).containsExactly("nodeType");
+
+        Timer timer = meterRegistry.get("nextdms.explorer.queries.execution").timer();
+        assertThat(timer.getId().getTag("shape")).isEqualTo(
+            "SELECT * FROM [nt:unstructured] AS s WHERE ISCHILDNODE(s, ?) AND s.[rank] = ?"
+        );
+        assertThat(timer.count()).isEqualTo(3);
+
+        queryMonitor.clearSlowQueries();
+        assertThat(queryMonitor.getSlowQueries()).isEmpty();
+    }
+}
@@ -0,0 +1,99 @@
+package io.nextdms.dms.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.config.OakProperties;
+import javax.jcr.Credentials;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link JcrSessionPool}.
+ */
+class JcrSessionPoolTest {
+
+    private Repository repository;
+    private Session session;
+    private JcrSessionPool sessionPool;
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        repository = mock(Repository.class);
+        session = mock(Session.class);
+        when(session.isLive()).thenReturn(true);
+        when(repository.login(any(Credentials.class))).thenReturn(session);
+        OakProperties oakProperties = new OakProperties();
+        oakProperties.getSessionPool().setMaxSize(1);
+        oakProperties.getSessionPool().setMaxWaitMillis(10);
+        sessionPool = new JcrSessionPool(repository, oakProperties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testReusesSessionAndRefreshesOnBorrow() throws RepositoryException {
+        sessionPool.execute(s -> s);
+        sessionPool.execute(s -> s);
+
+        verify(repository, times(1)).login(any(Credentials.class));
+        verify(session).refresh(false);
+        assertThat(sessionPool.getIdleCount()).isEqualTo(1);
+        assertThat(sessionPool.getActiveCount()).isZero();
+    }
+
+    @Test
+    void testReturnsSessionWhenCallbackFails() {
+        assertThatThrownBy(() ->
+            sessionPool.execute(s -> {
+                throw new RepositoryException("boom");
+            })
+        ).hasMessage("boom");
+
+        assertThat(sessionPool.getActiveCount()).isZero();
+        assertThat(sessionPool.getIdleCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testTimesOutWhenPoolIsExhausted() throws RepositoryException {
+        Session borrowed = sessionPool.borrow();
+
+        assertThatThrownBy(() -> sessionPool.borrow()).isInstanceOf(RepositoryException.class);
+
+        sessionPool.release(borrowed);
+        assertThat(sessionPool.borrow()).isSameAs(session);
+    }
+
+    @Test
+    void testEvictsDeadSessions() throws RepositoryException {
+        sessionPool.execute(s -> s);
+        when(session.isLive()).thenReturn(false);
+
+        sessionPool.execute(s -> s);
+
+        verify(repository, times(2)).login(any(Credentials.class));
+        assertThat(sessionPool.getIdleCount()).isZero();
+    }
+
+    @Test
+    void testIgnoresSessionsNotBorrowedFromPool() throws RepositoryException {
+        Session borrowed = sessionPool.borrow();
+        Session foreign = mock(Session.class);
+
+        assertThat(sessionPool.owns(borrowed)).isTrue();
+        assertThat(sessionPool.owns(foreign)).isFalse();
+        sessionPool.release(foreign);
+        assertThat(sessionPool.getActiveCount()).isEqualTo(1);
+
+        sessionPool.release(borrowed);
+        assertThat(sessionPool.owns(borrowed)).isFalse();
+        assertThat(sessionPool.getActiveCount()).isZero();
+    }
+}
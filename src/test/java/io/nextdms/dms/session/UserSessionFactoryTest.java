@@ -0,0 +1,85 @@
+package io.nextdms.dms.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nextdms.dms.config.OakProperties;
+import javax.jcr.AccessDeniedException;
+import javax.jcr.Credentials;
+import javax.jcr.LoginException;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import org.apache.jackrabbit.api.security.authentication.token.TokenCredentials;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link UserSessionFactory}.
+ */
+class UserSessionFactoryTest {
+
+    private Repository repository;
+    private Session adminSession;
+    private Session userSession;
+    private OakProperties oakProperties;
+    private JcrSessionPool sessionPool;
+    private UserSessionFactory userSessionFactory;
+
+    @BeforeEach
+    void setup() throws RepositoryException {
+        repository = mock(Repository.class);
+        adminSession = mock(Session.class);
+        userSession = mock(Session.class);
+        when(adminSession.isLive()).thenReturn(true);
+        when(repository.login(any(SimpleCredentials.class))).thenReturn(adminSession);
+        when(repository.login(any(TokenCredentials.class))).thenReturn(userSession);
+        when(adminSession.impersonate(any(Credentials.class))).thenReturn(userSession);
+        when(userSession.getAttribute(".token")).thenReturn("token-value");
+        oakProperties = new OakProperties();
+        sessionPool = new JcrSessionPool(repository, oakProperties, new SimpleMeterRegistry());
+        userSessionFactory = new UserSessionFactory(repository, sessionPool, oakProperties);
+    }
+
+    @Test
+    void testImpersonatesOnceThenUsesCachedToken() throws RepositoryException {
+        assertThat(userSessionFactory.login("john")).isSameAs(userSession);
+        assertThat(userSessionFactory.login("john")).isSameAs(userSession);
+
+        verify(adminSession, times(1)).impersonate(any(Credentials.class));
+        verify(repository, times(1)).login(any(TokenCredentials.class));
+    }
+
+    @Test
+    void testImpersonatesAgainWhenTokenIsRejected() throws RepositoryException {
+        userSessionFactory.login("john");
+        when(repository.login(any(TokenCredentials.class))).thenThrow(new LoginException("expired"));
+
+        assertThat(userSessionFactory.login("john")).isSameAs(userSession);
+
+        verify(adminSession, times(2)).impersonate(any(Credentials.class));
+    }
+
+    @Test
+    void testLogsOutAfterExecute() throws RepositoryException {
+        userSessionFactory.execute("john", session -> session);
+
+        verify(userSession).logout();
+    }
+
+    @Test
+    void testProviderRefusesRequestsWithoutLoginWhenUserSessionsAreEnabled() throws RepositoryException {
+        oakProperties.getUserSessions().setEnabled(true);
+        JcrSessionProvider sessionProvider = new JcrSessionProvider(sessionPool, userSessionFactory, oakProperties);
+
+        assertThatThrownBy(() -> sessionProvider.acquire(null)).isInstanceOf(AccessDeniedException.class);
+        assertThat(sessionProvider.acquire("john")).isSameAs(userSession);
+    }
+}